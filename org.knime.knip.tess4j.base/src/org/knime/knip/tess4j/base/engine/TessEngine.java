@@ -0,0 +1,154 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.engine;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.core.util.Pair;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.TessAPI;
+
+/**
+ * An initialized native Tesseract handle.
+ * 
+ * An engine is not thread-safe and must only be used by one thread at a time.
+ * Engines are obtained from and returned to the {@link TessEngineCache}.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public class TessEngine {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(TessEngine.class);
+
+	private final TessEngineConfig m_config;
+	private final TessAPI m_api;
+	private final TessBaseAPI m_handle;
+	private final long m_generation;
+
+	/**
+	 * Create and initialize a new Tesseract handle.
+	 * 
+	 * @param config
+	 *            the configuration to initialize Tesseract with
+	 * @throws IllegalStateException
+	 *             if Tesseract could not be initialized, e.g. because of a
+	 *             missing language file
+	 */
+	TessEngine(final TessEngineConfig config) {
+		m_config = config;
+		// before loading, so that models replaced meanwhile make this engine stale
+		m_generation = TraineddataRegistry.getInstance().getGeneration(config.getDatapath());
+
+		// JNA interface mapping
+		m_api = TessAPI.INSTANCE;
+		m_handle = m_api.TessBaseAPICreate();
+
+		if (m_api.TessBaseAPIInit1(m_handle, config.getDatapath(), config.getLanguage(), config.getOcrEngineMode(),
+				null, 0) != 0) {
+			m_api.TessBaseAPIDelete(m_handle);
+			throw new IllegalStateException("Error initializing Tesseract with language \"" + config.getLanguage()
+					+ "\" from \"" + config.getDatapath() + "\".");
+		}
+
+		m_api.TessBaseAPISetPageSegMode(m_handle, config.getPageSegMode());
+
+		/* load custom config key-value pairs */
+		for (final Pair<String, String> variable : config.getVariables()) {
+			if (m_api.TessBaseAPISetVariable(m_handle, variable.getFirst(), variable.getSecond()) == 0) {
+				LOGGER.warn("Unknown tesseract variable \"" + variable.getFirst() + "\".");
+			}
+		}
+	}
+
+	/**
+	 * @return the configuration this engine was initialized with.
+	 */
+	public TessEngineConfig getConfig() {
+		return m_config;
+	}
+
+	/**
+	 * @return generation of the tessdata directory when this engine was
+	 *         initialized, see {@link TraineddataRegistry#getGeneration(String)}.
+	 */
+	long getGeneration() {
+		return m_generation;
+	}
+
+	/**
+	 * @return the tesseract API.
+	 */
+	public TessAPI getAPI() {
+		return m_api;
+	}
+
+	/**
+	 * @return the native handle to pass to {@link #getAPI()} methods.
+	 */
+	public TessBaseAPI getHandle() {
+		return m_handle;
+	}
+
+	/**
+	 * Free the image and recognition results of the last page and restore the
+	 * configured page segmentation mode, so that the engine can be reused for
+	 * unrelated pages.
+	 */
+	void reset() {
+		m_api.TessBaseAPIClear(m_handle);
+		m_api.TessBaseAPISetPageSegMode(m_handle, m_config.getPageSegMode());
+	}
+
+	/**
+	 * Free the native handle. The engine must not be used afterwards.
+	 */
+	void dispose() {
+		m_api.TessBaseAPIDelete(m_handle);
+	}
+}
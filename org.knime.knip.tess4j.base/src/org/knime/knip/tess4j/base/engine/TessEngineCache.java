@@ -0,0 +1,241 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Process-wide cache of initialized {@link TessEngine}s.
+ * 
+ * Initializing Tesseract reads the language model files from disk, which
+ * dominates execution time in workflows executing the node many times, e.g. in
+ * loops. Engines released to this cache are reused by later executions with an
+ * equal {@link TessEngineConfig}, unless the models in its tessdata directory
+ * changed since the engine was initialized, see {@link TraineddataRegistry}.
+ * 
+ * At most {@value #DEFAULT_MAX_IDLE_PER_PROCESSOR} idle engines per processor
+ * are kept, engines idle for longer than
+ * {@value #DEFAULT_IDLE_TIMEOUT_SECONDS} seconds are disposed. Both can be
+ * changed via the system properties {@value #PROP_MAX_IDLE} and
+ * {@value #PROP_IDLE_TIMEOUT}.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public final class TessEngineCache {
+
+	/** System property for the maximum number of idle engines */
+	public static final String PROP_MAX_IDLE = "knip.tess4j.engineCache.maxIdle";
+
+	/** System property for the idle time in seconds after which engines are disposed */
+	public static final String PROP_IDLE_TIMEOUT = "knip.tess4j.engineCache.idleTimeout";
+
+	private static final int DEFAULT_MAX_IDLE_PER_PROCESSOR = 1;
+	private static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(TessEngineCache.class);
+
+	private static final TessEngineCache INSTANCE = new TessEngineCache(
+			Integer.getInteger(PROP_MAX_IDLE,
+					DEFAULT_MAX_IDLE_PER_PROCESSOR * Runtime.getRuntime().availableProcessors()),
+			TimeUnit.SECONDS.toMillis(Long.getLong(PROP_IDLE_TIMEOUT, DEFAULT_IDLE_TIMEOUT_SECONDS)));
+
+	/** An engine waiting for reuse */
+	private static final class IdleEngine {
+		final TessEngine m_engine;
+		final long m_releaseTime;
+
+		IdleEngine(final TessEngine engine, final long releaseTime) {
+			m_engine = engine;
+			m_releaseTime = releaseTime;
+		}
+	}
+
+	private final int m_maxIdle;
+	private final long m_idleTimeout;
+
+	/* idle engines, least recently released first */
+	private final LinkedList<IdleEngine> m_idle = new LinkedList<>();
+
+	private ScheduledExecutorService m_evictor = null;
+
+	private TessEngineCache(final int maxIdle, final long idleTimeout) {
+		m_maxIdle = Math.max(0, maxIdle);
+		m_idleTimeout = Math.max(1000, idleTimeout);
+	}
+
+	/**
+	 * @return the process-wide engine cache.
+	 */
+	public static TessEngineCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Get an engine for the given configuration for exclusive use by the
+	 * calling thread. Reuses an idle engine if available, otherwise a new
+	 * engine is initialized.
+	 * 
+	 * @param config
+	 *            configuration of the engine
+	 * @return the engine, which needs to be returned via
+	 *         {@link #release(TessEngine)}
+	 * @throws IllegalStateException
+	 *             if a new engine could not be initialized
+	 */
+	public TessEngine acquire(final TessEngineConfig config) {
+		final long generation = TraineddataRegistry.getInstance().getGeneration(config.getDatapath());
+		final List<TessEngine> stale = new ArrayList<>();
+		try {
+			synchronized (m_idle) {
+				/* prefer the most recently used engine */
+				final Iterator<IdleEngine> itr = m_idle.descendingIterator();
+				while (itr.hasNext()) {
+					final IdleEngine idle = itr.next();
+					if (!idle.m_engine.getConfig().equals(config)) {
+						continue;
+					}
+					itr.remove();
+					if (idle.m_engine.getGeneration() == generation) {
+						return idle.m_engine;
+					}
+					stale.add(idle.m_engine);
+				}
+			}
+		} finally {
+			dispose(stale);
+		}
+
+		LOGGER.debug("Initializing new Tesseract engine: " + config);
+		return new TessEngine(config);
+	}
+
+	/**
+	 * Return an engine obtained via {@link #acquire(TessEngineConfig)} for
+	 * reuse. If the cache is full, the least recently used engine is disposed.
+	 * 
+	 * @param engine
+	 *            the engine to return
+	 */
+	public void release(final TessEngine engine) {
+		engine.reset();
+
+		final List<TessEngine> evicted = new ArrayList<>();
+		synchronized (m_idle) {
+			m_idle.addLast(new IdleEngine(engine, System.currentTimeMillis()));
+			while (m_idle.size() > m_maxIdle) {
+				evicted.add(m_idle.removeFirst().m_engine);
+			}
+
+			if (m_evictor == null && !m_idle.isEmpty()) {
+				startEvictor();
+			}
+		}
+
+		dispose(evicted);
+	}
+
+	/**
+	 * Dispose all idle engines.
+	 */
+	public void clear() {
+		final List<TessEngine> evicted = new ArrayList<>();
+		synchronized (m_idle) {
+			for (final IdleEngine idle : m_idle) {
+				evicted.add(idle.m_engine);
+			}
+			m_idle.clear();
+		}
+
+		dispose(evicted);
+	}
+
+	/* dispose engines idle for longer than the idle timeout */
+	private void evictExpired() {
+		final long expiry = System.currentTimeMillis() - m_idleTimeout;
+
+		final List<TessEngine> evicted = new ArrayList<>();
+		synchronized (m_idle) {
+			while (!m_idle.isEmpty() && m_idle.getFirst().m_releaseTime < expiry) {
+				evicted.add(m_idle.removeFirst().m_engine);
+			}
+		}
+
+		dispose(evicted);
+	}
+
+	private void startEvictor() {
+		m_evictor = Executors.newSingleThreadScheduledExecutor((r) -> {
+			final Thread t = new Thread(r, "Tess4J engine cache eviction");
+			t.setDaemon(true);
+			return t;
+		});
+
+		final long period = Math.max(1000, m_idleTimeout / 4);
+		m_evictor.scheduleAtFixedRate(this::evictExpired, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/* disposing native handles may take a moment, never call while holding the lock */
+	private static void dispose(final List<TessEngine> engines) {
+		for (final TessEngine engine : engines) {
+			try {
+				engine.dispose();
+			} catch (final Throwable t) {
+				LOGGER.warn("Error disposing Tesseract engine.", t);
+			}
+		}
+	}
+}
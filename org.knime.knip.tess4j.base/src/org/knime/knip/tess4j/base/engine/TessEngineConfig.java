@@ -0,0 +1,166 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.knime.core.util.Pair;
+
+/**
+ * Immutable configuration of a {@link TessEngine}. Engines with equal
+ * configurations are interchangeable, which makes this the key for the
+ * {@link TessEngineCache}.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public final class TessEngineConfig {
+
+	private final String m_datapath;
+	private final String m_language;
+	private final int m_ocrEngineMode;
+	private final int m_pageSegMode;
+	private final List<Pair<String, String>> m_variables;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param datapath
+	 *            path to the tessdata folder
+	 * @param language
+	 *            language(s) to recognize, e.g. "eng" or "eng+deu"
+	 * @param ocrEngineMode
+	 *            OCR engine mode, see
+	 *            {@link net.sourceforge.tess4j.ITesseract.OcrEngineMode}
+	 * @param pageSegMode
+	 *            page segmentation mode, see
+	 *            {@link net.sourceforge.tess4j.ITesseract.PageSegMode}
+	 * @param variables
+	 *            tesseract variable key-value pairs
+	 */
+	public TessEngineConfig(final String datapath, final String language, final int ocrEngineMode,
+			final int pageSegMode, final List<Pair<String, String>> variables) {
+		m_datapath = datapath;
+		m_language = language;
+		m_ocrEngineMode = ocrEngineMode;
+		m_pageSegMode = pageSegMode;
+		m_variables = Collections.unmodifiableList(new ArrayList<>(variables));
+	}
+
+	/**
+	 * @return path to the tessdata folder.
+	 */
+	public String getDatapath() {
+		return m_datapath;
+	}
+
+	/**
+	 * @return language(s) to recognize.
+	 */
+	public String getLanguage() {
+		return m_language;
+	}
+
+	/**
+	 * @param language
+	 *            language(s) to recognize
+	 * @return a configuration equal to this one except for the language.
+	 */
+	public TessEngineConfig withLanguage(final String language) {
+		return new TessEngineConfig(m_datapath, language, m_ocrEngineMode, m_pageSegMode, m_variables);
+	}
+
+	/**
+	 * @return the OCR engine mode.
+	 */
+	public int getOcrEngineMode() {
+		return m_ocrEngineMode;
+	}
+
+	/**
+	 * @return the page segmentation mode.
+	 */
+	public int getPageSegMode() {
+		return m_pageSegMode;
+	}
+
+	/**
+	 * @return tesseract variable key-value pairs.
+	 */
+	public List<Pair<String, String>> getVariables() {
+		return m_variables;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(m_datapath, m_language, m_ocrEngineMode, m_pageSegMode, m_variables);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof TessEngineConfig)) {
+			return false;
+		}
+		final TessEngineConfig other = (TessEngineConfig) obj;
+		return m_ocrEngineMode == other.m_ocrEngineMode && m_pageSegMode == other.m_pageSegMode
+				&& Objects.equals(m_datapath, other.m_datapath) && Objects.equals(m_language, other.m_language)
+				&& m_variables.equals(other.m_variables);
+	}
+
+	@Override
+	public String toString() {
+		return "TessEngineConfig [datapath=" + m_datapath + ", language=" + m_language + ", ocrEngineMode="
+				+ m_ocrEngineMode + ", pageSegMode=" + m_pageSegMode + ", variables=" + m_variables.size() + "]";
+	}
+}
@@ -0,0 +1,340 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.engine;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Process-wide index of the language models in tessdata directories.
+ *
+ * Listing a tessdata directory is slow on network mounts, yet the dialog needs
+ * its languages whenever it is opened or saved. Each directory is therefore
+ * listed once and its index kept as long as its modification time does not
+ * change. Directories are also watched for changes, which drop their index
+ * immediately, but watching is not relied upon since changes of network
+ * mounts made by other hosts are not reported. A language which is missing
+ * from an index is looked up in a fresh listing before it is reported as
+ * missing.
+ *
+ * Every noticed change of a directory also increments its generation, see
+ * {@link #getGeneration(String)}, so that the {@link TessEngineCache} does not
+ * hand out idle engines initialized from replaced model files. Tesseract loads
+ * the models itself from the directory, so the models are not read here.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class TraineddataRegistry {
+
+	/** File name extension of Tesseract language models */
+	public static final String EXTENSION = ".traineddata";
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(TraineddataRegistry.class);
+
+	private static final TraineddataRegistry INSTANCE = new TraineddataRegistry();
+
+	/** Languages found in a directory */
+	private static final class Index {
+		final List<String> m_languages;
+		final long m_lastModified;
+
+		Index(final List<String> languages, final long lastModified) {
+			m_languages = languages;
+			m_lastModified = lastModified;
+		}
+	}
+
+	private final Map<Path, Index> m_indices = new HashMap<>();
+	private final Map<Path, Long> m_generations = new HashMap<>();
+	private final Map<WatchKey, Path> m_watched = new HashMap<>();
+
+	private WatchService m_watchService = null;
+
+	private TraineddataRegistry() {
+	}
+
+	/**
+	 * @return the process-wide registry.
+	 */
+	public static TraineddataRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Get the languages of the models in a tessdata directory. The directory
+	 * is only listed if it was not indexed before or changed since.
+	 *
+	 * @param datapath
+	 *            path to the tessdata directory
+	 * @return names of the models without extension in alphabetical order,
+	 *         empty if the directory does not exist
+	 */
+	public List<String> getLanguages(final String datapath) {
+		return getLanguages(datapath, false);
+	}
+
+	/**
+	 * @param relist
+	 *            whether to list the directory even if its index is current
+	 */
+	private List<String> getLanguages(final String datapath, final boolean relist) {
+		final Path dir = toPath(datapath);
+		if (dir == null) {
+			return Collections.emptyList();
+		}
+
+		final long generation;
+		synchronized (this) {
+			final Index index = m_indices.get(dir);
+			final long lastModified = lastModified(dir);
+			if (!relist && index != null && index.m_lastModified == lastModified) {
+				return index.m_languages;
+			}
+			if (index != null && index.m_lastModified != lastModified) {
+				// a change the watch service did not report
+				m_generations.merge(dir, 1L, Long::sum);
+			}
+			generation = m_generations.getOrDefault(dir, 0L);
+		}
+
+		// list without holding the lock, this may take a while on network mounts
+		watch(dir);
+		final long lastModified = lastModified(dir);
+		final Index index = new Index(list(dir), lastModified);
+		synchronized (this) {
+			// a change during listing may not be contained in the list
+			if (generation == m_generations.getOrDefault(dir, 0L)) {
+				m_indices.put(dir, index);
+			}
+		}
+		return index.m_languages;
+	}
+
+	/**
+	 * Check whether models for all given languages are in a tessdata
+	 * directory.
+	 *
+	 * @param datapath
+	 *            path to the tessdata directory
+	 * @param language
+	 *            language(s) as passed to Tesseract, e.g. "eng" or "eng+deu"
+	 * @return the first language without a model, <code>null</code> if all
+	 *         are available
+	 */
+	public String findMissingLanguage(final String datapath, final String language) {
+		final String missing = findMissingLanguage(getLanguages(datapath), language);
+		if (missing == null) {
+			return null;
+		}
+		// the index may be outdated if a change was not noticed, e.g. on a network mount
+		return findMissingLanguage(getLanguages(datapath, true), language);
+	}
+
+	private static String findMissingLanguage(final List<String> languages, final String language) {
+		for (final String part : language.split("\\+")) {
+			if (!part.isEmpty() && !languages.contains(part)) {
+				return part;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get the number of changes of a tessdata directory reported while it was
+	 * watched or noticed from its modification time. Engines initialized at an older generation may have loaded
+	 * models which were replaced since. The directory is indexed and watched
+	 * from the first call on.
+	 *
+	 * @param datapath
+	 *            path to the tessdata directory
+	 * @return the generation of the directory
+	 */
+	public long getGeneration(final String datapath) {
+		final Path dir = toPath(datapath);
+		if (dir == null) {
+			return 0;
+		}
+		getLanguages(datapath);
+		synchronized (this) {
+			return m_generations.getOrDefault(dir, 0L);
+		}
+	}
+
+	/**
+	 * Get a string identifying the models of the given languages by the size
+	 * and modification time of their files, e.g. to tell results recognized
+	 * with a model apart from those recognized after it was replaced. Unlike
+	 * the {@link #getGeneration(String) generation}, it is stable across
+	 * sessions.
+	 *
+	 * @param datapath
+	 *            path to the tessdata directory
+	 * @param language
+	 *            language(s) as passed to Tesseract, e.g. "eng" or "eng+deu"
+	 * @return the fingerprint of the models
+	 */
+	public String getModelFingerprint(final String datapath, final String language) {
+		final Path dir = toPath(datapath);
+		final StringBuilder fingerprint = new StringBuilder();
+		for (final String part : language.split("\\+")) {
+			if (part.isEmpty()) {
+				continue;
+			}
+			fingerprint.append(part).append(':');
+			try {
+				if (dir == null) {
+					throw new IOException("Invalid tessdata path.");
+				}
+				final Path file = dir.resolve(part + EXTENSION);
+				fingerprint.append(Files.size(file)).append(',').append(Files.getLastModifiedTime(file).toMillis());
+			} catch (final IOException | InvalidPathException e) {
+				fingerprint.append("missing");
+			}
+			fingerprint.append('|');
+		}
+		return fingerprint.toString();
+	}
+
+	/* sorted names of the models in a directory, without checking each file */
+	private static List<String> list(final Path dir) {
+		final List<String> languages = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + EXTENSION)) {
+			for (final Path file : stream) {
+				final String name = file.getFileName().toString();
+				languages.add(name.substring(0, name.length() - EXTENSION.length()));
+			}
+		} catch (final IOException e) {
+			LOGGER.debug("Could not list tessdata directory \"" + dir + "\".", e);
+			return Collections.emptyList();
+		}
+		Collections.sort(languages);
+		return Collections.unmodifiableList(languages);
+	}
+
+	/**
+	 * Start watching a directory unless watched already.
+	 */
+	private synchronized void watch(final Path dir) {
+		if (m_watched.containsValue(dir)) {
+			return;
+		}
+		try {
+			if (m_watchService == null) {
+				m_watchService = FileSystems.getDefault().newWatchService();
+				final Thread watcher = new Thread(this::processEvents, "Tess4J traineddata watcher");
+				watcher.setDaemon(true);
+				watcher.start();
+			}
+			m_watched.put(dir.register(m_watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+		} catch (final IOException | UnsupportedOperationException e) {
+			LOGGER.debug("Could not watch tessdata directory \"" + dir + "\" for changes.", e);
+		}
+	}
+
+	/* drop the index of every directory which changed */
+	private void processEvents() {
+		while (true) {
+			final WatchKey key;
+			try {
+				key = m_watchService.take();
+			} catch (final InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			key.pollEvents();
+			synchronized (this) {
+				final Path dir = m_watched.get(key);
+				if (dir != null) {
+					m_indices.remove(dir);
+					m_generations.merge(dir, 1L, Long::sum);
+				}
+				if (!key.reset()) {
+					// the directory is gone, it is watched again once it is indexed
+					m_watched.remove(key);
+				}
+			}
+		}
+	}
+
+	private static Path toPath(final String datapath) {
+		if (datapath == null || datapath.isEmpty()) {
+			return null;
+		}
+		try {
+			return Paths.get(datapath).toAbsolutePath().normalize();
+		} catch (final InvalidPathException e) {
+			return null;
+		}
+	}
+
+	private static long lastModified(final Path dir) {
+		try {
+			return Files.getLastModifiedTime(dir).toMillis();
+		} catch (final IOException e) {
+			return -1;
+		}
+	}
+}
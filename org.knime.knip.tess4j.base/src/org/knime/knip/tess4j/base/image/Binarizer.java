@@ -0,0 +1,264 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binarizes grey byte planes before they are passed to Tesseract, instead of
+ * leaving it to Tesseract's own global Otsu thresholding.
+ *
+ * {@link #otsu} applies one threshold to the whole plane and is the fastest.
+ * {@link #sauvola} computes a threshold for every pixel from the mean m and
+ * standard deviation s of the window around it, t = m * (1 + k * (s / 128 -
+ * 1)), which copes with uneven lighting and stains. The window sums are read
+ * from an integral image which is built row by row: the sums of every column
+ * over the rows of the window are updated as the window moves down and their
+ * prefix sums yield the sum of any window of the row in constant time. Memory
+ * is thereby linear in the width of the plane instead of its area.
+ *
+ * The binary plane is written either packed with one bit per pixel, most
+ * significant bit first and rows padded to whole bytes, with set bits for
+ * white pixels as expected by TessBaseAPISetImage with 0 bytes per pixel, or
+ * as one byte per pixel with 0 for black and 255 for white. Dark text on
+ * light paper is assumed.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class Binarizer {
+
+	/** Dynamic range of the standard deviation in Sauvola's method */
+	public static final double SAUVOLA_RANGE = 128d;
+
+	private static final byte BLACK = 0;
+	private static final byte WHITE = (byte) 0xff;
+
+	private Binarizer() {
+		// utility class
+	}
+
+	/**
+	 * @param width
+	 *            width of the plane
+	 * @return number of bytes of a row of the packed binary plane
+	 */
+	public static int packedBytesPerLine(final int width) {
+		return (width + 7) / 8;
+	}
+
+	/**
+	 * Binarize a plane with Otsu's global threshold.
+	 *
+	 * @param grey
+	 *            grey values of the plane starting at index 0, row by row
+	 *            without padding
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param packed
+	 *            whether to write one bit instead of one byte per pixel
+	 * @param out
+	 *            buffer to write the binary plane to, starting at index 0
+	 */
+	public static void otsu(final ByteBuffer grey, final int width, final int height, final boolean packed,
+			final ByteBuffer out) {
+		final long[] histogram = new long[256];
+		final int size = width * height;
+		for (int i = 0; i < size; ++i) {
+			++histogram[grey.get(i) & 0xff];
+		}
+		final int threshold = otsuThreshold(histogram, size);
+
+		final byte[] line = new byte[width];
+		for (int y = 0; y < height; ++y) {
+			final int row = y * width;
+			for (int x = 0; x < width; ++x) {
+				line[x] = (grey.get(row + x) & 0xff) <= threshold ? BLACK : WHITE;
+			}
+			writeLine(line, y, packed, out);
+		}
+	}
+
+	/**
+	 * Binarize a plane with Sauvola's local thresholds.
+	 *
+	 * @param grey
+	 *            grey values of the plane starting at index 0, row by row
+	 *            without padding
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param window
+	 *            side length of the window around every pixel in pixels,
+	 *            about a third of an inch works well for body text
+	 * @param k
+	 *            sensitivity, larger values make the thresholds lower where
+	 *            the contrast is low
+	 * @param packed
+	 *            whether to write one bit instead of one byte per pixel
+	 * @param out
+	 *            buffer to write the binary plane to, starting at index 0
+	 */
+	public static void sauvola(final ByteBuffer grey, final int width, final int height, final int window,
+			final double k, final boolean packed, final ByteBuffer out) {
+		final int radius = window / 2;
+		final long[] columnSums = new long[width];
+		final long[] columnSquares = new long[width];
+		final long[] sums = new long[width + 1];
+		final long[] squares = new long[width + 1];
+		final byte[] line = new byte[width];
+
+		// rows top to bottom (inclusive) are summed up in the columns
+		int top = 0;
+		int bottom = -1;
+		for (int y = 0; y < height; ++y) {
+			for (final int last = Math.min(height - 1, y + radius); bottom < last;) {
+				addRow(grey, ++bottom * width, width, columnSums, columnSquares, 1);
+			}
+			for (final int first = Math.max(0, y - radius); top < first; ++top) {
+				addRow(grey, top * width, width, columnSums, columnSquares, -1);
+			}
+
+			for (int x = 0; x < width; ++x) {
+				sums[x + 1] = sums[x] + columnSums[x];
+				squares[x + 1] = squares[x] + columnSquares[x];
+			}
+
+			final int rows = bottom - top + 1;
+			final int row = y * width;
+			for (int x = 0; x < width; ++x) {
+				final int left = Math.max(0, x - radius);
+				final int right = Math.min(width, x + radius + 1);
+				final double count = (double) (right - left) * rows;
+				final double mean = (sums[right] - sums[left]) / count;
+				final double variance = (squares[right] - squares[left]) / count - mean * mean;
+				final double deviation = variance > 0 ? Math.sqrt(variance) : 0;
+				final double threshold = mean * (1 + k * (deviation / SAUVOLA_RANGE - 1));
+				line[x] = (grey.get(row + x) & 0xff) <= threshold ? BLACK : WHITE;
+			}
+			writeLine(line, y, packed, out);
+		}
+	}
+
+	/* add or remove (sign -1) a row of grey values to the column sums */
+	private static void addRow(final ByteBuffer grey, final int row, final int width, final long[] sums,
+			final long[] squares, final int sign) {
+		for (int x = 0; x < width; ++x) {
+			final int value = grey.get(row + x) & 0xff;
+			sums[x] += sign * value;
+			squares[x] += sign * value * value;
+		}
+	}
+
+	private static void writeLine(final byte[] line, final int y, final boolean packed, final ByteBuffer out) {
+		if (!packed) {
+			out.position(y * line.length);
+			out.put(line);
+			out.rewind();
+			return;
+		}
+
+		final int row = y * packedBytesPerLine(line.length);
+		for (int x = 0; x < line.length; x += 8) {
+			int bits = 0;
+			for (int bit = 0; bit < 8; ++bit) {
+				bits <<= 1;
+				if (x + bit < line.length && line[x + bit] == WHITE) {
+					bits |= 1;
+				}
+			}
+			out.put(row + x / 8, (byte) bits);
+		}
+	}
+
+	/**
+	 * Otsu's threshold of a histogram of grey values: values up to the
+	 * threshold are dark, the others light.
+	 *
+	 * @param histogram
+	 *            number of pixels per grey value
+	 * @param total
+	 *            number of pixels in the histogram
+	 * @return the threshold
+	 */
+	static int otsuThreshold(final long[] histogram, final long total) {
+		double sum = 0;
+		for (int i = 0; i < 256; ++i) {
+			sum += i * (double) histogram[i];
+		}
+
+		double sumBackground = 0;
+		long weightBackground = 0;
+		double bestVariance = -1;
+		int threshold = 127;
+		for (int t = 0; t < 256; ++t) {
+			weightBackground += histogram[t];
+			if (weightBackground == 0) {
+				continue;
+			}
+			final long weightForeground = total - weightBackground;
+			if (weightForeground == 0) {
+				break;
+			}
+
+			sumBackground += t * (double) histogram[t];
+			final double meanBackground = sumBackground / weightBackground;
+			final double meanForeground = (sum - sumBackground) / weightForeground;
+			final double diff = meanBackground - meanForeground;
+			final double variance = (double) weightBackground * weightForeground * diff * diff;
+			if (variance > bestVariance) {
+				bestVariance = variance;
+				threshold = t;
+			}
+		}
+		return threshold;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Detects blank pages on grey byte planes before they are passed to
+ * Tesseract.
+ *
+ * The plane is sampled on a coarse grid. The median grey value of the samples
+ * is taken as the background, i.e. the paper, and every sample which differs
+ * from it by more than {@link #INK_CONTRAST} counts as ink. This works
+ * for dark text on light paper as well as for inverted pages and is not
+ * affected by the uniform noise of scanned paper.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class BlankPageDetector {
+
+	/** Samples differing from the background by more grey levels are ink */
+	public static final int INK_CONTRAST = 64;
+
+	/* the larger side of the plane is sampled at about this many pixels */
+	private static final int SAMPLED_SIZE = 500;
+
+	private BlankPageDetector() {
+		// utility class
+	}
+
+	/**
+	 * Determine the share of ink on a plane.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @return share of sampled pixels which are ink, between 0 and 1
+	 */
+	public static double inkRatio(final byte[] plane, final int offset, final int width, final int height) {
+		final int step = Math.max(1, Math.max(width, height) / SAMPLED_SIZE);
+		final long[] histogram = new long[256];
+		for (int y = 0; y < height; y += step) {
+			final int row = offset + y * width;
+			for (int x = 0; x < width; x += step) {
+				++histogram[plane[row + x] & 0xff];
+			}
+		}
+		return inkRatio(histogram);
+	}
+
+	/**
+	 * Determine the share of ink on a plane in a buffer.
+	 *
+	 * @param plane
+	 *            grey values of the plane starting at index 0, row by row
+	 *            without padding
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @return share of sampled pixels which are ink, between 0 and 1
+	 */
+	public static double inkRatio(final ByteBuffer plane, final int width, final int height) {
+		final int step = Math.max(1, Math.max(width, height) / SAMPLED_SIZE);
+		final long[] histogram = new long[256];
+		for (int y = 0; y < height; y += step) {
+			final int row = y * width;
+			for (int x = 0; x < width; x += step) {
+				++histogram[plane.get(row + x) & 0xff];
+			}
+		}
+		return inkRatio(histogram);
+	}
+
+	private static double inkRatio(final long[] histogram) {
+		long total = 0;
+		for (final long count : histogram) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		// the median, since the noise of scanned paper spreads over many values
+		int background = 0;
+		long below = histogram[0];
+		while (2 * below < total) {
+			below += histogram[++background];
+		}
+
+		long ink = 0;
+		for (int i = 0; i < histogram.length; ++i) {
+			if (Math.abs(i - background) > INK_CONTRAST) {
+				ink += histogram[i];
+			}
+		}
+		return ink / (double) total;
+	}
+}
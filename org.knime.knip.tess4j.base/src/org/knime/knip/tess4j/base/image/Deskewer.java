@@ -0,0 +1,271 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Detects and corrects the skew of grey byte planes.
+ *
+ * The skew angle is found with projection profiles: dark pixels of a
+ * downsampled plane are projected onto the vertical axis at candidate angles
+ * and the angle resulting in the sharpest profile, i.e. the one at which text
+ * lines fall into the fewest rows, is chosen. Candidate angles are first
+ * searched coarsely over the full range and then refined around the best
+ * coarse angle.
+ *
+ * Angles are in degrees with the convention of jdeskew's ImageDeskew: a
+ * positive angle means text lines descend to the right.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class Deskewer {
+
+	/** Maximum skew angle which is detected, in degrees */
+	public static final double MAX_ANGLE = 20d;
+
+	private static final double COARSE_STEP = 0.5d;
+	private static final double FINE_STEP = 0.05d;
+
+	/* the larger side of the plane is downsampled to about this many pixels */
+	private static final int SAMPLED_SIZE = 1000;
+
+	private static final byte WHITE = (byte) 0xff;
+
+	private static final int FRACTION_BITS = 16;
+	private static final int ONE = 1 << FRACTION_BITS;
+
+	private Deskewer() {
+		// utility class
+	}
+
+	/**
+	 * Determine the skew angle of a plane.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @return the skew angle in degrees, 0 if the plane contains no structure
+	 */
+	public static double skewAngle(final byte[] plane, final int offset, final int width, final int height) {
+		final int step = Math.max(1, Math.max(width, height) / SAMPLED_SIZE);
+		final int sampledWidth = (width + step - 1) / step;
+		final int sampledHeight = (height + step - 1) / step;
+
+		final int threshold = otsuThreshold(plane, offset, width, height, step);
+
+		/* text is the minority of pixels, usually dark on a light background */
+		int dark = 0;
+		int total = 0;
+		for (int y = 0; y < height; y += step) {
+			final int row = offset + y * width;
+			for (int x = 0; x < width; x += step) {
+				if ((plane[row + x] & 0xff) <= threshold) {
+					++dark;
+				}
+				++total;
+			}
+		}
+		final boolean darkForeground = dark <= total - dark;
+		final int numPoints = darkForeground ? dark : total - dark;
+		if (numPoints == 0 || numPoints == total) {
+			return 0;
+		}
+
+		final int[] xs = new int[numPoints];
+		final int[] ys = new int[numPoints];
+		int n = 0;
+		for (int y = 0; y < height; y += step) {
+			final int row = offset + y * width;
+			for (int x = 0; x < width; x += step) {
+				if (((plane[row + x] & 0xff) <= threshold) == darkForeground) {
+					xs[n] = x / step;
+					ys[n] = y / step;
+					++n;
+				}
+			}
+		}
+
+		/* projected positions lie in [-sampledWidth, sampledHeight + sampledWidth] */
+		final long[] bins = new long[2 * sampledWidth + sampledHeight + 2];
+
+		double best = search(xs, ys, bins, sampledWidth, -MAX_ANGLE, MAX_ANGLE, COARSE_STEP);
+		best = search(xs, ys, bins, sampledWidth, best - COARSE_STEP, best + COARSE_STEP, FINE_STEP);
+		return best;
+	}
+
+	/**
+	 * Rotate a plane such that text lines with the given skew angle become
+	 * horizontal. The result has the size of the input, uncovered areas are
+	 * white. Grey values are interpolated bilinearly.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param skewAngle
+	 *            skew angle in degrees as returned by
+	 *            {@link #skewAngle(byte[], int, int, int)}
+	 * @param buffer
+	 *            buffer with a capacity of at least width * height bytes. Will
+	 *            be cleared and flipped after writing the rotated plane.
+	 */
+	public static void deskew(final byte[] plane, final int offset, final int width, final int height,
+			final double skewAngle, final ByteBuffer buffer) {
+		final double sin = Math.sin(Math.toRadians(skewAngle));
+		final double cos = Math.cos(Math.toRadians(skewAngle));
+		final double cx = (width - 1) / 2d;
+		final double cy = (height - 1) / 2d;
+
+		/* source positions in 16.16 fixed point, long since sides may exceed 32767 pixels */
+		final long sinF = Math.round(sin * ONE);
+		final long cosF = Math.round(cos * ONE);
+		final long maxX = (long) (width - 1) << FRACTION_BITS;
+		final long maxY = (long) (height - 1) << FRACTION_BITS;
+
+		buffer.clear();
+		final byte[] row = new byte[width];
+		for (int y = 0; y < height; ++y) {
+			final double dy = y - cy;
+
+			/* source position of x = 0, advanced by (cos, sin) per pixel */
+			long sx = Math.round((cx - cx * cos - dy * sin) * ONE);
+			long sy = Math.round((cy - cx * sin + dy * cos) * ONE);
+			for (int x = 0; x < width; ++x, sx += cosF, sy += sinF) {
+				if (sx < 0 || sy < 0 || sx > maxX || sy > maxY) {
+					row[x] = WHITE;
+					continue;
+				}
+
+				/* bilinear interpolation */
+				final int x0 = (int) (sx >> FRACTION_BITS);
+				final int y0 = (int) (sy >> FRACTION_BITS);
+				final int x1 = Math.min(x0 + 1, width - 1);
+				final int i0 = offset + y0 * width;
+				final int i1 = y0 + 1 < height ? i0 + width : i0;
+				final int fx = (int) (sx & (ONE - 1));
+				final int fy = (int) (sy & (ONE - 1));
+
+				final int top = ((plane[i0 + x0] & 0xff) * (ONE - fx) + (plane[i0 + x1] & 0xff) * fx)
+						>> FRACTION_BITS;
+				final int bottom = ((plane[i1 + x0] & 0xff) * (ONE - fx) + (plane[i1 + x1] & 0xff) * fx)
+						>> FRACTION_BITS;
+				row[x] = (byte) ((top * (ONE - fy) + bottom * fy + (ONE >> 1)) >> FRACTION_BITS);
+			}
+			buffer.put(row);
+		}
+		buffer.flip();
+	}
+
+	/* angle in [from, to] with the highest profile score */
+	private static double search(final int[] xs, final int[] ys, final long[] bins, final int sampledWidth,
+			final double from, final double to, final double step) {
+		double bestAngle = 0;
+		long bestScore = -1;
+
+		final int steps = (int) Math.round((to - from) / step);
+		for (int i = 0; i <= steps; ++i) {
+			final double angle = from + i * step;
+			final long score = score(xs, ys, bins, sampledWidth, angle);
+			/* prefer the smaller correction on ties */
+			if (score > bestScore || (score == bestScore && Math.abs(angle) < Math.abs(bestAngle))) {
+				bestScore = score;
+				bestAngle = angle;
+			}
+		}
+		return bestAngle;
+	}
+
+	/*
+	 * Sum of squared bin counts of the profile at an angle. Points on a text
+	 * line y = y0 + x * tan(angle) all project to y0 * cos(angle).
+	 */
+	private static long score(final int[] xs, final int[] ys, final long[] bins, final int sampledWidth,
+			final double angle) {
+		final double sin = Math.sin(Math.toRadians(angle));
+		final double cos = Math.cos(Math.toRadians(angle));
+
+		Arrays.fill(bins, 0);
+		for (int i = 0; i < xs.length; ++i) {
+			final int bin = (int) Math.round(ys[i] * cos - xs[i] * sin) + sampledWidth;
+			++bins[bin];
+		}
+
+		long score = 0;
+		for (final long count : bins) {
+			score += count * count;
+		}
+		return score;
+	}
+
+	/* Otsu's threshold of the sampled grey values */
+	static int otsuThreshold(final byte[] plane, final int offset, final int width, final int height,
+			final int step) {
+		final long[] histogram = new long[256];
+		long total = 0;
+		for (int y = 0; y < height; y += step) {
+			final int row = offset + y * width;
+			for (int x = 0; x < width; x += step) {
+				++histogram[plane[row + x] & 0xff];
+				++total;
+			}
+		}
+		return Binarizer.otsuThreshold(histogram, total);
+	}
+}
@@ -0,0 +1,353 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.nio.ByteBuffer;
+
+import net.imagej.ImgPlus;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.ByteType;
+import net.imglib2.type.numeric.integer.ShortType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+
+/**
+ * Converts images to the 8-bit grey byte planes Tesseract expects.
+ * 
+ * Planes are addressed by their index in the flattened order of all dimensions
+ * after X and Y, plane 0 being the first plane. A plane of an image is written straight into a page buffer from a
+ * {@link PageBufferPool} without going through AWT rendering. Integer types are
+ * scaled linearly from the range of the type, floating point types from the
+ * minimum and maximum of the plane. Images backed by primitive arrays
+ * ({@link ArrayImg}, {@link PlanarImg}) of byte, short, float or double types
+ * are converted directly on the backing array, everything else through a
+ * {@link RandomAccess}.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public final class GreyConverter {
+
+	/* pixels converted on the heap before each bulk put into the buffer */
+	private static final int ROW_CHUNK = 8192;
+
+	private GreyConverter() {
+		// utility class
+	}
+
+	/**
+	 * Get the number of planes of an image.
+	 * 
+	 * @param img
+	 *            the image
+	 * @return product of all dimensions after X and Y
+	 */
+	public static long numPlanes(final Img<?> img) {
+		long planes = 1;
+		for (int d = 2; d < img.numDimensions(); ++d) {
+			planes *= img.dimension(d);
+		}
+		return planes;
+	}
+
+	/**
+	 * Get the backing array of a plane of an 8-bit unsigned {@link ArrayImg}
+	 * or {@link PlanarImg}. The plane starts at
+	 * {@link #planeOffset(Img, long)} and is stored row by row without padding.
+	 * 
+	 * @param img
+	 *            the image, may be wrapped in an {@link ImgPlus}
+	 * @param plane
+	 *            index of the plane
+	 * @return the backing array or <code>null</code> if the image is of another
+	 *         type or storage
+	 */
+	public static byte[] unsignedBytePlane(final Img<?> img, final long plane) {
+		final Img<?> unwrapped = unwrap(img);
+		if (unwrapped.numDimensions() < 2 || !(unwrapped.firstElement() instanceof UnsignedByteType)) {
+			return null;
+		}
+
+		final Object storage = planeStorage(unwrapped, plane);
+		return storage instanceof byte[] ? (byte[]) storage : null;
+	}
+
+	/**
+	 * Get the index of the first pixel of a plane in the array returned by
+	 * {@link #unsignedBytePlane(Img, long)}.
+	 * 
+	 * @param img
+	 *            the image, may be wrapped in an {@link ImgPlus}
+	 * @param plane
+	 *            index of the plane
+	 * @return offset of the plane in its backing array
+	 */
+	public static int planeOffset(final Img<?> img, final long plane) {
+		final Img<?> unwrapped = unwrap(img);
+		if (unwrapped instanceof ArrayImg) {
+			// all planes share one array
+			return (int) (plane * unwrapped.dimension(0) * unwrapped.dimension(1));
+		}
+		return 0;
+	}
+
+	/**
+	 * Convert a plane of an image to 8-bit grey values.
+	 * 
+	 * @param img
+	 *            the image, may be wrapped in an {@link ImgPlus}. Needs at
+	 *            least two dimensions.
+	 * @param plane
+	 *            index of the plane
+	 * @param buffer
+	 *            buffer with a capacity of at least width * height bytes. Will
+	 *            be cleared and flipped after converting.
+	 */
+	public static <T extends RealType<T>> void convertPlane(final Img<T> img, final long plane,
+			final ByteBuffer buffer) {
+		final Img<?> unwrapped = unwrap(img);
+		final int width = (int) unwrapped.dimension(0);
+		final int height = (int) unwrapped.dimension(1);
+		final int size = width * height;
+		final Object type = unwrapped.firstElement();
+		final Object storage = planeStorage(unwrapped, plane);
+		final int start = planeOffset(unwrapped, plane);
+
+		buffer.clear();
+		if (storage instanceof byte[] && type instanceof UnsignedByteType) {
+			buffer.put((byte[]) storage, start, size);
+		} else if (storage instanceof byte[] && type instanceof ByteType) {
+			convertSignedBytes((byte[]) storage, start, size, buffer);
+		} else if (storage instanceof short[] && type instanceof UnsignedShortType) {
+			convertShorts((short[]) storage, start, size, 0, buffer);
+		} else if (storage instanceof short[] && type instanceof ShortType) {
+			convertShorts((short[]) storage, start, size, Short.MIN_VALUE, buffer);
+		} else if (storage instanceof float[]) {
+			convertFloats((float[]) storage, start, size, buffer);
+		} else if (storage instanceof double[]) {
+			convertDoubles((double[]) storage, start, size, buffer);
+		} else {
+			convertGeneric(img, plane, width, height, buffer);
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Copy a plane of an 8-bit image into a buffer.
+	 * 
+	 * @param plane
+	 *            plane as returned by {@link #unsignedBytePlane(Img, long)}
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param buffer
+	 *            buffer with a capacity of at least width * height bytes. Will
+	 *            be cleared and flipped after copying.
+	 */
+	public static void copyPlane(final byte[] plane, final int offset, final int width, final int height,
+			final ByteBuffer buffer) {
+		buffer.clear();
+		buffer.put(plane, offset, width * height);
+		buffer.flip();
+	}
+
+	/*
+	 * Backing array containing a plane, or null if not stored in primitive
+	 * arrays.
+	 */
+	static Object planeStorage(final Img<?> img, final long plane) {
+		if (img.numDimensions() < 2) {
+			return null;
+		}
+
+		final Object access;
+		if (img instanceof ArrayImg) {
+			access = ((ArrayImg<?, ?>) img).update(null);
+		} else if (img instanceof PlanarImg) {
+			access = ((PlanarImg<?, ?>) img).getPlane((int) plane);
+		} else {
+			return null;
+		}
+
+		if (access instanceof ArrayDataAccess) {
+			return ((ArrayDataAccess<?>) access).getCurrentStorageArray();
+		}
+		return null;
+	}
+
+	private static void convertSignedBytes(final byte[] plane, final int start, final int size,
+			final ByteBuffer buffer) {
+		final byte[] row = new byte[Math.min(size, ROW_CHUNK)];
+		for (int offset = 0; offset < size; offset += row.length) {
+			final int n = Math.min(row.length, size - offset);
+			for (int i = 0; i < n; ++i) {
+				// shift [-128, 127] to [0, 255]
+				row[i] = (byte) (plane[start + offset + i] ^ 0x80);
+			}
+			buffer.put(row, 0, n);
+		}
+	}
+
+	/* typeMin is subtracted before keeping the upper 8 of 16 bits */
+	private static void convertShorts(final short[] plane, final int start, final int size, final int typeMin,
+			final ByteBuffer buffer) {
+		final byte[] row = new byte[Math.min(size, ROW_CHUNK)];
+		for (int offset = 0; offset < size; offset += row.length) {
+			final int n = Math.min(row.length, size - offset);
+			for (int i = 0; i < n; ++i) {
+				final int v = typeMin == 0 ? plane[start + offset + i] & 0xffff : plane[start + offset + i] - typeMin;
+				row[i] = (byte) (v >>> 8);
+			}
+			buffer.put(row, 0, n);
+		}
+	}
+
+	private static void convertFloats(final float[] plane, final int start, final int size,
+			final ByteBuffer buffer) {
+		float min = Float.POSITIVE_INFINITY;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; ++i) {
+			final float v = plane[start + i];
+			if (v < min) {
+				min = v;
+			}
+			if (v > max) {
+				max = v;
+			}
+		}
+		final float scale = max > min ? 255f / (max - min) : 0f;
+
+		final byte[] row = new byte[Math.min(size, ROW_CHUNK)];
+		for (int offset = 0; offset < size; offset += row.length) {
+			final int n = Math.min(row.length, size - offset);
+			for (int i = 0; i < n; ++i) {
+				row[i] = (byte) (int) ((plane[start + offset + i] - min) * scale + 0.5f);
+			}
+			buffer.put(row, 0, n);
+		}
+	}
+
+	private static void convertDoubles(final double[] plane, final int start, final int size,
+			final ByteBuffer buffer) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; ++i) {
+			final double v = plane[start + i];
+			if (v < min) {
+				min = v;
+			}
+			if (v > max) {
+				max = v;
+			}
+		}
+		final double scale = max > min ? 255d / (max - min) : 0d;
+
+		final byte[] row = new byte[Math.min(size, ROW_CHUNK)];
+		for (int offset = 0; offset < size; offset += row.length) {
+			final int n = Math.min(row.length, size - offset);
+			for (int i = 0; i < n; ++i) {
+				row[i] = (byte) (int) ((plane[start + offset + i] - min) * scale + 0.5d);
+			}
+			buffer.put(row, 0, n);
+		}
+	}
+
+	/*
+	 * Fallback for all other types and storages, scales from the range of the
+	 * type like the KNIP renderers do.
+	 */
+	private static <T extends RealType<T>> void convertGeneric(final Img<T> img, final long plane, final int width,
+			final int height, final ByteBuffer buffer) {
+		final T type = img.firstElement();
+		final double min = type.getMinValue();
+		final double range = type.getMaxValue() - min;
+		final double scale = range > 0 ? 255d / range : 0d;
+
+		final RandomAccess<T> access = img.randomAccess();
+		final long[] pos = new long[img.numDimensions()];
+		long remaining = plane;
+		for (int d = 0; d < pos.length; ++d) {
+			if (d < 2) {
+				pos[d] = img.min(d);
+			} else {
+				pos[d] = img.min(d) + remaining % img.dimension(d);
+				remaining /= img.dimension(d);
+			}
+		}
+		access.setPosition(pos);
+
+		final byte[] row = new byte[width];
+		for (int y = 0; y < height; ++y) {
+			access.setPosition(img.min(0), 0);
+			access.setPosition(img.min(1) + y, 1);
+			for (int x = 0; x < width; ++x) {
+				final double v = (access.get().getRealDouble() - min) * scale + 0.5d;
+				row[x] = (byte) (int) Math.max(0d, Math.min(255d, v));
+				access.fwd(0);
+			}
+			buffer.put(row);
+		}
+	}
+
+	/* ImgPlus may wrap another ImgPlus */
+	static Img<?> unwrap(final Img<?> img) {
+		Img<?> unwrapped = img;
+		while (unwrapped instanceof ImgPlus) {
+			unwrapped = ((ImgPlus<?>) unwrapped).getImg();
+		}
+		return unwrapped;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.nio.ByteBuffer;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+import net.sourceforge.lept4j.Pix;
+
+/**
+ * Deskews grey planes natively with Leptonica.
+ *
+ * The plane is copied once into a Leptonica Pix, which is then deskewed and
+ * can be handed to Tesseract via TessBaseAPISetImage2 without any further
+ * copies on the Java side.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class LeptonicaDeskewer {
+
+	/* let Leptonica choose its default reduction for the skew search */
+	private static final int DEFAULT_REDUCTION = 0;
+
+	private LeptonicaDeskewer() {
+		// utility class
+	}
+
+	/**
+	 * Create a deskewed 8-bit Pix from a grey plane.
+	 *
+	 * @param plane
+	 *            grey values of the plane from position to limit, row by row
+	 *            without padding
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @return the deskewed page, which needs to be freed via
+	 *         {@link #destroy(Pix)}
+	 * @throws IllegalStateException
+	 *             if Leptonica failed to create or deskew the image
+	 */
+	public static Pix deskew(final ByteBuffer plane, final int width, final int height) {
+		final Pointer pix = LeptonicaLibrary.pixCreate(width, height, 8);
+		if (pix == null) {
+			throw new IllegalStateException("Leptonica could not allocate a " + width + "x" + height + " image.");
+		}
+
+		try {
+			/* rows of a Pix are padded to 32-bit words */
+			final int bytesPerLine = LeptonicaLibrary.pixGetWpl(pix) * 4;
+			final ByteBuffer data = LeptonicaLibrary.pixGetData(pix).getByteBuffer(0, (long) bytesPerLine * height);
+
+			final ByteBuffer src = plane.duplicate();
+			final int start = src.position();
+			for (int y = 0; y < height; ++y) {
+				src.limit(start + (y + 1) * width).position(start + y * width);
+				data.position(y * bytesPerLine);
+				data.put(src);
+			}
+
+			/* Leptonica stores the bytes of each word in big-endian order */
+			LeptonicaLibrary.pixEndianByteSwap(pix);
+
+			final Pointer deskewed = LeptonicaLibrary.pixDeskew(pix, DEFAULT_REDUCTION);
+			if (deskewed == null) {
+				throw new IllegalStateException("Leptonica could not deskew the image.");
+			}
+
+			final Pix result = new Pix(deskewed);
+			result.read();
+			return result;
+		} finally {
+			LeptonicaLibrary.pixDestroy(new PointerByReference(pix));
+		}
+	}
+
+	/**
+	 * Free a Pix returned by {@link #deskew(ByteBuffer, int, int)}.
+	 *
+	 * @param pix
+	 *            the Pix to free
+	 */
+	public static void destroy(final Pix pix) {
+		LeptonicaLibrary.pixDestroy(new PointerByReference(pix.getPointer()));
+	}
+}
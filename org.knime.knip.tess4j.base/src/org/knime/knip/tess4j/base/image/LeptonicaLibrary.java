@@ -0,0 +1,98 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * Direct JNA mapping of the few Leptonica functions used for native
+ * preprocessing.
+ *
+ * lept4j's own mapping looks for a library name which differs from the one
+ * shipped with the Tesseract binary fragments, so the library loaded by the
+ * bundle activator is registered here instead. Pix structures are passed as
+ * plain pointers, so that JNA never writes a stale Java copy of the structure
+ * back to native memory.
+ *
+ * @author KNIME Image Processing contributors
+ */
+final class LeptonicaLibrary {
+
+	static {
+		/* same names as in Tess4JNodeActivator */
+		final String name;
+		if (Platform.isWindows()) {
+			name = "liblept-4";
+		} else if (Platform.isMac()) {
+			name = "lept.4";
+		} else {
+			name = "lept";
+		}
+		Native.register(LeptonicaLibrary.class, name);
+	}
+
+	private LeptonicaLibrary() {
+		// native methods only
+	}
+
+	static native Pointer pixCreate(int width, int height, int depth);
+
+	static native void pixDestroy(PointerByReference pix);
+
+	static native int pixGetWpl(Pointer pix);
+
+	static native Pointer pixGetData(Pointer pix);
+
+	static native int pixEndianByteSwap(Pointer pix);
+
+	static native Pointer pixDeskew(Pointer pix, int reduction);
+}
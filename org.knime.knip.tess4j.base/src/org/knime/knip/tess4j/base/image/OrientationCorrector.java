@@ -0,0 +1,366 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Detects pages which are rotated by a multiple of 90 degrees and rotates them
+ * upright.
+ *
+ * The orientation is detected on a downsampled copy of the plane in two steps.
+ * First, projection profiles of the dark pixels onto both axes tell whether
+ * text lines run horizontally or vertically: across text lines the profile
+ * alternates sharply between lines and the gaps between them, along text lines
+ * it is smooth. Both profiles are sheared by small angles and the sharpest one
+ * is kept, so that the lines of a slightly skewed page do not blur into each
+ * other. Second, the profile across the lines tells which side of the lines
+ * is up: every line has a core of the height of lower case letters with most
+ * of the ink, and in Latin script ascenders and capitals above the core carry
+ * more ink than descenders below it. This does not hold for other scripts, e.g.
+ * Greek or Cyrillic, so their pages are never turned upside down: pages with
+ * horizontal lines are left as they are and pages with vertical lines are
+ * assumed to be rotated clockwise.
+ *
+ * Orientations are the clockwise angle in degrees by which the text is rotated
+ * on the page: 0, 90, 180 or 270. A page is rotated upright by rotating it
+ * counter-clockwise by its orientation.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class OrientationCorrector {
+
+	/** Maximum skew of the text lines which is tolerated, in degrees */
+	public static final double MAX_SKEW = 5d;
+
+	private static final double SKEW_STEP = 0.5d;
+
+	/* the larger side of the plane is downsampled to about this many pixels */
+	private static final int SAMPLED_SIZE = 1000;
+
+	/* ratio between the sharpness of both profiles required to tell the direction of the lines */
+	private static final double MIN_SHARPNESS_RATIO = 1.5d;
+
+	/* ratio between ink on both sides of the cores required to tell up from down */
+	private static final double MIN_INK_RATIO = 1.2d;
+
+	/* entries of a text line at this fraction of its peak belong to its core */
+	private static final double CORE_FRACTION = 0.5d;
+
+	/* Tesseract languages written in Latin script, including Fraktur */
+	private static final Set<String> LATIN_LANGUAGES = new HashSet<>(Arrays.asList("afr", "aze", "bos", "cat",
+			"ceb", "ces", "cym", "dan", "dan-frak", "deu", "deu-frak", "eng", "enm", "epo", "est", "eus", "fil",
+			"fin", "fra", "frk", "frm", "gle", "glg", "hat", "hrv", "hun", "ind", "isl", "ita", "ita_old", "jav",
+			"lat", "lav", "lit", "ltz", "mlt", "msa", "nld", "nor", "oci", "pol", "por", "que", "ron", "slk",
+			"slk-frak", "slv", "spa", "spa_old", "sqi", "swa", "swe", "tgl", "ton", "tur", "uzb", "vie", "yor"));
+
+	private OrientationCorrector() {
+		// utility class
+	}
+
+	/**
+	 * Check whether all given languages are written in Latin script, which
+	 * is required to tell upright from upside down text.
+	 *
+	 * @param language
+	 *            language(s) as passed to Tesseract, e.g. "eng" or "eng+deu"
+	 * @return whether all languages are known to be written in Latin script
+	 */
+	public static boolean isLatinScript(final String language) {
+		for (final String part : language.split("\\+")) {
+			if (!part.isEmpty() && !LATIN_LANGUAGES.contains(part)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Determine the orientation of a plane.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param latinScript
+	 *            whether the text is in Latin script, see
+	 *            {@link #isLatinScript(String)}. Otherwise only 0 or 90 are
+	 *            returned.
+	 * @return the orientation in degrees, 0 if the plane contains no text or
+	 *         its orientation is ambiguous
+	 */
+	public static int orientation(final byte[] plane, final int offset, final int width, final int height,
+			final boolean latinScript) {
+		final int step = Math.max(1, Math.max(width, height) / SAMPLED_SIZE);
+		final int sampledWidth = width / step;
+		final int sampledHeight = height / step;
+		if (sampledWidth < 2 || sampledHeight < 2) {
+			return 0;
+		}
+
+		// mean of each block of step x step pixels, which keeps thin strokes
+		final int[] sampled = new int[sampledWidth * sampledHeight];
+		final long[] histogram = new long[256];
+		for (int sy = 0; sy < sampledHeight; ++sy) {
+			for (int sx = 0; sx < sampledWidth; ++sx) {
+				int sum = 0;
+				for (int y = sy * step; y < (sy + 1) * step; ++y) {
+					final int row = offset + y * width;
+					for (int x = sx * step; x < (sx + 1) * step; ++x) {
+						sum += plane[row + x] & 0xff;
+					}
+				}
+				final int mean = sum / (step * step);
+				sampled[sy * sampledWidth + sx] = mean;
+				++histogram[mean];
+			}
+		}
+		final int threshold = Binarizer.otsuThreshold(histogram, sampled.length);
+
+		/* text is the minority of pixels, usually dark on a light background */
+		int dark = 0;
+		for (final int value : sampled) {
+			if (value <= threshold) {
+				++dark;
+			}
+		}
+		if (dark == 0 || dark == sampled.length) {
+			return 0;
+		}
+		final boolean darkForeground = dark <= sampled.length - dark;
+
+		final int[] xs = new int[darkForeground ? dark : sampled.length - dark];
+		final int[] ys = new int[xs.length];
+		int numPoints = 0;
+		for (int sy = 0; sy < sampledHeight; ++sy) {
+			for (int sx = 0; sx < sampledWidth; ++sx) {
+				if (sampled[sy * sampledWidth + sx] <= threshold == darkForeground) {
+					xs[numPoints] = sx;
+					ys[numPoints] = sy;
+					++numPoints;
+				}
+			}
+		}
+
+		final long[] rows = sharpestProfile(ys, xs, sampledHeight, sampledWidth);
+		final long[] columns = sharpestProfile(xs, ys, sampledWidth, sampledHeight);
+		final double rowSharpness = sharpness(rows);
+		final double columnSharpness = sharpness(columns);
+		if (columnSharpness > MIN_SHARPNESS_RATIO * rowSharpness) {
+			if (!latinScript) {
+				return 90;
+			}
+			// ascenders point right if the text is rotated clockwise
+			final int side = inkSide(columns);
+			return side == 0 ? 0 : side < 0 ? 90 : 270;
+		}
+		if (latinScript && rowSharpness > MIN_SHARPNESS_RATIO * columnSharpness) {
+			return inkSide(rows) < 0 ? 180 : 0;
+		}
+		return 0;
+	}
+
+	/**
+	 * Rotate a plane upright, i.e. counter-clockwise by its orientation.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param orientation
+	 *            orientation of the plane, see {@link #orientation}
+	 * @param out
+	 *            array to write the rotated plane to, starting at index 0. Its
+	 *            width and height are swapped for orientations of 90 and 270.
+	 */
+	public static void rotate(final byte[] plane, final int offset, final int width, final int height,
+			final int orientation, final byte[] out) {
+		switch (orientation) {
+		case 90:
+			// (x, y) -> (y, width - 1 - x), rows of out are columns of plane
+			for (int x = 0; x < width; ++x) {
+				final int row = (width - 1 - x) * height;
+				for (int y = 0; y < height; ++y) {
+					out[row + y] = plane[offset + y * width + x];
+				}
+			}
+			break;
+		case 180:
+			for (int y = 0; y < height; ++y) {
+				final int row = offset + y * width;
+				final int outRow = (height - 1 - y) * width + width - 1;
+				for (int x = 0; x < width; ++x) {
+					out[outRow - x] = plane[row + x];
+				}
+			}
+			break;
+		case 270:
+			// (x, y) -> (height - 1 - y, x)
+			for (int x = 0; x < width; ++x) {
+				final int row = x * height + height - 1;
+				for (int y = 0; y < height; ++y) {
+					out[row - y] = plane[offset + y * width + x];
+				}
+			}
+			break;
+		default:
+			System.arraycopy(plane, offset, out, 0, width * height);
+		}
+	}
+
+	/**
+	 * Project points onto an axis, sheared along the other axis by every
+	 * angle up to {@link #MAX_SKEW}, and keep the sharpest profile.
+	 *
+	 * @param across
+	 *            coordinates of the points on the axis to project onto
+	 * @param along
+	 *            coordinates of the points on the other axis
+	 * @param length
+	 *            length of the axis to project onto
+	 * @param otherLength
+	 *            length of the other axis
+	 * @return the sharpest profile, padded for the shear at both ends
+	 */
+	private static long[] sharpestProfile(final int[] across, final int[] along, final int length,
+			final int otherLength) {
+		final int padding = (int) Math.ceil(otherLength * Math.tan(Math.toRadians(MAX_SKEW)));
+		long[] best = null;
+		double bestSharpness = -1;
+		for (double angle = -MAX_SKEW; angle <= MAX_SKEW; angle += SKEW_STEP) {
+			final double shear = Math.tan(Math.toRadians(angle));
+			final long[] profile = new long[length + 2 * padding];
+			for (int i = 0; i < across.length; ++i) {
+				++profile[padding + (int) Math.round(across[i] + along[i] * shear)];
+			}
+			final double sharpness = sharpness(profile);
+			if (sharpness > bestSharpness) {
+				bestSharpness = sharpness;
+				best = profile;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Sum of the squared differences between neighbours of a profile relative
+	 * to the sum of its squared values, independent of its length and scale.
+	 */
+	private static double sharpness(final long[] profile) {
+		double differences = 0;
+		double squares = 0;
+		for (int i = 0; i < profile.length; ++i) {
+			squares += (double) profile[i] * profile[i];
+			if (i > 0) {
+				final double diff = profile[i] - profile[i - 1];
+				differences += diff * diff;
+			}
+		}
+		return squares == 0 ? 0 : differences / squares;
+	}
+
+	/**
+	 * Compare the ink before and after the cores of the text lines in a
+	 * profile across the lines. Lines are runs of non-empty entries.
+	 *
+	 * @return 1 if there is more ink before the cores, -1 if after, 0 if
+	 *         their ratio is below {@link #MIN_INK_RATIO}
+	 */
+	private static int inkSide(final long[] profile) {
+		long before = 0;
+		long after = 0;
+		int start = 0;
+		while (start < profile.length) {
+			if (profile[start] == 0) {
+				++start;
+				continue;
+			}
+			int end = start;
+			long peak = 0;
+			while (end < profile.length && profile[end] > 0) {
+				peak = Math.max(peak, profile[end]);
+				++end;
+			}
+
+			int coreStart = start;
+			while (profile[coreStart] < CORE_FRACTION * peak) {
+				++coreStart;
+			}
+			int coreEnd = end - 1;
+			while (profile[coreEnd] < CORE_FRACTION * peak) {
+				--coreEnd;
+			}
+			for (int i = start; i < coreStart; ++i) {
+				before += profile[i];
+			}
+			for (int i = coreEnd + 1; i < end; ++i) {
+				after += profile[i];
+			}
+			start = end;
+		}
+
+		if (before >= MIN_INK_RATIO * after && before > 0) {
+			return 1;
+		}
+		if (after >= MIN_INK_RATIO * before && after > 0) {
+			return -1;
+		}
+		return 0;
+	}
+}
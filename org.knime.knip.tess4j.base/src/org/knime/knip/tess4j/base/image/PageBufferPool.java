@@ -0,0 +1,160 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Pool of direct {@link ByteBuffer}s holding pages for native use.
+ * 
+ * Allocating a direct buffer per page churns native memory and puts pressure on
+ * the cleaner for large batches of big scans. A pool is owned by a single
+ * worker and reuses its buffers across rows. Newly allocated buffers are sized
+ * for the largest page seen so far, so that a pool settles after the first few
+ * pages. Released buffers are only kept while the retained bytes stay within
+ * the configured cap.
+ * 
+ * Not thread-safe.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public class PageBufferPool {
+
+	private final long m_cap;
+	private final PageBufferStatistics m_statistics;
+
+	private final List<ByteBuffer> m_free = new ArrayList<>();
+	private long m_freeBytes = 0;
+	private int m_largestRequest = 0;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param cap
+	 *            maximum number of bytes to retain for reuse
+	 * @param statistics
+	 *            statistics to record memory usage to
+	 */
+	public PageBufferPool(final long cap, final PageBufferStatistics statistics) {
+		m_cap = cap;
+		m_statistics = statistics;
+	}
+
+	/**
+	 * Get a buffer with at least the given capacity. The buffer is cleared, its
+	 * contents are undefined.
+	 * 
+	 * @param capacity
+	 *            minimum capacity in bytes
+	 * @return the buffer, to be returned via {@link #release(ByteBuffer)}
+	 */
+	public ByteBuffer acquire(final int capacity) {
+		m_largestRequest = Math.max(m_largestRequest, capacity);
+
+		/* smallest free buffer that fits */
+		ByteBuffer best = null;
+		for (final ByteBuffer buffer : m_free) {
+			if (buffer.capacity() >= capacity && (best == null || buffer.capacity() < best.capacity())) {
+				best = buffer;
+			}
+		}
+
+		if (best != null) {
+			m_free.remove(best);
+			m_freeBytes -= best.capacity();
+			m_statistics.reused();
+
+			best.clear();
+			return best;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(m_largestRequest);
+		m_statistics.allocated(buffer.capacity());
+
+		/* none of the free buffers fit, make room for the new one within the cap */
+		for (final Iterator<ByteBuffer> itr = m_free.iterator(); itr.hasNext()
+				&& m_freeBytes + buffer.capacity() > m_cap;) {
+			final ByteBuffer free = itr.next();
+			itr.remove();
+			m_freeBytes -= free.capacity();
+			m_statistics.freed(free.capacity());
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer obtained via {@link #acquire(int)}.
+	 * 
+	 * @param buffer
+	 *            the buffer to return
+	 */
+	public void release(final ByteBuffer buffer) {
+		if (m_freeBytes + buffer.capacity() <= m_cap) {
+			m_free.add(buffer);
+			m_freeBytes += buffer.capacity();
+		} else {
+			m_statistics.freed(buffer.capacity());
+		}
+	}
+
+	/**
+	 * Drop all retained buffers.
+	 */
+	public void clear() {
+		for (final ByteBuffer buffer : m_free) {
+			m_statistics.freed(buffer.capacity());
+		}
+		m_free.clear();
+		m_freeBytes = 0;
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap memory usage of all {@link PageBufferPool}s of one execution.
+ * 
+ * Thread-safe, shared between the pools of all workers.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public class PageBufferStatistics {
+
+	private final AtomicLong m_current = new AtomicLong();
+	private final AtomicLong m_peak = new AtomicLong();
+	private final AtomicLong m_allocations = new AtomicLong();
+	private final AtomicLong m_reuses = new AtomicLong();
+
+	/**
+	 * Record the allocation of a buffer.
+	 * 
+	 * @param bytes
+	 *            capacity of the buffer
+	 */
+	void allocated(final long bytes) {
+		m_allocations.incrementAndGet();
+		final long current = m_current.addAndGet(bytes);
+		m_peak.accumulateAndGet(current, Math::max);
+	}
+
+	/**
+	 * Record that a buffer is no longer held by a pool.
+	 * 
+	 * @param bytes
+	 *            capacity of the buffer
+	 */
+	void freed(final long bytes) {
+		m_current.addAndGet(-bytes);
+	}
+
+	/**
+	 * Record the reuse of a buffer.
+	 */
+	void reused() {
+		m_reuses.incrementAndGet();
+	}
+
+	/**
+	 * @return bytes currently held by the pools.
+	 */
+	public long getCurrentBytes() {
+		return m_current.get();
+	}
+
+	/**
+	 * @return maximum number of bytes held by the pools at the same time.
+	 */
+	public long getPeakBytes() {
+		return m_peak.get();
+	}
+
+	/**
+	 * @return number of buffers allocated.
+	 */
+	public long getAllocations() {
+		return m_allocations.get();
+	}
+
+	/**
+	 * @return number of times a buffer was reused instead of allocated.
+	 */
+	public long getReuses() {
+		return m_reuses.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("peak off-heap page buffers: %.1f MB, %d allocations, %d reuses",
+				getPeakBytes() / (1024.0 * 1024.0), getAllocations(), getReuses());
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.lang.reflect.Array;
+
+import net.imagej.ImgPlus;
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Computes 64-bit fingerprints of image planes, e.g. to recognize pages which
+ * have already been recognized.
+ * 
+ * Planes are addressed like in {@link GreyConverter}. Planes of images backed
+ * by primitive arrays ({@link ArrayImg}, {@link PlanarImg}) are hashed directly
+ * on the backing array, everything else through a {@link RandomAccess}. The
+ * fingerprint includes the size and pixel type of the plane, equal pixel
+ * values of different types result in different fingerprints.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+public final class PlaneHasher {
+
+	private static final long SEED = 0x2545F4914F6CDD1DL;
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private PlaneHasher() {
+		// utility class
+	}
+
+	/**
+	 * Compute the fingerprint of a plane of an image.
+	 * 
+	 * @param img
+	 *            the image, may be wrapped in an {@link ImgPlus}. Needs at
+	 *            least two dimensions.
+	 * @param plane
+	 *            index of the plane
+	 * @return the fingerprint
+	 */
+	public static <T extends RealType<T>> long hash(final Img<T> img, final long plane) {
+		final Img<?> unwrapped = GreyConverter.unwrap(img);
+		final int width = (int) unwrapped.dimension(0);
+		final int height = (int) unwrapped.dimension(1);
+		final int size = width * height;
+
+		long h = SEED;
+		h = mix(h, width);
+		h = mix(h, height);
+		h = mix(h, unwrapped.firstElement().getClass().getName().hashCode());
+
+		final Object storage = GreyConverter.planeStorage(unwrapped, plane);
+		final int start = GreyConverter.planeOffset(unwrapped, plane);
+		if (storage == null || !coversPlane(storage, start, size)) {
+			return finish(hashGeneric(img, plane, width, height, h));
+		}
+
+		if (storage instanceof byte[]) {
+			final byte[] a = (byte[]) storage;
+			for (int i = start; i < start + size; ++i) {
+				h = mix(h, a[i]);
+			}
+		} else if (storage instanceof short[]) {
+			final short[] a = (short[]) storage;
+			for (int i = start; i < start + size; ++i) {
+				h = mix(h, a[i]);
+			}
+		} else if (storage instanceof int[]) {
+			final int[] a = (int[]) storage;
+			for (int i = start; i < start + size; ++i) {
+				h = mix(h, a[i]);
+			}
+		} else if (storage instanceof long[]) {
+			final long[] a = (long[]) storage;
+			for (int i = start; i < start + size; ++i) {
+				h = mix(h, a[i]);
+			}
+		} else if (storage instanceof float[]) {
+			final float[] a = (float[]) storage;
+			for (int i = start; i < start + size; ++i) {
+				h = mix(h, Float.floatToRawIntBits(a[i]));
+			}
+		} else if (storage instanceof double[]) {
+			final double[] a = (double[]) storage;
+			for (int i = start; i < start + size; ++i) {
+				h = mix(h, Double.doubleToRawLongBits(a[i]));
+			}
+		} else {
+			h = hashGeneric(img, plane, width, height, h);
+		}
+		return finish(h);
+	}
+
+	/**
+	 * Combine a fingerprint with a string, e.g. to include settings which
+	 * influence the result computed from a plane.
+	 * 
+	 * @param hash
+	 *            the fingerprint
+	 * @param s
+	 *            the string
+	 * @return the combined fingerprint
+	 */
+	public static long combine(final long hash, final String s) {
+		long h = mix(hash, s.length());
+		for (int i = 0; i < s.length(); ++i) {
+			h = mix(h, s.charAt(i));
+		}
+		return finish(h);
+	}
+
+	/*
+	 * Whether the array holds one element per pixel of the plane, which is not
+	 * the case for types packing several pixels into one element.
+	 */
+	private static boolean coversPlane(final Object storage, final int start, final int size) {
+		final int length = Array.getLength(storage);
+		return length % size == 0 && start + size <= length;
+	}
+
+	private static <T extends RealType<T>> long hashGeneric(final Img<T> img, final long plane, final int width,
+			final int height, final long seed) {
+		long h = seed;
+
+		final RandomAccess<T> access = img.randomAccess();
+		final long[] pos = new long[img.numDimensions()];
+		long remaining = plane;
+		for (int d = 0; d < pos.length; ++d) {
+			if (d < 2) {
+				pos[d] = img.min(d);
+			} else {
+				pos[d] = img.min(d) + remaining % img.dimension(d);
+				remaining /= img.dimension(d);
+			}
+		}
+		access.setPosition(pos);
+
+		for (int y = 0; y < height; ++y) {
+			access.setPosition(img.min(0), 0);
+			access.setPosition(img.min(1) + y, 1);
+			for (int x = 0; x < width; ++x) {
+				h = mix(h, Double.doubleToRawLongBits(access.get().getRealDouble()));
+				access.fwd(0);
+			}
+		}
+		return h;
+	}
+
+	private static long mix(final long h, final long value) {
+		final long m = (h ^ value) * MULTIPLIER;
+		return m ^ (m >>> 29);
+	}
+
+	/* final avalanche of MurmurHash3 */
+	private static long finish(final long h) {
+		long f = h;
+		f ^= f >>> 33;
+		f *= 0xFF51AFD7ED558CCDL;
+		f ^= f >>> 33;
+		f *= 0xC4CEB9FE1A85EC53L;
+		f ^= f >>> 33;
+		return f;
+	}
+}
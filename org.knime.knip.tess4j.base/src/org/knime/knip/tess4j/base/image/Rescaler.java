@@ -0,0 +1,367 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.util.Arrays;
+
+import net.imagej.ImgPlus;
+import net.imagej.axis.CalibratedAxis;
+import net.imglib2.img.Img;
+
+/**
+ * Rescales grey byte planes to the resolution Tesseract works best at.
+ *
+ * The resolution of a plane is taken from the calibration of its
+ * {@link ImgPlus} if the spatial axes are calibrated in a unit of length.
+ * Otherwise it is estimated from the height of its text lines, which are
+ * found in the horizontal projection profile of dark pixels, assuming body
+ * text of {@value #TEXT_HEIGHT_POINTS} pt.
+ *
+ * Planes are shrunk by area averaging, i.e. every target pixel is the mean of
+ * the source pixels it covers, and enlarged by bilinear interpolation. Both
+ * work on fixed point weights precomputed per row and column.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class Rescaler {
+
+	/** Assumed height of text lines from ascender to descender, in points */
+	public static final double TEXT_HEIGHT_POINTS = 10d;
+
+	/** Scale factors are limited to this range */
+	public static final double MIN_SCALE = 0.125d;
+	/** Scale factors are limited to this range */
+	public static final double MAX_SCALE = 4d;
+
+	/* scale factors closer to 1 are not worth resampling */
+	private static final double MIN_SCALE_CHANGE = 0.1d;
+
+	/* the width of the plane is sampled at about this many columns */
+	private static final int SAMPLED_WIDTH = 1000;
+
+	/* runs of text rows lower than this are noise, e.g. rules */
+	private static final int MIN_LINE_HEIGHT = 4;
+
+	private static final int WEIGHT_BITS = 12;
+	private static final int ONE = 1 << WEIGHT_BITS;
+
+	private Rescaler() {
+		// utility class
+	}
+
+	/**
+	 * Determine the factor to rescale a plane by to reach the target
+	 * resolution.
+	 *
+	 * @param img
+	 *            the image, its calibration is used if it is an
+	 *            {@link ImgPlus} calibrated in a unit of length
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param targetDpi
+	 *            the target resolution in dots per inch
+	 * @return the scale factor, 1 if the resolution is unknown or close enough
+	 *         to the target
+	 */
+	public static double scaleFactor(final Img<?> img, final byte[] plane, final int offset, final int width,
+			final int height, final int targetDpi) {
+		double dpi = calibratedResolution(img);
+		if (dpi <= 0) {
+			dpi = estimateResolution(plane, offset, width, height);
+		}
+		if (dpi <= 0) {
+			return 1d;
+		}
+
+		final double scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, targetDpi / dpi));
+		return Math.abs(scale - 1d) < MIN_SCALE_CHANGE ? 1d : scale;
+	}
+
+	/**
+	 * Get the resolution of an image from its calibration.
+	 *
+	 * @param img
+	 *            the image
+	 * @return the resolution in dots per inch along the x axis,
+	 *         <code>-1</code> if the image is not calibrated in a unit of
+	 *         length
+	 */
+	public static double calibratedResolution(final Img<?> img) {
+		if (!(img instanceof ImgPlus)) {
+			return -1;
+		}
+
+		final CalibratedAxis axis = ((ImgPlus<?>) img).axis(0);
+		final String unit = axis.unit();
+		final double pixelSize = axis.averageScale(0, 1);
+		if (unit == null || pixelSize <= 0) {
+			return -1;
+		}
+
+		final double millimeters;
+		switch (unit.trim().toLowerCase()) {
+		case "mm":
+			millimeters = pixelSize;
+			break;
+		case "cm":
+			millimeters = pixelSize * 10;
+			break;
+		case "um":
+		case "µm":
+		case "micron":
+			millimeters = pixelSize / 1000;
+			break;
+		case "in":
+		case "inch":
+			millimeters = pixelSize * 25.4;
+			break;
+		default:
+			return -1;
+		}
+		return 25.4 / millimeters;
+	}
+
+	/**
+	 * Estimate the resolution of a plane from the median height of its text
+	 * lines.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @return the resolution in dots per inch, <code>-1</code> if no text
+	 *         lines were found
+	 */
+	public static double estimateResolution(final byte[] plane, final int offset, final int width,
+			final int height) {
+		final int step = Math.max(1, width / SAMPLED_WIDTH);
+		final int threshold = Deskewer.otsuThreshold(plane, offset, width, height, step);
+
+		/* text is the minority of pixels, usually dark on a light background */
+		final int[] profile = new int[height];
+		long dark = 0;
+		long total = 0;
+		for (int y = 0; y < height; ++y) {
+			final int row = offset + y * width;
+			for (int x = 0; x < width; x += step) {
+				if ((plane[row + x] & 0xff) <= threshold) {
+					++profile[y];
+				}
+			}
+			dark += profile[y];
+			total += (width + step - 1) / step;
+		}
+		if (dark > total - dark) {
+			for (int y = 0; y < height; ++y) {
+				profile[y] = (width + step - 1) / step - profile[y];
+			}
+		}
+
+		int max = 0;
+		for (final int count : profile) {
+			max = Math.max(max, count);
+		}
+		if (max == 0) {
+			return -1;
+		}
+
+		/* runs of rows with a noticeable share of text pixels are lines */
+		final int minCount = Math.max(1, max / 20);
+		final int[] lineHeights = new int[height / MIN_LINE_HEIGHT + 1];
+		int numLines = 0;
+		int run = 0;
+		for (int y = 0; y <= height; ++y) {
+			if (y < height && profile[y] >= minCount) {
+				++run;
+				continue;
+			}
+			if (run >= MIN_LINE_HEIGHT) {
+				lineHeights[numLines++] = run;
+			}
+			run = 0;
+		}
+		if (numLines == 0) {
+			return -1;
+		}
+
+		Arrays.sort(lineHeights, 0, numLines);
+		return lineHeights[numLines / 2] / (TEXT_HEIGHT_POINTS / 72d);
+	}
+
+	/**
+	 * Resample a plane to a new size.
+	 *
+	 * @param plane
+	 *            grey values of the plane, row by row without padding
+	 * @param offset
+	 *            index of the first pixel of the plane
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param target
+	 *            array to write the resampled plane to, starting at index 0
+	 * @param newWidth
+	 *            width of the resampled plane
+	 * @param newHeight
+	 *            height of the resampled plane
+	 */
+	public static void resample(final byte[] plane, final int offset, final int width, final int height,
+			final byte[] target, final int newWidth, final int newHeight) {
+		if (newWidth <= width && newHeight <= height) {
+			areaAverage(plane, offset, width, height, target, newWidth, newHeight);
+		} else {
+			bilinear(plane, offset, width, height, target, newWidth, newHeight);
+		}
+	}
+
+	private static void areaAverage(final byte[] plane, final int offset, final int width, final int height,
+			final byte[] target, final int newWidth, final int newHeight) {
+		final int[][] xWeights = areaWeights(width, newWidth);
+		final int[][] yWeights = areaWeights(height, newHeight);
+		final int[] row = new int[width];
+
+		for (int y = 0; y < newHeight; ++y) {
+			/* weighted sum of the source rows covered by the target row */
+			Arrays.fill(row, 0);
+			final int[] wy = yWeights[y];
+			for (int k = 1; k < wy.length; ++k) {
+				final int src = offset + (wy[0] + k - 1) * width;
+				final int weight = wy[k];
+				for (int x = 0; x < width; ++x) {
+					row[x] += (plane[src + x] & 0xff) * weight;
+				}
+			}
+
+			final int dst = y * newWidth;
+			for (int x = 0; x < newWidth; ++x) {
+				final int[] wx = xWeights[x];
+				long sum = 0;
+				for (int k = 1; k < wx.length; ++k) {
+					sum += (long) row[wx[0] + k - 1] * wx[k];
+				}
+				target[dst + x] = (byte) ((sum + (1L << (2 * WEIGHT_BITS - 1))) >> (2 * WEIGHT_BITS));
+			}
+		}
+	}
+
+	/**
+	 * For every target pixel, the index of the first source pixel it covers
+	 * followed by the weights of all covered source pixels, which sum up to
+	 * {@link #ONE}.
+	 */
+	private static int[][] areaWeights(final int size, final int newSize) {
+		final double scale = size / (double) newSize;
+		final int[][] weights = new int[newSize][];
+		for (int t = 0; t < newSize; ++t) {
+			final double start = t * scale;
+			final double end = Math.min(size, (t + 1) * scale);
+			final int first = (int) start;
+			final int last = Math.min(size - 1, (int) Math.ceil(end) - 1);
+
+			final int[] w = new int[last - first + 2];
+			w[0] = first;
+			int sum = 0;
+			int largest = 1;
+			for (int i = first; i <= last; ++i) {
+				final double coverage = Math.min(end, i + 1) - Math.max(start, i);
+				w[i - first + 1] = (int) Math.round(coverage / (end - start) * ONE);
+				sum += w[i - first + 1];
+				if (w[i - first + 1] > w[largest]) {
+					largest = i - first + 1;
+				}
+			}
+			// keep the mean of a uniform area exact despite rounding
+			w[largest] += ONE - sum;
+			weights[t] = w;
+		}
+		return weights;
+	}
+
+	private static void bilinear(final byte[] plane, final int offset, final int width, final int height,
+			final byte[] target, final int newWidth, final int newHeight) {
+		final int[] x0 = new int[newWidth];
+		final int[] fx = new int[newWidth];
+		for (int x = 0; x < newWidth; ++x) {
+			final double sx = Math.max(0, Math.min(width - 1, (x + 0.5d) * width / newWidth - 0.5d));
+			x0[x] = Math.min(width - 2, (int) sx);
+			fx[x] = (int) Math.round((sx - x0[x]) * ONE);
+		}
+
+		for (int y = 0; y < newHeight; ++y) {
+			final double sy = Math.max(0, Math.min(height - 1, (y + 0.5d) * height / newHeight - 0.5d));
+			final int y0 = Math.min(height - 2, (int) sy);
+			final int fy = (int) Math.round((sy - y0) * ONE);
+			final int top = offset + Math.max(0, y0) * width;
+			final int bottom = offset + Math.min(height - 1, y0 + 1) * width;
+
+			final int dst = y * newWidth;
+			for (int x = 0; x < newWidth; ++x) {
+				final int left = Math.max(0, x0[x]);
+				final int right = Math.min(width - 1, x0[x] + 1);
+				final long upper = (plane[top + left] & 0xff) * (long) (ONE - fx[x])
+						+ (plane[top + right] & 0xff) * (long) fx[x];
+				final long lower = (plane[bottom + left] & 0xff) * (long) (ONE - fx[x])
+						+ (plane[bottom + right] & 0xff) * (long) fx[x];
+				final long value = upper * (ONE - fy) + lower * fy;
+				target[dst + x] = (byte) ((value + (1L << (2 * WEIGHT_BITS - 1))) >> (2 * WEIGHT_BITS));
+			}
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataRow;
+import org.knime.knip.base.data.img.ImgPlusValue;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Collects rows with small images into batches which are recognized on a
+ * composite page each, see {@link Tess4JWorkerPool#recognizeBatch}.
+ *
+ * Up to as many batches as the pool has workers are recognized concurrently.
+ * Results are handed to the {@link RowConsumer} in the order the rows were
+ * added.
+ *
+ * Not thread-safe, rows need to be added by a single thread.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JBatcher<T extends RealType<T>> implements AutoCloseable {
+
+	/**
+	 * Receives the result of every row.
+	 */
+	interface RowConsumer {
+
+		/**
+		 * @param row
+		 *            the input row
+		 * @param result
+		 *            the recognition result, <code>null</code> if the image is
+		 *            missing
+		 * @throws InterruptedException
+		 *             if interrupted while passing the row on
+		 */
+		void accept(DataRow row, Tess4JPageResult result) throws InterruptedException;
+	}
+
+	/* rows of a batch and the future of its non-missing images */
+	private static final class Batch {
+		final List<DataRow> m_rows;
+		final Future<Tess4JPageResult[]> m_results;
+
+		Batch(final List<DataRow> rows, final Future<Tess4JPageResult[]> results) {
+			m_rows = rows;
+			m_results = results;
+		}
+	}
+
+	private final Tess4JWorkerPool<T> m_pool;
+	private final int m_colIdx;
+	private final int m_batchSize;
+	private final RowConsumer m_consumer;
+
+	private final Deque<Batch> m_pending = new ArrayDeque<>();
+
+	private List<DataRow> m_rows = new ArrayList<>();
+	private List<String> m_keys = new ArrayList<>();
+	private List<Img<T>> m_imgs = new ArrayList<>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 *            pool to recognize the batches with
+	 * @param colIdx
+	 *            index of the image column
+	 * @param batchSize
+	 *            number of rows per batch
+	 * @param consumer
+	 *            receives the result of every row
+	 */
+	public Tess4JBatcher(final Tess4JWorkerPool<T> pool, final int colIdx, final int batchSize,
+			final RowConsumer consumer) {
+		m_pool = pool;
+		m_colIdx = colIdx;
+		m_batchSize = batchSize;
+		m_consumer = consumer;
+	}
+
+	/**
+	 * Add a row to the current batch, submitting it if full. Blocks while as
+	 * many batches as the pool has workers are being recognized, passing
+	 * finished rows to the consumer.
+	 *
+	 * @param row
+	 *            the row
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a batch
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	@SuppressWarnings("unchecked")
+	public void add(final DataRow row) throws InterruptedException, IOException {
+		final DataCell cell = row.getCell(m_colIdx);
+		if (!cell.isMissing()) {
+			m_keys.add(row.getKey().getString());
+			m_imgs.add(((ImgPlusValue<T>) cell).getImgPlus());
+		}
+		m_rows.add(row);
+
+		if (m_rows.size() >= m_batchSize) {
+			submit();
+		}
+	}
+
+	/**
+	 * Recognize the remaining rows and wait for all batches.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a batch
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	public void finish() throws InterruptedException, IOException {
+		if (!m_rows.isEmpty()) {
+			submit();
+		}
+		while (!m_pending.isEmpty()) {
+			drain();
+		}
+	}
+
+	private void submit() throws InterruptedException, IOException {
+		while (m_pending.size() >= m_pool.size()) {
+			drain();
+		}
+		m_pending.add(new Batch(m_rows, m_pool.submitBatch(m_keys, m_imgs)));
+		m_rows = new ArrayList<>();
+		m_keys = new ArrayList<>();
+		m_imgs = new ArrayList<>();
+	}
+
+	/**
+	 * Wait for the oldest batch and pass its rows to the consumer.
+	 */
+	private void drain() throws InterruptedException, IOException {
+		final Batch batch = m_pending.poll();
+		final Tess4JPageResult[] results;
+		try {
+			results = batch.m_results.get();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+
+		int i = 0;
+		for (final DataRow row : batch.m_rows) {
+			m_consumer.accept(row, row.getCell(m_colIdx).isMissing() ? null : results[i++]);
+		}
+	}
+
+	/**
+	 * Cancel all batches which are still being recognized.
+	 */
+	@Override
+	public void close() {
+		for (final Batch batch : m_pending) {
+			batch.m_results.cancel(true);
+		}
+		m_pending.clear();
+	}
+}
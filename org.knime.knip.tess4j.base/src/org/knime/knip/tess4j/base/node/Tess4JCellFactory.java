@@ -0,0 +1,356 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.collection.CollectionCellFactory;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.container.AbstractCellFactory;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
+import org.knime.core.data.def.StringCell;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.knip.base.data.img.ImgPlusValue;
+import org.knime.knip.base.data.labeling.LabelingValue;
+
+import net.imagej.ImgPlus;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Cell factory computing the OCR result of the Tess4J node.
+ *
+ * Rows are processed concurrently by as many threads as the
+ * {@link Tess4JWorkerPool} has workers, the order of the results is preserved.
+ * If planes along an axis are recognized, the result is a list cell with one
+ * text per plane. If a labeling column is given, the bounding box of every
+ * label is recognized separately, resulting in a list of texts and a list of
+ * the corresponding labels. Otherwise the text column is optionally followed by
+ * the mean confidence of the page, the factor it was rescaled by, whether it
+ * is blank, the orientation it was rotated upright from and one column per
+ * further output format. If layout elements are requested, these
+ * are followed by list columns with the text, bounding box and confidence of
+ * every element, see {@link #LAYOUT_COLUMNS}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JCellFactory<T extends RealType<T>> extends AbstractCellFactory {
+
+	/** Names of the layout element columns following the text column */
+	public static final String[] LAYOUT_COLUMNS = new String[] { "Element text", "Element x", "Element y",
+			"Element width", "Element height", "Element confidence" };
+
+	/** Types of the {@link #LAYOUT_COLUMNS} */
+	public static final DataType[] LAYOUT_COLUMN_TYPES = new DataType[] {
+			ListCell.getCollectionType(StringCell.TYPE), ListCell.getCollectionType(IntCell.TYPE),
+			ListCell.getCollectionType(IntCell.TYPE), ListCell.getCollectionType(IntCell.TYPE),
+			ListCell.getCollectionType(IntCell.TYPE), ListCell.getCollectionType(DoubleCell.TYPE) };
+
+	private final int m_colIdx;
+	private final String m_planeAxis;
+	private final int m_regionColIdx;
+	private final boolean m_confidenceColumn;
+	private final boolean m_scaleColumn;
+	private final boolean m_blankColumn;
+	private final boolean m_orientationColumn;
+	private final Tess4JWorkerPool<T> m_pool;
+	private final Tess4JProgress m_progress;
+
+	/**
+	 * Constructor
+	 *
+	 * @param colSpecs
+	 *            specs of the result columns: the text column, followed by the
+	 *            region label column if regionColIdx is set or the output
+	 *            format and layout columns if requested
+	 * @param colIdx
+	 *            index of the image column
+	 * @param planeAxis
+	 *            label of the axis to recognize all planes along,
+	 *            <code>null</code> to recognize the first plane only
+	 * @param regionColIdx
+	 *            index of the labeling column defining the regions to
+	 *            recognize, <code>-1</code> to recognize the whole page
+	 * @param confidenceColumn
+	 *            whether the text column is followed by a column with the mean
+	 *            confidence of the page
+	 * @param scaleColumn
+	 *            whether the text column is followed by a column with the
+	 *            factor the page was rescaled by
+	 * @param blankColumn
+	 *            whether the text column is followed by a column flagging
+	 *            blank pages
+	 * @param orientationColumn
+	 *            whether the text column is followed by a column with the
+	 *            orientation of the page
+	 * @param pool
+	 *            pool providing the workers, may be <code>null</code> if the
+	 *            factory is only used to create the output spec
+	 */
+	public Tess4JCellFactory(final DataColumnSpec[] colSpecs, final int colIdx, final String planeAxis,
+			final int regionColIdx, final boolean confidenceColumn, final boolean scaleColumn,
+			final boolean blankColumn, final boolean orientationColumn, final Tess4JWorkerPool<T> pool) {
+		super(colSpecs);
+
+		m_colIdx = colIdx;
+		m_planeAxis = planeAxis;
+		m_regionColIdx = regionColIdx;
+		m_confidenceColumn = confidenceColumn;
+		m_scaleColumn = scaleColumn;
+		m_blankColumn = blankColumn;
+		m_orientationColumn = orientationColumn;
+		m_pool = pool;
+		m_progress = pool == null ? null : new Tess4JProgress(pool.getTimings());
+
+		if (pool != null && pool.size() > 1) {
+			/* keep a few rows queued per worker so that no worker idles */
+			setParallelProcessing(true, pool.size(), 4 * pool.size());
+		}
+	}
+
+	/**
+	 * Report the progress at most twice a second with the page throughput
+	 * instead of once per row.
+	 */
+	@Override
+	public void setProgress(final long curRowNr, final long rowCount, final RowKey lastKey,
+			final ExecutionMonitor exec) {
+		if (m_progress != null) {
+			m_progress.update(exec, curRowNr, rowCount);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public DataCell[] getCells(final DataRow row) {
+		final DataCell cell = row.getCell(m_colIdx);
+		if (m_regionColIdx >= 0) {
+			return getRegionCells(row.getKey().getString(), cell, row.getCell(m_regionColIdx));
+		}
+		if (cell.isMissing()) {
+			return createMissingCells(getColumnSpecs().length);
+		}
+
+		final ImgPlus<T> img = ((ImgPlusValue<T>) cell).getImgPlus();
+		final Tess4JPageResult[] results;
+		try {
+			results = m_pool.recognizeRow(row.getKey().getString(), img, Tess4JPlanes.select(img, m_planeAxis));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a Tesseract instance.", e);
+		} catch (final IOException e) {
+			throw new IllegalStateException("Could not record results for the next execution.", e);
+		}
+
+		if (m_planeAxis == null) {
+			return createResultCells(results[0], m_confidenceColumn, m_scaleColumn, m_blankColumn,
+					m_orientationColumn, getColumnSpecs().length);
+		}
+
+		final List<DataCell> cells = new ArrayList<>(results.length);
+		for (final Tess4JPageResult result : results) {
+			cells.add(result.isRejected() ? DataType.getMissingCell() : new StringCell(result.getText()));
+		}
+		return new DataCell[] { CollectionCellFactory.createListCell(cells) };
+	}
+
+	/* missing for blank pages and pages which were never checked */
+	private static DataCell createOrientationCell(final Tess4JPageResult result) {
+		return result.getOrientation() == Tess4JPageResult.UNKNOWN_ORIENTATION ? DataType.getMissingCell()
+				: new IntCell(result.getOrientation());
+	}
+
+	/**
+	 * Create the cells for the result of a single page: the text, optionally
+	 * followed by the mean confidence, the scale factor, the blank flag and
+	 * the orientation, one cell per output format and the
+	 * {@link #LAYOUT_COLUMNS} if the result contains layout elements. All
+	 * cells but the confidence, scale factor, blank flag and orientation are
+	 * missing if the page was rejected. The confidence of a blank page is
+	 * missing, as is the orientation of a page whose orientation was not
+	 * detected.
+	 *
+	 * @param result
+	 *            the recognition result
+	 * @param confidenceColumn
+	 *            whether to create a cell for the mean confidence
+	 * @param scaleColumn
+	 *            whether to create a cell for the scale factor
+	 * @param blankColumn
+	 *            whether to create a cell flagging blank pages
+	 * @param orientationColumn
+	 *            whether to create a cell for the orientation
+	 * @param numColumns
+	 *            total number of result cells
+	 * @return the result cells
+	 */
+	public static DataCell[] createResultCells(final Tess4JPageResult result, final boolean confidenceColumn,
+			final boolean scaleColumn, final boolean blankColumn, final boolean orientationColumn,
+			final int numColumns) {
+		if (result.isRejected()) {
+			final DataCell[] cells = createMissingCells(numColumns);
+			int i = 1;
+			if (confidenceColumn) {
+				cells[i++] = new IntCell(result.getConfidence());
+			}
+			if (scaleColumn) {
+				cells[i++] = new DoubleCell(result.getScale());
+			}
+			if (blankColumn) {
+				cells[i++] = BooleanCell.FALSE;
+			}
+			if (orientationColumn) {
+				cells[i] = createOrientationCell(result);
+			}
+			return cells;
+		}
+
+		final List<DataCell> cells = new ArrayList<>(numColumns);
+		cells.add(new StringCell(result.getText()));
+		if (confidenceColumn) {
+			cells.add(result.isBlank() ? DataType.getMissingCell() : new IntCell(result.getConfidence()));
+		}
+		if (scaleColumn) {
+			cells.add(new DoubleCell(result.getScale()));
+		}
+		if (blankColumn) {
+			cells.add(BooleanCell.get(result.isBlank()));
+		}
+		if (orientationColumn) {
+			cells.add(createOrientationCell(result));
+		}
+		for (final String format : result.getFormats()) {
+			cells.add(new StringCell(format));
+		}
+
+		final List<Tess4JLayoutElement> elements = result.getElements();
+		if (elements == null) {
+			return cells.toArray(new DataCell[cells.size()]);
+		}
+
+		final List<DataCell> texts = new ArrayList<>(elements.size());
+		final List<DataCell> xs = new ArrayList<>(elements.size());
+		final List<DataCell> ys = new ArrayList<>(elements.size());
+		final List<DataCell> widths = new ArrayList<>(elements.size());
+		final List<DataCell> heights = new ArrayList<>(elements.size());
+		final List<DataCell> confidences = new ArrayList<>(elements.size());
+		for (final Tess4JLayoutElement element : elements) {
+			final Rectangle bounds = element.getBounds();
+			texts.add(new StringCell(element.getText()));
+			xs.add(new IntCell(bounds.x));
+			ys.add(new IntCell(bounds.y));
+			widths.add(new IntCell(bounds.width));
+			heights.add(new IntCell(bounds.height));
+			confidences.add(new DoubleCell(element.getConfidence()));
+		}
+
+		cells.add(CollectionCellFactory.createListCell(texts));
+		cells.add(CollectionCellFactory.createListCell(xs));
+		cells.add(CollectionCellFactory.createListCell(ys));
+		cells.add(CollectionCellFactory.createListCell(widths));
+		cells.add(CollectionCellFactory.createListCell(heights));
+		cells.add(CollectionCellFactory.createListCell(confidences));
+		return cells.toArray(new DataCell[cells.size()]);
+	}
+
+	/**
+	 * @param count
+	 *            number of cells
+	 * @return an array of missing cells
+	 */
+	public static DataCell[] createMissingCells(final int count) {
+		final DataCell[] cells = new DataCell[count];
+		Arrays.fill(cells, DataType.getMissingCell());
+		return cells;
+	}
+
+	/**
+	 * Recognize the bounding box of every label separately.
+	 */
+	@SuppressWarnings("unchecked")
+	private DataCell[] getRegionCells(final String rowKey, final DataCell imgCell, final DataCell labelingCell) {
+		if (imgCell.isMissing() || labelingCell.isMissing()) {
+			return createMissingCells(2);
+		}
+
+		final ImgPlus<T> img = ((ImgPlusValue<T>) imgCell).getImgPlus();
+		final Map<String, Rectangle> boxes = Tess4JRegions.boundingBoxes(
+				((LabelingValue<?>) labelingCell).getLabeling(), (int) img.dimension(0), (int) img.dimension(1));
+
+		final String[] texts;
+		try {
+			texts = m_pool.recognizeRegions(rowKey, img, new ArrayList<>(boxes.values()));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a Tesseract instance.", e);
+		}
+
+		final List<DataCell> textCells = new ArrayList<>(texts.length);
+		for (final String text : texts) {
+			textCells.add(new StringCell(text));
+		}
+		final List<DataCell> labelCells = new ArrayList<>(boxes.size());
+		for (final String label : boxes.keySet()) {
+			labelCells.add(new StringCell(label));
+		}
+		return new DataCell[] { CollectionCellFactory.createListCell(textCells),
+				CollectionCellFactory.createListCell(labelCells) };
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.knime.core.node.KNIMEConstants;
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Results of the previous and the current execution of the Tess4J node per
+ * row, used to recognize only new or modified rows when the node is executed
+ * again with the same settings.
+ *
+ * Results are stored in a file with one record per row: the row key, a
+ * fingerprint of the image planes of the row and the results of these planes.
+ * Only an index of the previous file is kept in memory, results are read when
+ * a row is unchanged. Results of the current execution are appended to a new
+ * file, which becomes the previous file of the next execution once committed.
+ *
+ * Thread-safe.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JIncrementalResults implements AutoCloseable {
+
+	/** Name of the file in the node internals directory */
+	public static final String FILE_NAME = "incremental-results.bin";
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(Tess4JIncrementalResults.class);
+
+	/* bump when the file format changes, old files are then ignored */
+	private static final int FORMAT_VERSION = 4;
+
+	/* row key -> { fingerprint, offset of the record payload } in the previous file */
+	private final Map<String, long[]> m_previousIndex = new HashMap<>();
+	private RandomAccessFile m_previous = null;
+
+	private final File m_currentFile;
+	private final DataOutputStream m_current;
+	private boolean m_committed = false;
+
+	private final AtomicLong m_reused = new AtomicLong();
+
+	/**
+	 * Constructor. Opens the results of the previous execution if they were
+	 * computed with the same settings and starts a new file for the results of
+	 * the current execution.
+	 *
+	 * @param previousFile
+	 *            results of the previous execution, may be <code>null</code>
+	 * @param settingsFingerprint
+	 *            fingerprint of all settings influencing the results
+	 * @throws IOException
+	 *             if the file for the current results cannot be created
+	 */
+	public Tess4JIncrementalResults(final File previousFile, final String settingsFingerprint) throws IOException {
+		if (previousFile != null && previousFile.isFile()) {
+			try {
+				indexPrevious(previousFile, settingsFingerprint);
+			} catch (final IOException e) {
+				LOGGER.warn("Could not read results of the last execution, recognizing all rows: " + e.getMessage());
+				m_previousIndex.clear();
+			}
+		}
+
+		m_currentFile = createTempFile();
+		m_current = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(m_currentFile)));
+		m_current.writeInt(FORMAT_VERSION);
+		Tess4JPageResult.writeString(settingsFingerprint, m_current);
+	}
+
+	/**
+	 * @return a new temporary file for results, deleted when the JVM exits.
+	 * @throws IOException
+	 *             if the file cannot be created
+	 */
+	public static File createTempFile() throws IOException {
+		final File file = File.createTempFile("tess4j-incremental", ".bin",
+				new File(KNIMEConstants.getKNIMETempDir()));
+		file.deleteOnExit();
+		return file;
+	}
+
+	/*
+	 * Index the records of the previous results if they were computed with the
+	 * same settings.
+	 */
+	private void indexPrevious(final File file, final String settingsFingerprint) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != FORMAT_VERSION) {
+				return;
+			}
+			final byte[] fingerprint = readBytes(in);
+			if (!settingsFingerprint.equals(new String(fingerprint, StandardCharsets.UTF_8))) {
+				LOGGER.debug("Settings changed since the last execution, recognizing all rows.");
+				return;
+			}
+
+			long offset = 4 + 4 + fingerprint.length;
+			while (true) {
+				final byte[] rowKey;
+				try {
+					rowKey = readBytes(in);
+				} catch (final EOFException e) {
+					break;
+				}
+				final long imageFingerprint = in.readLong();
+				final int length = in.readInt();
+				offset += 4 + rowKey.length + 8 + 4;
+
+				m_previousIndex.put(new String(rowKey, StandardCharsets.UTF_8),
+						new long[] { imageFingerprint, offset });
+				if (in.skipBytes(length) != length) {
+					throw new EOFException("Truncated results of the last execution.");
+				}
+				offset += length;
+			}
+		}
+		m_previous = new RandomAccessFile(file, "r");
+	}
+
+	private static byte[] readBytes(final DataInputStream in) throws IOException {
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Get the results of a row from the previous execution.
+	 *
+	 * @param rowKey
+	 *            key of the row
+	 * @param fingerprint
+	 *            fingerprint of the image planes of the row
+	 * @return the results per plane or <code>null</code> if the row was not
+	 *         recognized in the previous execution or its image has changed
+	 */
+	public Tess4JPageResult[] getPrevious(final String rowKey, final long fingerprint) {
+		final long[] entry = m_previousIndex.get(rowKey);
+		if (entry == null || entry[0] != fingerprint) {
+			return null;
+		}
+
+		final byte[] payload;
+		try {
+			synchronized (m_previousIndex) {
+				m_previous.seek(entry[1] - 4);
+				payload = new byte[m_previous.readInt()];
+				m_previous.readFully(payload);
+			}
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+			final Tess4JPageResult[] results = new Tess4JPageResult[in.readInt()];
+			for (int i = 0; i < results.length; ++i) {
+				results[i] = Tess4JPageResult.read(in);
+			}
+			m_reused.incrementAndGet();
+			return results;
+		} catch (final IOException e) {
+			LOGGER.warn("Could not read result of row " + rowKey + " from the last execution: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Record the results of a row of the current execution.
+	 *
+	 * @param rowKey
+	 *            key of the row
+	 * @param fingerprint
+	 *            fingerprint of the image planes of the row
+	 * @param results
+	 *            results per plane
+	 * @throws IOException
+	 *             if writing the results fails
+	 */
+	public void record(final String rowKey, final long fingerprint, final Tess4JPageResult[] results)
+			throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream payload = new DataOutputStream(bytes);
+		payload.writeInt(results.length);
+		for (final Tess4JPageResult result : results) {
+			result.write(payload);
+		}
+		payload.flush();
+
+		synchronized (m_current) {
+			Tess4JPageResult.writeString(rowKey, m_current);
+			m_current.writeLong(fingerprint);
+			m_current.writeInt(bytes.size());
+			bytes.writeTo(m_current);
+		}
+	}
+
+	/**
+	 * @return number of rows whose results were reused from the previous
+	 *         execution.
+	 */
+	public long getReused() {
+		return m_reused.get();
+	}
+
+	/**
+	 * Finish writing the results of the current execution.
+	 *
+	 * @return file containing the results, to be passed to the next execution
+	 * @throws IOException
+	 *             if writing the results fails
+	 */
+	public File commit() throws IOException {
+		synchronized (m_current) {
+			m_current.close();
+			m_committed = true;
+		}
+		return m_currentFile;
+	}
+
+	/**
+	 * Close the results of the previous execution. Deletes the results of the
+	 * current execution unless they were committed. Closing again has no
+	 * effect.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (m_previous != null) {
+				m_previous.close();
+			}
+			synchronized (m_current) {
+				if (!m_committed) {
+					m_current.close();
+					m_currentFile.delete();
+				}
+			}
+		} catch (final IOException e) {
+			LOGGER.debug("Could not close incremental results: " + e.getMessage());
+		}
+	}
+}
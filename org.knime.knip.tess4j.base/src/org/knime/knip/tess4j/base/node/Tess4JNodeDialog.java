@@ -62,7 +62,6 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import javax.swing.BorderFactory;
@@ -79,15 +78,20 @@ import org.knime.core.node.InvalidSettingsException;
 import org.knime.core.node.NodeSettingsRO;
 import org.knime.core.node.NodeSettingsWO;
 import org.knime.core.node.NotConfigurableException;
+import org.knime.core.node.defaultnodesettings.DefaultNodeSettingsPane;
 import org.knime.core.node.defaultnodesettings.DialogComponent;
 import org.knime.core.node.defaultnodesettings.DialogComponentBoolean;
+import org.knime.core.node.defaultnodesettings.DialogComponentColumnNameSelection;
+import org.knime.core.node.defaultnodesettings.DialogComponentFileChooser;
+import org.knime.core.node.defaultnodesettings.DialogComponentNumber;
+import org.knime.core.node.defaultnodesettings.DialogComponentString;
 import org.knime.core.node.defaultnodesettings.DialogComponentStringSelection;
 import org.knime.core.util.Pair;
 import org.knime.knip.base.data.img.ImgPlusValue;
-import org.knime.knip.base.node.ValueToCellNodeDialog;
+import org.knime.knip.base.data.labeling.LabelingValue;
+import org.knime.knip.tess4j.base.engine.TraineddataRegistry;
 import org.knime.knip.tess4j.base.node.ui.TessConfigTable;
 
-import net.imglib2.type.numeric.RealType;
 import net.sourceforge.tess4j.ITesseract;
 
 /**
@@ -101,8 +105,7 @@ import net.sourceforge.tess4j.ITesseract;
  * @author <a href="mailto:michael.zinsmaier@googlemail.com">Michael
  *         Zinsmaier</a>
  */
-public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDialog<ImgPlusValue<T>>
-		implements ChangeListener {
+public class Tess4JNodeDialog extends DefaultNodeSettingsPane implements ChangeListener {
 
 	private DialogComponentStringSelection m_languageListComponent;
 	private DialogComponentAlternatePathChooser m_pathChooser;
@@ -118,11 +121,79 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 	 * Constructor
 	 */
 	public Tess4JNodeDialog() {
-		super(true);
+		super();
 
+		createColumnSelectionTab();
 		createOptionsTab();
 		createAdvancedConfigTab();
-		buildDialog();
+
+		updateEnabledStates();
+	}
+
+	/**
+	 * Create the default tab which contains image column selection and result
+	 * column settings.
+	 */
+	@SuppressWarnings("unchecked")
+	private void createColumnSelectionTab() {
+		setDefaultTabTitle("Column Selection");
+
+		createNewGroup("Image column");
+		addDialogComponent(
+				new DialogComponentColumnNameSelection(m_settings.columnModel(), "Column", 0, ImgPlusValue.class));
+		addDialogComponent(new DialogComponentColumnNameSelection(m_settings.regionColumnModel(), "Region labeling", 0,
+				false, true, LabelingValue.class));
+		closeCurrentGroup();
+
+		createNewGroup("Result column");
+		addDialogComponent(new DialogComponentStringSelection(m_settings.colCreationModeModel(),
+				"Column Creation Mode", Tess4JNodeSettings.COL_CREATION_MODES));
+		addDialogComponent(new DialogComponentString(m_settings.colSuffixModel(), "Column suffix"));
+		addDialogComponent(new DialogComponentStringSelection(m_settings.layoutLevelModel(), "Layout elements",
+				Tess4JNodeSettings.LAYOUT_LEVELS));
+		closeCurrentGroup();
+
+		createNewGroup("Additional output formats");
+		setHorizontalPlacement(true);
+		for (int i = 0; i < Tess4JNodeSettings.OUTPUT_FORMATS.length; ++i) {
+			addDialogComponent(new DialogComponentBoolean(m_settings.outputFormatModels()[i],
+					Tess4JNodeSettings.OUTPUT_FORMATS[i]));
+		}
+		setHorizontalPlacement(false);
+		closeCurrentGroup();
+
+		createNewGroup("Confidence");
+		addDialogComponent(new DialogComponentBoolean(m_settings.outputConfidenceModel(), "Output mean confidence"));
+		addDialogComponent(new DialogComponentNumber(m_settings.minConfidenceModel(),
+				"Reject pages below confidence (0 = off)", 5));
+		closeCurrentGroup();
+
+		createNewGroup("Image planes");
+		addDialogComponent(new DialogComponentStringSelection(m_settings.planeModeModel(), "Planes",
+				Tess4JNodeSettings.PLANE_MODES));
+		addDialogComponent(new DialogComponentStringSelection(m_settings.planeAxisModel(), "Along axis",
+				Tess4JNodeSettings.PLANE_AXES));
+		closeCurrentGroup();
+
+		m_settings.planeModeModel().addChangeListener(this);
+	}
+
+	/**
+	 * Enable the settings which depend on other settings only if those are
+	 * selected: the plane axis if more than the first plane is recognized, the
+	 * deskew backend, blank page ink, Sauvola parameters and result cache
+	 * location and size if the respective option is used.
+	 */
+	private void updateEnabledStates() {
+		m_settings.planeAxisModel()
+				.setEnabled(!m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[0]));
+		m_settings.deskewBackendModel().setEnabled(m_settings.useDeskew());
+		m_settings.blankPageInkModel().setEnabled(m_settings.skipBlankPages());
+		final boolean sauvola = m_settings.getBinarization().equals(Tess4JNodeSettings.BINARIZATIONS[2]);
+		m_settings.sauvolaWindowModel().setEnabled(sauvola);
+		m_settings.sauvolaKModel().setEnabled(sauvola);
+		m_settings.resultCacheDirectoryModel().setEnabled(m_settings.useResultCache());
+		m_settings.resultCacheSizeModel().setEnabled(m_settings.useResultCache());
 	}
 
 	/**
@@ -140,10 +211,52 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 
 		final DialogComponentBoolean deskewComp = new DialogComponentBoolean(m_settings.deskewModel(),
 				"Deskew input images");
+		final DialogComponentStringSelection deskewBackendComp = new DialogComponentStringSelection(
+				m_settings.deskewBackendModel(), "using", Tess4JNodeSettings.DESKEW_BACKENDS);
+		final DialogComponentNumber targetResolutionComp = new DialogComponentNumber(
+				m_settings.targetResolutionModel(), "Rescale to dpi (0 = off)", 50);
+		final DialogComponentBoolean skipBlankComp = new DialogComponentBoolean(m_settings.skipBlankPagesModel(),
+				"Skip blank pages");
+		final DialogComponentNumber blankInkComp = new DialogComponentNumber(m_settings.blankPageInkModel(),
+				"with at most % ink", 0.05);
+		final DialogComponentBoolean orientationComp = new DialogComponentBoolean(
+				m_settings.detectOrientationModel(), "Rotate pages upright");
+		final DialogComponentStringSelection binarizationComp = new DialogComponentStringSelection(
+				m_settings.binarizationModel(), "Binarize with", Tess4JNodeSettings.BINARIZATIONS);
+		final DialogComponentNumber sauvolaWindowComp = new DialogComponentNumber(m_settings.sauvolaWindowModel(),
+				"window (px)", 10);
+		final DialogComponentNumber sauvolaKComp = new DialogComponentNumber(m_settings.sauvolaKModel(), "k", 0.01);
 		final DialogComponentStringIndexSelection pageSegComp = new DialogComponentStringIndexSelection(
 				m_settings.pageSegModeModel(), "Page Segmentation Mode", ITesseract.PageSegMode.m_valueNames);
 		final DialogComponentStringIndexSelection ocrModeComp = new DialogComponentStringIndexSelection(
 				m_settings.ocrEngineModeModel(), "OCR Engine Mode", ITesseract.OcrEngineMode.m_valueNames);
+		final DialogComponentString candidatesComp = new DialogComponentString(
+				m_settings.languageCandidatesModel(), "Detect language per page among (e.g. eng+deu)", false, 20);
+
+		final JPanel executionPane = new JPanel();
+		executionPane.setBorder(BorderFactory.createTitledBorder("Execution"));
+
+		final DialogComponentNumber numWorkersComp = new DialogComponentNumber(m_settings.numWorkersModel(),
+				"Parallel OCR workers", 1);
+		final DialogComponentNumber bufferCapComp = new DialogComponentNumber(m_settings.pageBufferCapModel(),
+				"Page buffer cap per worker (MB)", 16);
+		final DialogComponentNumber batchSizeComp = new DialogComponentNumber(m_settings.batchSizeModel(),
+				"Tiny images per composite page", 10);
+		final DialogComponentBoolean rowDiagnosticsComp = new DialogComponentBoolean(
+				m_settings.rowDiagnosticsModel(), "Log every row (debug)");
+
+		final JPanel cachePane = new JPanel(new GridBagLayout());
+		cachePane.setBorder(BorderFactory.createTitledBorder("Result Cache"));
+
+		final DialogComponentBoolean cacheComp = new DialogComponentBoolean(m_settings.resultCacheModel(),
+				"Cache results on disk");
+		final DialogComponentFileChooser cacheDirComp = new DialogComponentFileChooser(
+				m_settings.resultCacheDirectoryModel(), "tess4j-result-cache", JFileChooser.OPEN_DIALOG, true);
+		cacheDirComp.setBorderTitle("Cache directory (empty for default)");
+		final DialogComponentNumber cacheSizeComp = new DialogComponentNumber(m_settings.resultCacheSizeModel(),
+				"Maximum cache size (MB)", 64);
+		final DialogComponentBoolean incrementalComp = new DialogComponentBoolean(m_settings.incrementalModel(),
+				"Recognize only rows changed since the last execution");
 
 		final int ANCHOR = GridBagConstraints.FIRST_LINE_START;
 		final int FILL = GridBagConstraints.HORIZONTAL;
@@ -153,12 +266,19 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 		final GridBagConstraints gbc_pathChooser = new GridBagConstraints(0, 1, 1, 1, 0.0, 0.0, ANCHOR, FILL, insets, 0,
 				0);
 		final GridBagConstraints gbc_recog = new GridBagConstraints(0, 2, 1, 1, 1.0, 1.0, ANCHOR, FILL, insets, 0, 0);
+		final GridBagConstraints gbc_execution = new GridBagConstraints(0, 3, 1, 1, 1.0, 0.0, ANCHOR, FILL, insets, 0,
+				0);
+		final GridBagConstraints gbc_cache = new GridBagConstraints(0, 4, 1, 1, 1.0, 0.0, ANCHOR, FILL, insets, 0, 0);
+		final GridBagConstraints gbc_cacheDir = new GridBagConstraints(0, 1, 2, 1, 1.0, 0.0, ANCHOR, FILL, insets, 0,
+				0);
 
 		final GridBagConstraints gbc_language = new GridBagConstraints(0, 1, 2, 1, 1.0, 0.0, ANCHOR, FILL, insets, 0,
 				0);
 		final GridBagConstraints gbc_pageSet = new GridBagConstraints(0, 2, 1, 1, 1.0, 0.0, ANCHOR, FILL, insets, 0, 0);
 		final GridBagConstraints gbc_ocrEngine = new GridBagConstraints(1, 2, 1, 1, 1.0, 1.0, ANCHOR, FILL, insets, 0,
 				0);
+		final GridBagConstraints gbc_candidates = new GridBagConstraints(0, 3, 2, 1, 1.0, 0.0, ANCHOR, FILL, insets, 0,
+				0);
 
 		updateLanguages();
 		m_languageListComponent = new DialogComponentStringSelection(m_settings.languageModel(), "Language",
@@ -169,6 +289,17 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 		m_settings.pathModel().addChangeListener(this);
 
 		preprocessingPane.add(deskewComp.getComponentPanel());
+		preprocessingPane.add(deskewBackendComp.getComponentPanel());
+		preprocessingPane.add(targetResolutionComp.getComponentPanel());
+		preprocessingPane.add(skipBlankComp.getComponentPanel());
+		preprocessingPane.add(blankInkComp.getComponentPanel());
+		preprocessingPane.add(orientationComp.getComponentPanel());
+		preprocessingPane.add(binarizationComp.getComponentPanel());
+		preprocessingPane.add(sauvolaWindowComp.getComponentPanel());
+		preprocessingPane.add(sauvolaKComp.getComponentPanel());
+		m_settings.deskewModel().addChangeListener(this);
+		m_settings.skipBlankPagesModel().addChangeListener(this);
+		m_settings.binarizationModel().addChangeListener(this);
 		contentPane.add(preprocessingPane, gbc_deskew);
 
 		contentPane.add(m_pathChooser.getComponentPanel(), gbc_pathChooser);
@@ -176,8 +307,25 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 		recogPane.add(m_languageListComponent.getComponentPanel(), gbc_language);
 		recogPane.add(pageSegComp.getComponentPanel(), gbc_pageSet);
 		recogPane.add(ocrModeComp.getComponentPanel(), gbc_ocrEngine);
+		recogPane.add(candidatesComp.getComponentPanel(), gbc_candidates);
 		contentPane.add(recogPane, gbc_recog);
 
+		executionPane.add(numWorkersComp.getComponentPanel());
+		executionPane.add(bufferCapComp.getComponentPanel());
+		executionPane.add(batchSizeComp.getComponentPanel());
+		executionPane.add(rowDiagnosticsComp.getComponentPanel());
+		contentPane.add(executionPane, gbc_execution);
+
+		cachePane.add(cacheComp.getComponentPanel(), new GridBagConstraints(0, 0, 1, 1, 0.0, 0.0, ANCHOR, FILL,
+				insets, 0, 0));
+		cachePane.add(cacheSizeComp.getComponentPanel(), new GridBagConstraints(1, 0, 1, 1, 1.0, 0.0, ANCHOR, FILL,
+				insets, 0, 0));
+		cachePane.add(cacheDirComp.getComponentPanel(), gbc_cacheDir);
+		cachePane.add(incrementalComp.getComponentPanel(), new GridBagConstraints(0, 2, 2, 1, 0.0, 0.0, ANCHOR, FILL,
+				insets, 0, 0));
+		m_settings.resultCacheModel().addChangeListener(this);
+		contentPane.add(cachePane, gbc_cache);
+
 		addTab("Settings", contentPane);
 
 		// add dialog components to list
@@ -185,7 +333,24 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 		m_dialogComponents.add(m_languageListComponent);
 		m_dialogComponents.add(pageSegComp);
 		m_dialogComponents.add(ocrModeComp);
+		m_dialogComponents.add(candidatesComp);
 		m_dialogComponents.add(deskewComp);
+		m_dialogComponents.add(deskewBackendComp);
+		m_dialogComponents.add(targetResolutionComp);
+		m_dialogComponents.add(skipBlankComp);
+		m_dialogComponents.add(blankInkComp);
+		m_dialogComponents.add(orientationComp);
+		m_dialogComponents.add(binarizationComp);
+		m_dialogComponents.add(sauvolaWindowComp);
+		m_dialogComponents.add(sauvolaKComp);
+		m_dialogComponents.add(numWorkersComp);
+		m_dialogComponents.add(bufferCapComp);
+		m_dialogComponents.add(batchSizeComp);
+		m_dialogComponents.add(rowDiagnosticsComp);
+		m_dialogComponents.add(cacheComp);
+		m_dialogComponents.add(cacheDirComp);
+		m_dialogComponents.add(cacheSizeComp);
+		m_dialogComponents.add(incrementalComp);
 	}
 
 	/**
@@ -374,13 +539,18 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 
 			// null tries to keep previous selection.
 			m_languageListComponent.replaceListItems(m_languages, null);
+		} else {
+			updateEnabledStates();
 		}
 	}
 
 	/**
-	 * Searches currently selected m_pathModel path for .tessdata files
+	 * Looks up the .traineddata files of the currently selected m_pathModel
+	 * path in the {@link TraineddataRegistry}, which only lists the path again
+	 * if it changed.
 	 * 
-	 * @return true if one or more .tessdata files were found, false otherwise
+	 * @return true if one or more .traineddata files were found, false
+	 *         otherwise
 	 */
 	private boolean updateLanguages() {
 		m_languages.clear();
@@ -392,25 +562,13 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 			return false;
 		}
 
-		for (final File f : file.listFiles()) {
-			if (!f.isDirectory()) {
-				final String langFilename = f.getName();
-
-				if (!langFilename.endsWith(".traineddata")) {
-					continue;
-				}
-
-				m_languages.add(langFilename.substring(0, langFilename.length() - 12));
-			}
-		}
+		m_languages.addAll(TraineddataRegistry.getInstance().getLanguages(file.getPath()));
 
 		if (m_languages.isEmpty()) {
 			m_languages.add("No language files found");
 			return false;
 		}
 
-		Collections.sort(m_languages);
-
 		return true;
 	}
 
@@ -435,9 +593,6 @@ public class Tess4JNodeDialog<T extends RealType<T>> extends ValueToCellNodeDial
 		for (DialogComponent comp : m_dialogComponents) {
 			comp.loadSettingsFrom(settings, specs);
 		}
-	}
-
-	@Override
-	public void addDialogComponents() {
+		updateEnabledStates();
 	}
 }
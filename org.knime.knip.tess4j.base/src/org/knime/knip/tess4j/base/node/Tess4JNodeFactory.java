@@ -48,13 +48,16 @@
  */
 package org.knime.knip.tess4j.base.node;
 
+import java.util.Optional;
+
 import net.imglib2.type.numeric.RealType;
 
-import org.knime.core.data.def.StringCell;
-import org.knime.knip.base.data.img.ImgPlusValue;
-import org.knime.knip.base.node.ValueToCellNodeDialog;
-import org.knime.knip.base.node.ValueToCellNodeFactory;
-import org.knime.knip.base.node.ValueToCellNodeModel;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.ConfigurableNodeFactory;
+import org.knime.core.node.NodeDialogPane;
+import org.knime.core.node.NodeView;
+import org.knime.core.node.context.NodeCreationConfiguration;
+import org.knime.core.node.context.ports.PortsConfigurationBuilder;
 
 /**
  * Factory for the {@link Tess4JNodeModel} and the {@link Tess4JNodeDialog}.
@@ -66,22 +69,64 @@ import org.knime.knip.base.node.ValueToCellNodeModel;
  *         Zinsmaier</a>
  */
 public class Tess4JNodeFactory<T extends RealType<T>> extends
-		ValueToCellNodeFactory<ImgPlusValue<T>> {
+		ConfigurableNodeFactory<Tess4JNodeModel<T>> {
+
+	/** Port group of the optional execution report */
+	private static final String REPORT_PORT_GROUP = "Execution report";
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Optional<PortsConfigurationBuilder> createPortsConfigBuilder() {
+		final PortsConfigurationBuilder builder = new PortsConfigurationBuilder();
+		builder.addFixedInputPortGroup("Input table", BufferedDataTable.TYPE);
+		builder.addFixedOutputPortGroup("Output table", BufferedDataTable.TYPE);
+		builder.addOptionalOutputPortGroup(REPORT_PORT_GROUP, BufferedDataTable.TYPE);
+		return Optional.of(builder);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected Tess4JNodeModel<T> createNodeModel(
+			final NodeCreationConfiguration creationConfig) {
+		return new Tess4JNodeModel<T>(creationConfig.getPortConfig().get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int getNrNodeViews() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public NodeView<Tess4JNodeModel<T>> createNodeView(final int viewIndex,
+			final Tess4JNodeModel<T> nodeModel) {
+		return null;
+	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public ValueToCellNodeModel<ImgPlusValue<T>, StringCell> createNodeModel() {
-		return new Tess4JNodeModel<T>();
+	protected boolean hasDialog() {
+		return true;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	protected ValueToCellNodeDialog<ImgPlusValue<T>> createNodeDialog() {
-		return new Tess4JNodeDialog<T>();
+	protected NodeDialogPane createNodeDialogPane(
+			final NodeCreationConfiguration creationConfig) {
+		return new Tess4JNodeDialog();
 	}
 
 }
@@ -48,28 +48,56 @@
  */
 package org.knime.knip.tess4j.base.node;
 
-import java.awt.image.BufferedImage;
-import java.nio.ByteBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.append.AppendedColumnRow;
+import org.knime.core.data.collection.ListCell;
+import org.knime.core.data.container.ColumnRearranger;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.BooleanCell;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.IntCell;
 import org.knime.core.data.def.StringCell;
+import org.knime.core.node.BufferedDataContainer;
+import org.knime.core.node.BufferedDataTable;
+import org.knime.core.node.CanceledExecutionException;
 import org.knime.core.node.ExecutionContext;
+import org.knime.core.node.ExecutionMonitor;
+import org.knime.core.node.InvalidSettingsException;
+import org.knime.core.node.NodeModel;
+import org.knime.core.node.NodeSettingsRO;
+import org.knime.core.node.NodeSettingsWO;
+import org.knime.core.node.context.ports.PortsConfiguration;
 import org.knime.core.node.defaultnodesettings.SettingsModel;
-import org.knime.core.node.port.PortObject;
-import org.knime.core.util.Pair;
+import org.knime.core.node.port.PortObjectSpec;
+import org.knime.core.node.streamable.InputPortRole;
+import org.knime.core.node.streamable.OutputPortRole;
+import org.knime.core.node.streamable.PartitionInfo;
+import org.knime.core.node.streamable.PortInput;
+import org.knime.core.node.streamable.PortOutput;
+import org.knime.core.node.streamable.RowInput;
+import org.knime.core.node.streamable.RowOutput;
+import org.knime.core.node.streamable.StreamableOperator;
 import org.knime.knip.base.data.img.ImgPlusValue;
-import org.knime.knip.base.node.ValueToCellNodeModel;
-import org.knime.knip.core.awt.Real2GreyRenderer;
+import org.knime.knip.base.data.labeling.LabelingValue;
+import org.knime.knip.tess4j.base.engine.TraineddataRegistry;
 
-import com.recognition.software.jdeskew.ImageDeskew;
-import com.sun.jna.Pointer;
-
-import net.imglib2.img.Img;
+import net.imagej.ImgPlus;
 import net.imglib2.type.numeric.RealType;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
-import net.sourceforge.tess4j.util.ImageHelper;
-import net.sourceforge.tess4j.util.ImageIOHelper;
 
 /**
  * Tess4JNodeModel
@@ -82,142 +110,762 @@ import net.sourceforge.tess4j.util.ImageIOHelper;
  * @author <a href="mailto:michael.zinsmaier@googlemail.com">Michael
  *         Zinsmaier</a>
  */
-public class Tess4JNodeModel<T extends RealType<T>> extends ValueToCellNodeModel<ImgPlusValue<T>, StringCell> {
-
-	private final double MINIMUM_DESKEW_THRESHOLD = 0.05d;
+public class Tess4JNodeModel<T extends RealType<T>> extends NodeModel {
 
 	private final Tess4JNodeSettings m_settings = new Tess4JNodeSettings();
-	private Tesseract m_tessInstance;
+
+	private final List<SettingsModel> m_settingsModels = new ArrayList<>();
+	private final List<SettingsModel> m_optionalSettingsModels = new ArrayList<>();
+
+	/* results of the last execution for incremental execution, null if none */
+	private File m_lastResults = null;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param portsConfig
+	 *            ports of the node, the execution report is optional
+	 */
+	public Tess4JNodeModel(final PortsConfiguration portsConfig) {
+		super(portsConfig.getInputPorts(), portsConfig.getOutputPorts());
+
+		m_settings.addSettingsModels(m_settingsModels);
+		m_settings.addOptionalSettingsModels(m_optionalSettingsModels);
+	}
 
 	@Override
-	protected void prepareExecute(final ExecutionContext exec) {
+	protected DataTableSpec[] configure(final DataTableSpec[] inSpecs) throws InvalidSettingsException {
+		/* the models may still be added to the tessdata path before execution */
+		final String missing = getMissingLanguageMessage();
+		if (missing != null) {
+			setWarningMessage(missing);
+		}
 
-		this.setWarningMessage(null);
-		exec.setMessage("Preparing execution");
+		final DataTableSpec outSpec = createColumnRearranger(inSpecs[0], null).createSpec();
+		return hasReport() ? new DataTableSpec[] { outSpec, Tess4JTimings.createReportSpec() }
+				: new DataTableSpec[] { outSpec };
+	}
 
-		// JNA interface mapping
-		m_tessInstance = new Tesseract();
+	/**
+	 * @return whether the optional execution report port was added
+	 */
+	private boolean hasReport() {
+		return getNrOutPorts() > 1;
+	}
 
-		// tell tesseract which and language path to use
-		m_tessInstance.setDatapath(m_settings.getTessdataPath());
-		m_tessInstance.setLanguage(m_settings.getLanguage());
-		m_tessInstance.setOcrEngineMode(m_settings.getOcrEngineMode());
-		m_tessInstance.setPageSegMode(m_settings.getPageSegMode());
-		m_tessInstance.setHocr(false);
+	@Override
+	protected BufferedDataTable[] execute(final BufferedDataTable[] inData, final ExecutionContext exec)
+			throws Exception {
+		this.setWarningMessage(null);
+		checkLanguages();
+		exec.setMessage("Preparing execution");
 
 		getLogger().debug("Preparing Tess4JNode execution: ");
 		getLogger().debug("Tessdata path: " + m_settings.getTessdataPath());
 		getLogger().debug("Language: " + m_settings.getLanguage());
 		getLogger().debug("OCR Engine Mode: " + m_settings.getOcrEngineMode());
 		getLogger().debug("Page Segmentation Mode: " + m_settings.getPageSegMode());
+		getLogger().debug("Parallel workers: " + m_settings.getNumWorkers());
+		getLogger().debug("Planes: " + m_settings.getPlaneMode() + " (" + m_settings.getPlaneAxis() + ")");
 
+		final Tess4JWorkerPool<T> pool = new Tess4JWorkerPool<>(m_settings, m_settings.getNumWorkers());
+		Tess4JIncrementalResults incremental = null;
 		try {
-			m_tessInstance.init();
-		} catch (Throwable e) {
-			m_tessInstance = null;
-			getLogger().error("Error initializing Tesseract.", e);
+			if (m_settings.useIncremental() && getRegionColumnIndex(inData[0].getDataTableSpec()) < 0) {
+				incremental = new Tess4JIncrementalResults(m_lastResults, m_settings.getRowFingerprint());
+				pool.setIncrementalResults(incremental);
+			}
+
+			final BufferedDataTable out;
+			if (m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[2])) {
+				out = executePerPlane(inData[0], pool, exec);
+			} else if (m_settings.getBatchSize() > 1) {
+				out = executeBatched(inData[0], pool, exec);
+			} else {
+				final ColumnRearranger rearranger = createColumnRearranger(inData[0].getDataTableSpec(), pool);
+				out = exec.createColumnRearrangeTable(inData[0], rearranger, exec);
+			}
+
+			if (incremental != null) {
+				getLogger().info("Tess4J execution: reused results of " + incremental.getReused()
+						+ " unchanged rows of the last execution.");
+				final File results = incremental.commit();
+				/* the previous results are still open and cannot be deleted on Windows otherwise */
+				incremental.close();
+				setLastResults(results);
+			}
+
+			/* the summary is always logged, the table only created if requested */
+			pool.getTimings().finish();
+			if (!hasReport()) {
+				return new BufferedDataTable[] { out };
+			}
+			final BufferedDataContainer report = exec.createDataContainer(Tess4JTimings.createReportSpec());
+			for (final DataRow row : pool.getTimings().createReportRows("")) {
+				report.addRowToTable(row);
+			}
+			report.close();
+			return new BufferedDataTable[] { out, report.getTable() };
+		} catch (final CanceledExecutionException e) {
 			throw e;
+		} catch (final Exception e) {
+			getLogger().error(e.getMessage(), e);
+			throw new TesseractException(e);
+		} finally {
+			pool.close();
+			if (incremental != null) {
+				incremental.close();
+			}
+			getLogger().info("Tess4J execution: " + pool.getBufferStatistics());
+			getLogger().info("Tess4J execution: " + pool.getTimings());
+			reportRejectedPages(pool.getPageStatistics());
+		}
+	}
+
+	/**
+	 * Check that the tessdata path contains a model for the language and
+	 * every language candidate.
+	 * 
+	 * @return a message naming the first missing language, <code>null</code>
+	 *         if all models are found
+	 */
+	private String getMissingLanguageMessage() {
+		String missing = TraineddataRegistry.getInstance().findMissingLanguage(m_settings.getTessdataPath(),
+				m_settings.getLanguage());
+		if (missing == null) {
+			missing = TraineddataRegistry.getInstance().findMissingLanguage(m_settings.getTessdataPath(),
+					String.join("+", m_settings.getLanguageCandidates()));
+		}
+		return missing == null ? null
+				: "No model for language \"" + missing + "\" found in tessdata path \""
+						+ m_settings.getTessdataPath() + "\".";
+	}
+
+	/**
+	 * @throws InvalidSettingsException
+	 *             if the model of a language is missing, see
+	 *             {@link #getMissingLanguageMessage()}
+	 */
+	private void checkLanguages() throws InvalidSettingsException {
+		final String missing = getMissingLanguageMessage();
+		if (missing != null) {
+			throw new InvalidSettingsException(missing);
 		}
+	}
 
-		getLogger().debug("Initialized tesseract.");
+	/**
+	 * Replace the results of the last execution, deleting the previous file.
+	 */
+	private void setLastResults(final File file) {
+		if (m_lastResults != null && !m_lastResults.equals(file)) {
+			m_lastResults.delete();
+		}
+		m_lastResults = file;
+	}
 
-		/* load custom config key-value pairs */
-		for (final Pair<String, String> config : m_settings.tessAdvancedConfig()) {
-			m_tessInstance.setTessVariable(config.getFirst(), config.getSecond());
+	/**
+	 * Log the number of recognized pages and warn about rejected ones.
+	 */
+	private void reportRejectedPages(final Tess4JPageStatistics statistics) {
+		getLogger().info("Tess4J execution: " + statistics);
+		if (statistics.getRejected() > 0) {
+			setWarningMessage(statistics.getRejected() + " of " + statistics.getPages()
+					+ " pages were rejected for a mean confidence below " + m_settings.getMinConfidence() + ".");
 		}
+	}
 
-		m_tessInstance.setTessVariables();
+	@Override
+	public InputPortRole[] getInputPortRoles() {
+		return new InputPortRole[] { InputPortRole.DISTRIBUTED_STREAMABLE };
 	}
 
-	private ExecutionContext context;
+	@Override
+	public OutputPortRole[] getOutputPortRoles() {
+		return hasReport() ? new OutputPortRole[] { OutputPortRole.DISTRIBUTED, OutputPortRole.DISTRIBUTED }
+				: new OutputPortRole[] { OutputPortRole.DISTRIBUTED };
+	}
 
 	@Override
-	protected PortObject[] execute(PortObject[] inObjects, ExecutionContext exec) throws Exception {
-		PortObject[] ret = null;
+	public StreamableOperator createStreamableOperator(final PartitionInfo partitionInfo,
+			final PortObjectSpec[] inSpecs) throws InvalidSettingsException {
+		checkLanguages();
+		final DataTableSpec inSpec = (DataTableSpec) inSpecs[0];
+		final int colIdx = getSelectedColumnIndex(inSpec);
+
+		return new StreamableOperator() {
+
+			@Override
+			public void runFinal(final PortInput[] inputs, final PortOutput[] outputs, final ExecutionContext exec)
+					throws Exception {
+				/* one pool per partition, workers are released when the input is done */
+				final Tess4JWorkerPool<T> pool = new Tess4JWorkerPool<>(m_settings, m_settings.getNumWorkers());
+				try {
+					if (m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[2])) {
+						streamPerPlane((RowInput) inputs[0], (RowOutput) outputs[0], colIdx, pool, exec);
+					} else if (m_settings.getBatchSize() > 1) {
+						streamBatched((RowInput) inputs[0], (RowOutput) outputs[0], colIdx, pool, exec);
+					} else {
+						streamRows((RowInput) inputs[0], (RowOutput) outputs[0], inSpec, colIdx, pool, exec);
+					}
+
+					pool.getTimings().finish();
+					if (hasReport()) {
+						/* keys of the report rows need to be unique across partitions */
+						final String prefix = partitionInfo.getPartitionCount() > 1
+								? "Partition " + partitionInfo.getPartitionIndex() + " " : "";
+						final RowOutput report = (RowOutput) outputs[1];
+						for (final DataRow row : pool.getTimings().createReportRows(prefix)) {
+							report.push(row);
+						}
+						report.close();
+					}
+				} finally {
+					pool.close();
+					getLogger().info("Tess4J streaming partition: " + pool.getBufferStatistics());
+					getLogger().info("Tess4J streaming partition: " + pool.getTimings());
+					reportRejectedPages(pool.getPageStatistics());
+				}
+			}
+		};
+	}
 
-		context = exec;
+	/**
+	 * Streaming counterpart of the column rearranger, see
+	 * {@link #createColumnRearranger(DataTableSpec, Tess4JWorkerPool)}.
+	 * Computes the result cells of up to as many rows as the pool has workers
+	 * concurrently, since the streamable function of a column rearranger
+	 * computes one row after another, and pushes the rows downstream in input
+	 * order.
+	 */
+	private void streamRows(final RowInput input, final RowOutput output, final DataTableSpec inSpec,
+			final int colIdx, final Tess4JWorkerPool<T> pool, final ExecutionContext exec)
+			throws InvalidSettingsException, InterruptedException, CanceledExecutionException, IOException {
+		final Tess4JCellFactory<T> factory = createCellFactory(inSpec, pool);
+		final Tess4JProgress progress = new Tess4JProgress(pool.getTimings());
+		final long[] rowIdx = { 0 };
+		try (final Tess4JRowPipeline<T, DataCell[]> pipeline = new Tess4JRowPipeline<>(pool,
+				(row) -> factory.getCells(row), (row, cells) -> {
+					output.push(createPlaneRow(row, row.getKey(), colIdx, cells));
+					progress.update(exec, ++rowIdx[0], -1);
+				})) {
+			DataRow row;
+			while ((row = input.poll()) != null) {
+				exec.checkCanceled();
+				pipeline.add(row);
+			}
+			pipeline.finish();
+		}
 
-		try {
-			ret = super.execute(inObjects, exec);
-		} catch (final Exception e) {
-			getLogger().error(e.getMessage(), e);
-			throw new TesseractException(e);
-		} finally {
-			cleanupExecute();
+		input.close();
+		output.close();
+	}
+
+	/**
+	 * Streaming counterpart of
+	 * {@link #executePerPlane(BufferedDataTable, Tess4JWorkerPool, ExecutionContext)}
+	 * pushing the rows of each image downstream as soon as its planes and
+	 * those of all previous images are recognized.
+	 */
+	private void streamPerPlane(final RowInput input, final RowOutput output, final int colIdx,
+			final Tess4JWorkerPool<T> pool, final ExecutionContext exec)
+			throws InterruptedException, CanceledExecutionException, IOException {
+		final Tess4JProgress progress = new Tess4JProgress(pool.getTimings());
+		final long[] rowIdx = { 0 };
+		try (final Tess4JRowPipeline<T, List<DataRow>> pipeline = new Tess4JRowPipeline<>(pool,
+				(row) -> createPlaneRows(row, colIdx, pool), (row, planeRows) -> {
+					for (final DataRow planeRow : planeRows) {
+						output.push(planeRow);
+					}
+					progress.update(exec, ++rowIdx[0], -1);
+				})) {
+			DataRow row;
+			while ((row = input.poll()) != null) {
+				exec.checkCanceled();
+				pipeline.add(row);
+			}
+			pipeline.finish();
 		}
 
-		context = null;
+		input.close();
+		output.close();
+	}
+
+	/**
+	 * Recognize all planes along the selected axis, creating one output row
+	 * per plane. Several rows and the planes of each image are recognized in
+	 * parallel, the plane rows are output in input order, see
+	 * {@link Tess4JRowPipeline}.
+	 * 
+	 * @param table
+	 *            the input table
+	 * @param pool
+	 *            workers to compute the results with
+	 * @param exec
+	 *            execution context
+	 * @return the output table
+	 * @throws InvalidSettingsException
+	 *             if no valid image column is selected
+	 * @throws CanceledExecutionException
+	 *             if execution was canceled
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	private BufferedDataTable executePerPlane(final BufferedDataTable table, final Tess4JWorkerPool<T> pool,
+			final ExecutionContext exec)
+			throws InvalidSettingsException, CanceledExecutionException, InterruptedException, IOException {
+		final DataTableSpec inSpec = table.getDataTableSpec();
+		final int colIdx = getSelectedColumnIndex(inSpec);
+
+		final BufferedDataContainer container = exec
+				.createDataContainer(createColumnRearranger(inSpec, null).createSpec());
+
+		final Tess4JProgress progress = new Tess4JProgress(pool.getTimings());
+		final long rowCount = table.size();
+		final long[] rowIdx = { 0 };
+		try (final Tess4JRowPipeline<T, List<DataRow>> pipeline = new Tess4JRowPipeline<>(pool,
+				(row) -> createPlaneRows(row, colIdx, pool), (row, planeRows) -> {
+					for (final DataRow planeRow : planeRows) {
+						container.addRowToTable(planeRow);
+					}
+					progress.update(exec, ++rowIdx[0], rowCount);
+				})) {
+			for (final DataRow row : table) {
+				exec.checkCanceled();
+				pipeline.add(row);
+			}
+			pipeline.finish();
+		}
 
-		return ret;
+		container.close();
+		return container.getTable();
 	}
 
-	@Override
-	protected StringCell compute(final ImgPlusValue<T> cellValue) throws Exception {
-		String result = "";
+	/**
+	 * Recognize the images of several rows at once on composite pages, see
+	 * {@link Tess4JBatcher}. Creates one output row per input row.
+	 * 
+	 * @param table
+	 *            the input table
+	 * @param pool
+	 *            workers to compute the results with
+	 * @param exec
+	 *            execution context
+	 * @return the output table
+	 * @throws InvalidSettingsException
+	 *             if no valid image column is selected
+	 * @throws CanceledExecutionException
+	 *             if execution was canceled
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	private BufferedDataTable executeBatched(final BufferedDataTable table, final Tess4JWorkerPool<T> pool,
+			final ExecutionContext exec)
+			throws InvalidSettingsException, CanceledExecutionException, InterruptedException, IOException {
+		final DataTableSpec inSpec = table.getDataTableSpec();
+		final int colIdx = getSelectedColumnIndex(inSpec);
+
+		final BufferedDataContainer container = exec
+				.createDataContainer(createColumnRearranger(inSpec, null).createSpec());
+
+		final Tess4JProgress progress = new Tess4JProgress(pool.getTimings());
+		final long rowCount = table.size();
+		final long[] rowIdx = { 0 };
+		try (final Tess4JBatcher<T> batcher = new Tess4JBatcher<>(pool, colIdx, m_settings.getBatchSize(),
+				(row, result) -> {
+					container.addRowToTable(createBatchedRow(row, colIdx, result));
+					progress.update(exec, ++rowIdx[0], rowCount);
+				})) {
+			for (final DataRow row : table) {
+				exec.checkCanceled();
+				batcher.add(row);
+			}
+			batcher.finish();
+		}
+
+		container.close();
+		return container.getTable();
+	}
 
-		getLogger().debug(": >" + cellValue.getImgPlus().getImg().getClass().getName());
+	/**
+	 * Streaming counterpart of
+	 * {@link #executeBatched(BufferedDataTable, Tess4JWorkerPool, ExecutionContext)}
+	 * pushing the rows of each batch downstream as soon as it is recognized.
+	 */
+	private void streamBatched(final RowInput input, final RowOutput output, final int colIdx,
+			final Tess4JWorkerPool<T> pool, final ExecutionContext exec)
+			throws InterruptedException, CanceledExecutionException, IOException {
+		final Tess4JProgress progress = new Tess4JProgress(pool.getTimings());
+		final long[] rowIdx = { 0 };
+		try (final Tess4JBatcher<T> batcher = new Tess4JBatcher<>(pool, colIdx, m_settings.getBatchSize(),
+				(row, result) -> {
+					output.push(createBatchedRow(row, colIdx, result));
+					progress.update(exec, ++rowIdx[0], -1);
+				})) {
+			DataRow row;
+			while ((row = input.poll()) != null) {
+				exec.checkCanceled();
+				batcher.add(row);
+			}
+			batcher.finish();
+		}
 
-		try {
-			// the input image
-			final Img<T> img = cellValue.getImgPlus();
+		input.close();
+		output.close();
+	}
 
-			// For converting our image to grey values
-			final Real2GreyRenderer<T> greyRenderer = new Real2GreyRenderer<T>(img.firstElement().getMinValue());
+	/**
+	 * Create the output row for the result of a batched image.
+	 * 
+	 * @param result
+	 *            the result, <code>null</code> if the image is missing
+	 */
+	private DataRow createBatchedRow(final DataRow row, final int colIdx, final Tess4JPageResult result) {
+		final int numColumns = getNumPageResultColumns();
+		return createPlaneRow(row, row.getKey(), colIdx, result == null
+				? Tess4JCellFactory.createMissingCells(numColumns)
+				: Tess4JCellFactory.createResultCells(result, m_settings.outputConfidence(),
+						m_settings.getTargetResolution() > 0, m_settings.skipBlankPages(),
+						m_settings.detectOrientation(), numColumns));
+	}
 
-			// Create a BufferedImage from the grey input image
-			BufferedImage bi = (BufferedImage) greyRenderer.render(img, 0, 1, new long[img.numDimensions()]).image();
+	/**
+	 * Recognize all planes of the image in a row along the selected axis.
+	 * 
+	 * @return one output row per plane, a single row with a missing cell if
+	 *         the image is missing
+	 */
+	@SuppressWarnings("unchecked")
+	private List<DataRow> createPlaneRows(final DataRow row, final int colIdx, final Tess4JWorkerPool<T> pool)
+			throws InterruptedException, IOException {
+		final DataCell cell = row.getCell(colIdx);
+		if (cell.isMissing()) {
+			return Collections.singletonList(createPlaneRow(row, row.getKey(), colIdx,
+					Tess4JCellFactory.createMissingCells(getNumPageResultColumns())));
+		}
 
-			if (m_settings.useDeskew()) {
-				context.setMessage("Deskew");
-				// java.lang.IllegalArgumentException: Unknown image type 0
-				final ImageDeskew id = new ImageDeskew(bi);
-				// determine skew angle
-				final double imageSkewAngle = id.getSkewAngle();
+		final ImgPlus<T> img = ((ImgPlusValue<T>) cell).getImgPlus();
+		final Tess4JPageResult[] results = pool.recognizeRow(row.getKey().getString(), img,
+				Tess4JPlanes.select(img, m_settings.getPlaneAxis()));
+
+		final List<DataRow> rows = new ArrayList<>(results.length);
+		for (int i = 0; i < results.length; ++i) {
+			final RowKey key = new RowKey(row.getKey().getString() + "_" + i);
+			rows.add(createPlaneRow(row, key, colIdx,
+					Tess4JCellFactory.createResultCells(results[i], m_settings.outputConfidence(),
+							m_settings.getTargetResolution() > 0, m_settings.skipBlankPages(),
+							m_settings.detectOrientation(), getNumPageResultColumns())));
+		}
+		return rows;
+	}
 
-				if ((imageSkewAngle > MINIMUM_DESKEW_THRESHOLD || imageSkewAngle < -(MINIMUM_DESKEW_THRESHOLD))) {
-					// deskew the image
-					bi = ImageHelper.rotateImage(bi, -imageSkewAngle);
+	/**
+	 * Create an output row for one plane according to the column creation
+	 * mode.
+	 */
+	private DataRow createPlaneRow(final DataRow row, final RowKey key, final int colIdx,
+			final DataCell[] results) {
+		final String mode = m_settings.getColCreationMode();
+
+		if (mode.equals(Tess4JNodeSettings.COL_CREATION_MODES[0])) {
+			/* new table */
+			return new DefaultRow(key, results);
+		} else if (mode.equals(Tess4JNodeSettings.COL_CREATION_MODES[1])) {
+			/* append */
+			return new AppendedColumnRow(key, row, results);
+		}
+
+		/* replace, the results take the place of the image column */
+		final DataCell[] cells = new DataCell[row.getNumCells() - 1 + results.length];
+		for (int i = 0; i < colIdx; ++i) {
+			cells[i] = row.getCell(i);
+		}
+		System.arraycopy(results, 0, cells, colIdx, results.length);
+		for (int i = colIdx + 1; i < row.getNumCells(); ++i) {
+			cells[i - 1 + results.length] = row.getCell(i);
+		}
+		return new DefaultRow(key, cells);
+	}
+
+	/**
+	 * Create the column rearranger which appends or replaces the OCR result
+	 * columns according to the column creation mode.
+	 * 
+	 * @param inSpec
+	 *            spec of the input table
+	 * @param pool
+	 *            workers to compute the results with, <code>null</code> if
+	 *            only the output spec is required
+	 * @return the column rearranger
+	 * @throws InvalidSettingsException
+	 *             if no valid image column is selected or the selected
+	 *             outputs cannot be combined
+	 */
+	private ColumnRearranger createColumnRearranger(final DataTableSpec inSpec, final Tess4JWorkerPool<T> pool)
+			throws InvalidSettingsException {
+		final int colIdx = getSelectedColumnIndex(inSpec);
+		final Tess4JCellFactory<T> factory = createCellFactory(inSpec, pool);
+		final DataColumnSpec[] outSpecs = factory.getColumnSpecs();
+
+		final ColumnRearranger rearranger = new ColumnRearranger(inSpec);
+		final String mode = m_settings.getColCreationMode();
+		if (mode.equals(Tess4JNodeSettings.COL_CREATION_MODES[2])) {
+			/* replace */
+			if (outSpecs.length == 1) {
+				rearranger.replace(factory, colIdx);
+			} else {
+				rearranger.remove(colIdx);
+				rearranger.insertAt(colIdx, factory);
+			}
+		} else {
+			rearranger.append(factory);
+
+			if (mode.equals(Tess4JNodeSettings.COL_CREATION_MODES[0])) {
+				/* new table */
+				final String[] outNames = new String[outSpecs.length];
+				for (int i = 0; i < outNames.length; ++i) {
+					outNames[i] = outSpecs[i].getName();
 				}
+				rearranger.keepOnly(outNames);
 			}
+		}
 
-			context.setMessage("Recognition");
-			// convert image to have a byte buffer
-			bi = ImageHelper.convertImageToGrayscale(bi);
-			// convert the byte buffer for native use
-			ByteBuffer convertImageData = ImageIOHelper.convertImageData(bi);
+		return rearranger;
+	}
 
-			// pass the image to tesseract
-			final int width = bi.getWidth();
-			final int height = bi.getHeight();
-			final int bytesPerPixel = bi.getColorModel().getPixelSize() / 8;
-			int bytesPerLine = (int) Math.ceil(width * bytesPerPixel);
-			m_tessInstance.getAPI().TessBaseAPISetImage(m_tessInstance.getHandle(), convertImageData, width, height,
-					bytesPerPixel, bytesPerLine);
+	/**
+	 * Create the cell factory which computes the OCR result columns of a row.
+	 * 
+	 * @param inSpec
+	 *            spec of the input table
+	 * @param pool
+	 *            workers to compute the results with, <code>null</code> if
+	 *            only the output spec is required
+	 * @return the cell factory
+	 * @throws InvalidSettingsException
+	 *             if no valid image column is selected or the selected
+	 *             outputs cannot be combined
+	 */
+	private Tess4JCellFactory<T> createCellFactory(final DataTableSpec inSpec, final Tess4JWorkerPool<T> pool)
+			throws InvalidSettingsException {
+		final int colIdx = getSelectedColumnIndex(inSpec);
+		final String colName = inSpec.getColumnSpec(colIdx).getName();
+
+		final int regionColIdx = getRegionColumnIndex(inSpec);
+		final boolean layout = m_settings.getLayoutLevel() >= 0;
+		final String[] formats = m_settings.getOutputFormats();
+		final boolean confidence = m_settings.outputConfidence();
+		if ((layout || confidence || formats.length > 0)
+				&& (regionColIdx >= 0 || m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[1]))) {
+			throw new InvalidSettingsException("Confidence, layout elements and output formats can only be output "
+					+ "for a single page per row, not for regions or plane lists.");
+		}
+		if (m_settings.getBatchSize() > 1 && (layout || formats.length > 0 || regionColIdx >= 0
+				|| !m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[0]))) {
+			throw new InvalidSettingsException("Tiny images can only be batched for the text and confidence of the "
+					+ "first plane, not for layout elements, output formats, regions or multiple planes.");
+		}
+		if (m_settings.getBatchSize() > 1 && (m_settings.useDeskew() || m_settings.useBinarization()
+				|| m_settings.detectOrientation() || m_settings.getLanguageCandidates().length > 0)) {
+			/* the composite page is recognized as a whole, these would silently not be applied per image */
+			throw new InvalidSettingsException("Tiny images on a composite page are not deskewed, binarized, "
+					+ "rotated upright or recognized with a detected language. Turn these options off to batch them.");
+		}
 
-			// process and get the result
-			Pointer utf8Text = m_tessInstance.getAPI().TessBaseAPIGetUTF8Text(m_tessInstance.getHandle());
-			if (utf8Text != null) {
-				result = utf8Text.getString(0);
-				m_tessInstance.getAPI().TessDeleteText(utf8Text);
+		final boolean replace = m_settings.getColCreationMode().equals(Tess4JNodeSettings.COL_CREATION_MODES[2]);
+
+		/* all planes or regions into a list cell, otherwise one plane per cell */
+		final String planeAxis = m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[1])
+				? m_settings.getPlaneAxis() : null;
+		final DataType listType = ListCell.getCollectionType(StringCell.TYPE);
+		final DataType outType = planeAxis == null && regionColIdx < 0 ? StringCell.TYPE : listType;
+
+		/* regions are not rescaled or rotated, plane lists have no per page columns */
+		final boolean scale = m_settings.getTargetResolution() > 0 && planeAxis == null && regionColIdx < 0;
+		final boolean blank = m_settings.skipBlankPages() && planeAxis == null && regionColIdx < 0;
+		final boolean orientation = m_settings.detectOrientation() && planeAxis == null && regionColIdx < 0;
+
+		final String outName = replace ? colName
+				: DataTableSpec.getUniqueColumnName(inSpec, colName + m_settings.getColSuffix());
+		final List<DataColumnSpec> outSpecs = new ArrayList<>();
+		outSpecs.add(new DataColumnSpecCreator(outName, outType).createSpec());
+		if (regionColIdx >= 0) {
+			final String labelsName = DataTableSpec.getUniqueColumnName(inSpec, "Region labels");
+			outSpecs.add(new DataColumnSpecCreator(labelsName, listType).createSpec());
+		}
+		if (confidence) {
+			final String name = DataTableSpec.getUniqueColumnName(inSpec, "Mean confidence");
+			outSpecs.add(new DataColumnSpecCreator(name, IntCell.TYPE).createSpec());
+		}
+		if (scale) {
+			final String name = DataTableSpec.getUniqueColumnName(inSpec, "Scale factor");
+			outSpecs.add(new DataColumnSpecCreator(name, DoubleCell.TYPE).createSpec());
+		}
+		if (blank) {
+			final String name = DataTableSpec.getUniqueColumnName(inSpec, "Blank page");
+			outSpecs.add(new DataColumnSpecCreator(name, BooleanCell.TYPE).createSpec());
+		}
+		if (orientation) {
+			final String name = DataTableSpec.getUniqueColumnName(inSpec, "Orientation");
+			outSpecs.add(new DataColumnSpecCreator(name, IntCell.TYPE).createSpec());
+		}
+		for (final String format : formats) {
+			final String name = DataTableSpec.getUniqueColumnName(inSpec, format);
+			outSpecs.add(new DataColumnSpecCreator(name, StringCell.TYPE).createSpec());
+		}
+		if (layout) {
+			for (int i = 0; i < Tess4JCellFactory.LAYOUT_COLUMNS.length; ++i) {
+				final String name = DataTableSpec.getUniqueColumnName(inSpec, Tess4JCellFactory.LAYOUT_COLUMNS[i]);
+				outSpecs.add(new DataColumnSpecCreator(name, Tess4JCellFactory.LAYOUT_COLUMN_TYPES[i]).createSpec());
 			}
-		} catch (final Exception e) {
-			throw e;
-		} finally {
-			context.setMessage("");
 		}
 
-		return new StringCell(result);
+		return new Tess4JCellFactory<T>(outSpecs.toArray(new DataColumnSpec[outSpecs.size()]), colIdx, planeAxis,
+				regionColIdx, confidence, scale, blank, orientation, pool);
+	}
+
+	/**
+	 * @return number of result columns of a single page, see
+	 *         {@link Tess4JCellFactory#createResultCells(Tess4JPageResult)}
+	 */
+	private int getNumPageResultColumns() {
+		final int layoutColumns = m_settings.getLayoutLevel() < 0 ? 0 : Tess4JCellFactory.LAYOUT_COLUMNS.length;
+		final int confidenceColumns = m_settings.outputConfidence() ? 1 : 0;
+		final int scaleColumns = m_settings.getTargetResolution() > 0 ? 1 : 0;
+		final int blankColumns = m_settings.skipBlankPages() ? 1 : 0;
+		final int orientationColumns = m_settings.detectOrientation() ? 1 : 0;
+		return 1 + confidenceColumns + scaleColumns + blankColumns + orientationColumns
+				+ m_settings.getOutputFormats().length + layoutColumns;
+	}
+
+	/**
+	 * Find the index of the selected image column. If no column is selected
+	 * yet, the first image column is selected automatically.
+	 * 
+	 * @param inSpec
+	 *            spec of the input table
+	 * @return index of the image column
+	 * @throws InvalidSettingsException
+	 *             if there is no suitable image column
+	 */
+	private int getSelectedColumnIndex(final DataTableSpec inSpec) throws InvalidSettingsException {
+		final String column = m_settings.getColumn();
+
+		if (column == null || column.isEmpty()) {
+			for (int i = 0; i < inSpec.getNumColumns(); ++i) {
+				final DataColumnSpec colSpec = inSpec.getColumnSpec(i);
+				if (colSpec.getType().isCompatible(ImgPlusValue.class)) {
+					m_settings.columnModel().setStringValue(colSpec.getName());
+					setWarningMessage("Auto-selected image column \"" + colSpec.getName() + "\".");
+					return i;
+				}
+			}
+			throw new InvalidSettingsException("No image column found in input table.");
+		}
+
+		final int colIdx = inSpec.findColumnIndex(column);
+		if (colIdx < 0) {
+			throw new InvalidSettingsException("Column \"" + column + "\" not found in input table.");
+		}
+		if (!inSpec.getColumnSpec(colIdx).getType().isCompatible(ImgPlusValue.class)) {
+			throw new InvalidSettingsException("Column \"" + column + "\" does not contain images.");
+		}
+		return colIdx;
 	}
 
-	protected void cleanupExecute() {
-		if (m_tessInstance != null) {
-			m_tessInstance.dispose();
+	/**
+	 * Find the index of the optional labeling column defining the regions to
+	 * recognize.
+	 * 
+	 * @param inSpec
+	 *            spec of the input table
+	 * @return index of the labeling column or <code>-1</code> if none is
+	 *         selected
+	 * @throws InvalidSettingsException
+	 *             if the column is not a labeling column or regions are
+	 *             combined with recognizing multiple planes
+	 */
+	private int getRegionColumnIndex(final DataTableSpec inSpec) throws InvalidSettingsException {
+		final String column = m_settings.getRegionColumn();
+		if (column == null || column.isEmpty()) {
+			return -1;
+		}
+
+		final int colIdx = inSpec.findColumnIndex(column);
+		if (colIdx < 0) {
+			throw new InvalidSettingsException("Region column \"" + column + "\" not found in input table.");
 		}
+		if (!inSpec.getColumnSpec(colIdx).getType().isCompatible(LabelingValue.class)) {
+			throw new InvalidSettingsException("Region column \"" + column + "\" does not contain labelings.");
+		}
+		if (!m_settings.getPlaneMode().equals(Tess4JNodeSettings.PLANE_MODES[0])) {
+			throw new InvalidSettingsException("Regions can only be recognized on the first plane.");
+		}
+		return colIdx;
+	}
+
+	@Override
+	protected void saveSettingsTo(final NodeSettingsWO settings) {
+		for (final SettingsModel model : m_settingsModels) {
+			model.saveSettingsTo(settings);
+		}
+		for (final SettingsModel model : m_optionalSettingsModels) {
+			model.saveSettingsTo(settings);
+		}
+	}
+
+	@Override
+	protected void validateSettings(final NodeSettingsRO settings) throws InvalidSettingsException {
+		for (final SettingsModel model : m_settingsModels) {
+			model.validateSettings(settings);
+		}
+	}
+
+	@Override
+	protected void loadValidatedSettingsFrom(final NodeSettingsRO settings) throws InvalidSettingsException {
+		for (final SettingsModel model : m_settingsModels) {
+			model.loadSettingsFrom(settings);
+		}
+		for (final SettingsModel model : m_optionalSettingsModels) {
+			try {
+				model.loadSettingsFrom(settings);
+			} catch (final InvalidSettingsException e) {
+				// setting was added later, keep default value
+			}
+		}
+	}
+
+	@Override
+	protected void loadInternals(final File nodeInternDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+		final File file = new File(nodeInternDir, Tess4JIncrementalResults.FILE_NAME);
+		if (file.isFile()) {
+			final File copy = Tess4JIncrementalResults.createTempFile();
+			Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			setLastResults(copy);
+		}
+	}
+
+	@Override
+	protected void saveInternals(final File nodeInternDir, final ExecutionMonitor exec)
+			throws IOException, CanceledExecutionException {
+		if (m_lastResults != null && m_lastResults.isFile()) {
+			Files.copy(m_lastResults.toPath(), new File(nodeInternDir, Tess4JIncrementalResults.FILE_NAME).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@Override
+	protected void reset() {
+		// results of the last execution are kept for incremental execution
 	}
 
 	@Override
-	protected void addSettingsModels(final List<SettingsModel> settingsModels) {
-		m_settings.addSettingsModels(settingsModels);
+	protected void onDispose() {
+		setLastResults(null);
 	}
 
 }
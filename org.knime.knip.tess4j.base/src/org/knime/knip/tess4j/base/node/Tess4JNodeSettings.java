@@ -4,17 +4,23 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.core.runtime.FileLocator;
+import org.knime.core.node.KNIMEConstants;
 import org.knime.core.node.defaultnodesettings.SettingsModel;
 import org.knime.core.node.defaultnodesettings.SettingsModelBoolean;
+import org.knime.core.node.defaultnodesettings.SettingsModelDoubleBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelInteger;
+import org.knime.core.node.defaultnodesettings.SettingsModelIntegerBounded;
 import org.knime.core.node.defaultnodesettings.SettingsModelOptionalString;
 import org.knime.core.node.defaultnodesettings.SettingsModelString;
 import org.knime.core.node.defaultnodesettings.SettingsModelStringArray;
 import org.knime.core.util.Pair;
+import org.knime.knip.tess4j.base.engine.TessEngineConfig;
+import org.knime.knip.tess4j.base.engine.TraineddataRegistry;
 
 import net.sourceforge.tess4j.ITesseract;
 
@@ -25,12 +31,168 @@ import net.sourceforge.tess4j.ITesseract;
  */
 public class Tess4JNodeSettings {
 
+	/** Column creation modes: new table, append to or replace the input column */
+	public static final String[] COL_CREATION_MODES = new String[] { "New Table", "Append", "Replace" };
+
+	/**
+	 * Plane modes: recognize only the first plane, all planes into a list cell
+	 * or all planes into one row each
+	 */
+	public static final String[] PLANE_MODES = new String[] { "First plane", "All planes as list",
+			"One row per plane" };
+
+	/** Deskew backends: Java on the grey plane or Leptonica in native code */
+	public static final String[] DESKEW_BACKENDS = new String[] { "Java", "Leptonica (native)" };
+
+	/**
+	 * Binarization methods: left to Tesseract, Otsu's global threshold or
+	 * Sauvola's local thresholds
+	 */
+	public static final String[] BINARIZATIONS = new String[] { "Tesseract", "Otsu", "Sauvola" };
+
+	/**
+	 * Layout levels to output recognized elements of, in the order of
+	 * Tesseract's page iterator levels, or none
+	 */
+	public static final String[] LAYOUT_LEVELS = new String[] { "None", "Blocks", "Paragraphs", "Lines", "Words" };
+
+	/** Output formats which can be rendered in addition to the plain text */
+	public static final String[] OUTPUT_FORMATS = new String[] { "hOCR", "TSV", "ALTO XML" };
+
+	/** Labels of the axes planes can be iterated along */
+	public static final String[] PLANE_AXES = new String[] { "Z", "Time", "Channel" };
+
+	private final SettingsModelString m_columnModel = createColumnModel();
+	private final SettingsModelString m_colCreationModeModel = createColCreationModeModel();
+	private final SettingsModelString m_colSuffixModel = createColSuffixModel();
+	private final SettingsModelString m_planeModeModel = createPlaneModeModel();
+	private final SettingsModelString m_planeAxisModel = createPlaneAxisModel();
+	private final SettingsModelString m_regionColumnModel = createRegionColumnModel();
+	private final SettingsModelString m_layoutLevelModel = createLayoutLevelModel();
+	private final SettingsModelBoolean[] m_outputFormatModels = createOutputFormatModels();
+	private final SettingsModelBoolean m_outputConfidenceModel = createOutputConfidenceModel();
+	private final SettingsModelIntegerBounded m_minConfidenceModel = createMinConfidenceModel();
 	private final SettingsModelString m_languageModel = createTessLanguageModel();
 	private final SettingsModelOptionalString m_pathModel = createTessdataPathModel();
 	private final SettingsModelInteger m_pageSegMode = createTessPageSegModeModel();
 	private final SettingsModelInteger m_ocrEngineMode = createTessOcrEngineModeModel();
 	private final SettingsModelBoolean m_deskewModel = createTessDeskewModel();
+	private final SettingsModelString m_deskewBackendModel = createDeskewBackendModel();
 	private final SettingsModelStringArray m_advancedConfig = createTessAdvancedConfigModel();
+	private final SettingsModelIntegerBounded m_numWorkersModel = createNumWorkersModel();
+	private final SettingsModelIntegerBounded m_pageBufferCapModel = createPageBufferCapModel();
+	private final SettingsModelBoolean m_resultCacheModel = createResultCacheModel();
+	private final SettingsModelString m_resultCacheDirectoryModel = createResultCacheDirectoryModel();
+	private final SettingsModelIntegerBounded m_resultCacheSizeModel = createResultCacheSizeModel();
+	private final SettingsModelBoolean m_incrementalModel = createIncrementalModel();
+	private final SettingsModelBoolean m_rowDiagnosticsModel = createRowDiagnosticsModel();
+	private final SettingsModelIntegerBounded m_batchSizeModel = createBatchSizeModel();
+	private final SettingsModelIntegerBounded m_targetResolutionModel = createTargetResolutionModel();
+	private final SettingsModelBoolean m_skipBlankPagesModel = createSkipBlankPagesModel();
+	private final SettingsModelBoolean m_detectOrientationModel = createDetectOrientationModel();
+	private final SettingsModelDoubleBounded m_blankPageInkModel = createBlankPageInkModel();
+	private final SettingsModelString m_binarizationModel = createBinarizationModel();
+	private final SettingsModelIntegerBounded m_sauvolaWindowModel = createSauvolaWindowModel();
+	private final SettingsModelDoubleBounded m_sauvolaKModel = createSauvolaKModel();
+	private final SettingsModelString m_languageCandidatesModel = createLanguageCandidatesModel();
+
+	/**
+	 * Creates a SettingsModel for the image column to run OCR on
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createColumnModel() {
+		return new SettingsModelString("column_selection", "");
+	}
+
+	/**
+	 * Creates a SettingsModel for the column creation mode, see
+	 * {@link #COL_CREATION_MODES}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createColCreationModeModel() {
+		return new SettingsModelString("CFG_CREATION_MODE", COL_CREATION_MODES[0]);
+	}
+
+	/**
+	 * Creates a SettingsModel for the suffix of the result column
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createColSuffixModel() {
+		return new SettingsModelString("Column suffix", "");
+	}
+
+	/**
+	 * Creates a SettingsModel for the plane mode, see {@link #PLANE_MODES}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createPlaneModeModel() {
+		return new SettingsModelString("PlaneMode", PLANE_MODES[0]);
+	}
+
+	/**
+	 * Creates a SettingsModel for the axis to iterate planes along, see
+	 * {@link #PLANE_AXES}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createPlaneAxisModel() {
+		return new SettingsModelString("PlaneAxis", PLANE_AXES[0]);
+	}
+
+	/**
+	 * Creates a SettingsModel for the optional labeling column defining the
+	 * regions to recognize
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createRegionColumnModel() {
+		return new SettingsModelString("RegionColumn", "");
+	}
+
+	/**
+	 * Creates a SettingsModel for the level of layout elements to output, see
+	 * {@link #LAYOUT_LEVELS}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createLayoutLevelModel() {
+		return new SettingsModelString("LayoutLevel", LAYOUT_LEVELS[0]);
+	}
+
+	/**
+	 * Creates SettingsModels for whether to output each of the
+	 * {@link #OUTPUT_FORMATS}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean[] createOutputFormatModels() {
+		return new SettingsModelBoolean[] { new SettingsModelBoolean("OutputHocr", false),
+				new SettingsModelBoolean("OutputTsv", false), new SettingsModelBoolean("OutputAlto", false) };
+	}
+
+	/**
+	 * Creates a SettingsModel for whether to output the mean confidence of
+	 * each page
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean createOutputConfidenceModel() {
+		return new SettingsModelBoolean("OutputConfidence", false);
+	}
+
+	/**
+	 * Creates a SettingsModel for the mean confidence below which pages are
+	 * rejected, 0 to keep all pages
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createMinConfidenceModel() {
+		return new SettingsModelIntegerBounded("MinConfidence", 0, 0, 100);
+	}
 
 	/**
 	 * Creates a SetingsModel for the Tesseract Language
@@ -77,6 +239,16 @@ public class Tess4JNodeSettings {
 		return new SettingsModelBoolean("Deskew", true);
 	}
 
+	/**
+	 * Creates a SettingsModel for the deskew backend, see
+	 * {@link #DESKEW_BACKENDS}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createDeskewBackendModel() {
+		return new SettingsModelString("DeskewBackend", DESKEW_BACKENDS[0]);
+	}
+
 	/**
 	 * Creates a SettingsModel for the advanced tesseract config key-value pair
 	 * list
@@ -87,6 +259,165 @@ public class Tess4JNodeSettings {
 		return new SettingsModelStringArray("TessConfig", new String[] {});
 	}
 
+	/**
+	 * Creates a SettingsModel for the number of Tesseract instances recognizing
+	 * images in parallel
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createNumWorkersModel() {
+		return new SettingsModelIntegerBounded("NumWorkers", Runtime.getRuntime().availableProcessors(), 1,
+				Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a SettingsModel for the maximum size in MB of native page buffers
+	 * kept for reuse per worker
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createPageBufferCapModel() {
+		return new SettingsModelIntegerBounded("PageBufferCap", 64, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a SettingsModel for whether to cache results on disk
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean createResultCacheModel() {
+		return new SettingsModelBoolean("ResultCache", false);
+	}
+
+	/**
+	 * Creates a SettingsModel for the directory of the result cache, empty for
+	 * the default directory
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createResultCacheDirectoryModel() {
+		return new SettingsModelString("ResultCacheDirectory", "");
+	}
+
+	/**
+	 * Creates a SettingsModel for the maximum size of the result cache in MB
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createResultCacheSizeModel() {
+		return new SettingsModelIntegerBounded("ResultCacheSize", 512, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a SettingsModel for whether to recognize only rows which are new
+	 * or changed since the last execution
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean createIncrementalModel() {
+		return new SettingsModelBoolean("Incremental", false);
+	}
+
+	/**
+	 * Creates a SettingsModel for whether to log the key, number of pages and
+	 * latency of every row at debug level
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean createRowDiagnosticsModel() {
+		return new SettingsModelBoolean("RowDiagnostics", false);
+	}
+
+	/**
+	 * Creates a SettingsModel for the number of small images to recognize
+	 * together on a composite page, 1 to recognize every image on its own
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createBatchSizeModel() {
+		return new SettingsModelIntegerBounded("BatchSize", 1, 1, 1000);
+	}
+
+	/**
+	 * Creates a SettingsModel for the resolution in dpi to rescale pages to
+	 * before recognition, 0 to not rescale
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createTargetResolutionModel() {
+		return new SettingsModelIntegerBounded("TargetResolution", 0, 0, 1200);
+	}
+
+	/**
+	 * Creates a SettingsModel for whether to skip recognition of pages
+	 * without ink
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean createSkipBlankPagesModel() {
+		return new SettingsModelBoolean("SkipBlankPages", false);
+	}
+
+	/**
+	 * Creates a SettingsModel for whether to rotate pages upright by
+	 * multiples of 90 degrees before recognition
+	 * 
+	 * @return
+	 */
+	public static SettingsModelBoolean createDetectOrientationModel() {
+		return new SettingsModelBoolean("DetectOrientation", false);
+	}
+
+	/**
+	 * Creates a SettingsModel for the maximum share of ink in percent of a
+	 * page which is considered blank
+	 * 
+	 * @return
+	 */
+	public static SettingsModelDoubleBounded createBlankPageInkModel() {
+		return new SettingsModelDoubleBounded("BlankPageInk", 0.05, 0, 100);
+	}
+
+	/**
+	 * Creates a SettingsModel for the binarization method, see
+	 * {@link #BINARIZATIONS}
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createBinarizationModel() {
+		return new SettingsModelString("Binarization", BINARIZATIONS[0]);
+	}
+
+	/**
+	 * Creates a SettingsModel for the window size of Sauvola binarization in
+	 * pixels
+	 * 
+	 * @return
+	 */
+	public static SettingsModelIntegerBounded createSauvolaWindowModel() {
+		return new SettingsModelIntegerBounded("SauvolaWindow", 101, 3, 999);
+	}
+
+	/**
+	 * Creates a SettingsModel for the sensitivity k of Sauvola binarization
+	 * 
+	 * @return
+	 */
+	public static SettingsModelDoubleBounded createSauvolaKModel() {
+		return new SettingsModelDoubleBounded("SauvolaK", 0.34, 0.01, 1);
+	}
+
+	/**
+	 * Creates a SettingsModel for the languages to choose from per page,
+	 * separated by "+", empty to recognize every page with the configured
+	 * language
+	 * 
+	 * @return
+	 */
+	public static SettingsModelString createLanguageCandidatesModel() {
+		return new SettingsModelString("LanguageCandidates", "");
+	}
+
 	/**
 	 * Add settings to settingsModels.
 	 * 
@@ -101,6 +432,64 @@ public class Tess4JNodeSettings {
 		settingsModels.add(m_advancedConfig);
 	}
 
+	/**
+	 * Add settings which were introduced after the first release to
+	 * settingsModels. These may be missing in settings of existing workflows
+	 * and then keep their default values.
+	 * 
+	 * @param settingsModels
+	 */
+	public void addOptionalSettingsModels(final List<SettingsModel> settingsModels) {
+		settingsModels.add(m_columnModel);
+		settingsModels.add(m_colCreationModeModel);
+		settingsModels.add(m_colSuffixModel);
+		settingsModels.add(m_planeModeModel);
+		settingsModels.add(m_planeAxisModel);
+		settingsModels.add(m_regionColumnModel);
+		settingsModels.add(m_layoutLevelModel);
+		settingsModels.addAll(Arrays.asList(m_outputFormatModels));
+		settingsModels.add(m_outputConfidenceModel);
+		settingsModels.add(m_minConfidenceModel);
+		settingsModels.add(m_deskewBackendModel);
+		settingsModels.add(m_numWorkersModel);
+		settingsModels.add(m_pageBufferCapModel);
+		settingsModels.add(m_resultCacheModel);
+		settingsModels.add(m_resultCacheDirectoryModel);
+		settingsModels.add(m_resultCacheSizeModel);
+		settingsModels.add(m_incrementalModel);
+		settingsModels.add(m_rowDiagnosticsModel);
+		settingsModels.add(m_batchSizeModel);
+		settingsModels.add(m_targetResolutionModel);
+		settingsModels.add(m_skipBlankPagesModel);
+		settingsModels.add(m_detectOrientationModel);
+		settingsModels.add(m_blankPageInkModel);
+		settingsModels.add(m_binarizationModel);
+		settingsModels.add(m_sauvolaWindowModel);
+		settingsModels.add(m_sauvolaKModel);
+		settingsModels.add(m_languageCandidatesModel);
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the image column.
+	 */
+	public SettingsModelString columnModel() {
+		return m_columnModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the column creation mode.
+	 */
+	public SettingsModelString colCreationModeModel() {
+		return m_colCreationModeModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the result column suffix.
+	 */
+	public SettingsModelString colSuffixModel() {
+		return m_colSuffixModel;
+	}
+
 	/**
 	 * @return language {@link SettingsModel}.
 	 */
@@ -136,6 +525,13 @@ public class Tess4JNodeSettings {
 		return m_deskewModel;
 	}
 
+	/**
+	 * @return {@link SettingsModel} for the deskew backend.
+	 */
+	public SettingsModelString deskewBackendModel() {
+		return m_deskewBackendModel;
+	}
+
 	/**
 	 * @return {@link SettingsModel} for advanced tesseract config key-value
 	 *         pairs.
@@ -144,6 +540,457 @@ public class Tess4JNodeSettings {
 		return m_advancedConfig;
 	}
 
+	/**
+	 * @return {@link SettingsModel} for the number of parallel Tesseract
+	 *         instances.
+	 */
+	public SettingsModelIntegerBounded numWorkersModel() {
+		return m_numWorkersModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the page buffer cap in MB.
+	 */
+	public SettingsModelIntegerBounded pageBufferCapModel() {
+		return m_pageBufferCapModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for whether to cache results on disk.
+	 */
+	public SettingsModelBoolean resultCacheModel() {
+		return m_resultCacheModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the result cache directory.
+	 */
+	public SettingsModelString resultCacheDirectoryModel() {
+		return m_resultCacheDirectoryModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the result cache size in MB.
+	 */
+	public SettingsModelIntegerBounded resultCacheSizeModel() {
+		return m_resultCacheSizeModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for whether to recognize only new or
+	 *         changed rows.
+	 */
+	public SettingsModelBoolean incrementalModel() {
+		return m_incrementalModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for whether to log every row.
+	 */
+	public SettingsModelBoolean rowDiagnosticsModel() {
+		return m_rowDiagnosticsModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the number of images per composite
+	 *         page.
+	 */
+	public SettingsModelIntegerBounded batchSizeModel() {
+		return m_batchSizeModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the target resolution.
+	 */
+	public SettingsModelIntegerBounded targetResolutionModel() {
+		return m_targetResolutionModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for whether to skip blank pages.
+	 */
+	public SettingsModelBoolean skipBlankPagesModel() {
+		return m_skipBlankPagesModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for whether to detect the orientation of
+	 *         pages.
+	 */
+	public SettingsModelBoolean detectOrientationModel() {
+		return m_detectOrientationModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the maximum ink of a blank page.
+	 */
+	public SettingsModelDoubleBounded blankPageInkModel() {
+		return m_blankPageInkModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the binarization method.
+	 */
+	public SettingsModelString binarizationModel() {
+		return m_binarizationModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the Sauvola window size.
+	 */
+	public SettingsModelIntegerBounded sauvolaWindowModel() {
+		return m_sauvolaWindowModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the Sauvola sensitivity.
+	 */
+	public SettingsModelDoubleBounded sauvolaKModel() {
+		return m_sauvolaKModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the language candidates.
+	 */
+	public SettingsModelString languageCandidatesModel() {
+		return m_languageCandidatesModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the plane mode.
+	 */
+	public SettingsModelString planeModeModel() {
+		return m_planeModeModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the plane axis.
+	 */
+	public SettingsModelString planeAxisModel() {
+		return m_planeAxisModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the region labeling column.
+	 */
+	public SettingsModelString regionColumnModel() {
+		return m_regionColumnModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the layout level.
+	 */
+	public SettingsModelString layoutLevelModel() {
+		return m_layoutLevelModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel}s for whether to output each of the
+	 *         {@link #OUTPUT_FORMATS}.
+	 */
+	public SettingsModelBoolean[] outputFormatModels() {
+		return m_outputFormatModels;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for whether to output the mean confidence.
+	 */
+	public SettingsModelBoolean outputConfidenceModel() {
+		return m_outputConfidenceModel;
+	}
+
+	/**
+	 * @return {@link SettingsModel} for the minimum mean confidence.
+	 */
+	public SettingsModelIntegerBounded minConfidenceModel() {
+		return m_minConfidenceModel;
+	}
+
+	/**
+	 * @return name of the image column.
+	 */
+	public String getColumn() {
+		return columnModel().getStringValue();
+	}
+
+	/**
+	 * @return the column creation mode, one of {@link #COL_CREATION_MODES}.
+	 */
+	public String getColCreationMode() {
+		return colCreationModeModel().getStringValue();
+	}
+
+	/**
+	 * @return suffix for the result column name.
+	 */
+	public String getColSuffix() {
+		return colSuffixModel().getStringValue();
+	}
+
+	/**
+	 * @return name of the labeling column defining the regions to recognize,
+	 *         empty or <code>null</code> to recognize whole pages.
+	 */
+	public String getRegionColumn() {
+		return regionColumnModel().getStringValue();
+	}
+
+	/**
+	 * @return the plane mode, one of {@link #PLANE_MODES}.
+	 */
+	public String getPlaneMode() {
+		return planeModeModel().getStringValue();
+	}
+
+	/**
+	 * @return label of the axis to iterate planes along.
+	 */
+	public String getPlaneAxis() {
+		return planeAxisModel().getStringValue();
+	}
+
+	/**
+	 * @return the Tesseract page iterator level to output layout elements of,
+	 *         <code>-1</code> if no layout elements are output.
+	 */
+	public int getLayoutLevel() {
+		return Arrays.asList(LAYOUT_LEVELS).indexOf(layoutLevelModel().getStringValue()) - 1;
+	}
+
+	/**
+	 * @return the selected {@link #OUTPUT_FORMATS} in their original order.
+	 */
+	public String[] getOutputFormats() {
+		final List<String> formats = new ArrayList<>();
+		for (int i = 0; i < OUTPUT_FORMATS.length; ++i) {
+			if (m_outputFormatModels[i].getBooleanValue()) {
+				formats.add(OUTPUT_FORMATS[i]);
+			}
+		}
+		return formats.toArray(new String[formats.size()]);
+	}
+
+	/**
+	 * @return whether to output the mean confidence of each page.
+	 */
+	public boolean outputConfidence() {
+		return outputConfidenceModel().getBooleanValue();
+	}
+
+	/**
+	 * @return mean confidence below which pages are rejected, 0 to keep all
+	 *         pages.
+	 */
+	public int getMinConfidence() {
+		return minConfidenceModel().getIntValue();
+	}
+
+	/**
+	 * @return number of Tesseract instances to run in parallel.
+	 */
+	public int getNumWorkers() {
+		return numWorkersModel().getIntValue();
+	}
+
+	/**
+	 * @return maximum bytes of native page buffers each worker keeps for reuse.
+	 */
+	public long getPageBufferCapBytes() {
+		return pageBufferCapModel().getIntValue() * 1024L * 1024L;
+	}
+
+	/**
+	 * @return whether to cache results on disk.
+	 */
+	public boolean useResultCache() {
+		return resultCacheModel().getBooleanValue();
+	}
+
+	/**
+	 * @return directory of the result cache, the "tess4j-cache" directory in
+	 *         the KNIME home directory if not set.
+	 */
+	public File getResultCacheDirectory() {
+		final String dir = resultCacheDirectoryModel().getStringValue();
+		if (dir == null || dir.trim().isEmpty()) {
+			return new File(KNIMEConstants.getKNIMEHomeDir(), "tess4j-cache");
+		}
+		return new File(dir.trim());
+	}
+
+	/**
+	 * @return maximum bytes the result cache may occupy on disk.
+	 */
+	public long getResultCacheSizeBytes() {
+		return resultCacheSizeModel().getIntValue() * 1024L * 1024L;
+	}
+
+	/**
+	 * @return whether to reuse the results of the last execution for rows
+	 *         whose key and image are unchanged.
+	 */
+	public boolean useIncremental() {
+		return incrementalModel().getBooleanValue();
+	}
+
+	/**
+	 * @return whether to log the key, number of pages and latency of every row
+	 *         at debug level.
+	 */
+	public boolean logRowDiagnostics() {
+		return rowDiagnosticsModel().getBooleanValue();
+	}
+
+	/**
+	 * @return number of small images to recognize together on a composite
+	 *         page, 1 if images are recognized on their own.
+	 */
+	public int getBatchSize() {
+		return batchSizeModel().getIntValue();
+	}
+
+	/**
+	 * @return resolution in dpi to rescale pages to before recognition, 0 if
+	 *         pages are not rescaled.
+	 */
+	public int getTargetResolution() {
+		return targetResolutionModel().getIntValue();
+	}
+
+	/**
+	 * @return whether pages without ink are output as blank instead of being
+	 *         recognized.
+	 */
+	public boolean skipBlankPages() {
+		return skipBlankPagesModel().getBooleanValue();
+	}
+
+	/**
+	 * @return whether pages rotated by 90, 180 or 270 degrees are rotated
+	 *         upright before recognition.
+	 */
+	public boolean detectOrientation() {
+		return detectOrientationModel().getBooleanValue();
+	}
+
+	/**
+	 * @return maximum share of ink of a blank page between 0 and 1, see
+	 *         {@link org.knime.knip.tess4j.base.image.BlankPageDetector}.
+	 */
+	public double getBlankPageInk() {
+		return blankPageInkModel().getDoubleValue() / 100;
+	}
+
+	/**
+	 * @return the binarization method, one of {@link #BINARIZATIONS}.
+	 */
+	public String getBinarization() {
+		return binarizationModel().getStringValue();
+	}
+
+	/**
+	 * @return whether pages are binarized before they are passed to
+	 *         Tesseract, instead of by Tesseract.
+	 */
+	public boolean useBinarization() {
+		return !getBinarization().equals(BINARIZATIONS[0]);
+	}
+
+	/**
+	 * @return side length of the window of Sauvola binarization in pixels.
+	 */
+	public int getSauvolaWindow() {
+		return sauvolaWindowModel().getIntValue();
+	}
+
+	/**
+	 * @return sensitivity k of Sauvola binarization.
+	 */
+	public double getSauvolaK() {
+		return sauvolaKModel().getDoubleValue();
+	}
+
+	/**
+	 * @return languages to choose from per page, empty if every page is
+	 *         recognized with the configured language.
+	 */
+	public String[] getLanguageCandidates() {
+		final List<String> candidates = new ArrayList<>();
+		for (final String candidate : languageCandidatesModel().getStringValue().split("\\+")) {
+			if (!candidate.trim().isEmpty()) {
+				candidates.add(candidate.trim());
+			}
+		}
+		return candidates.toArray(new String[candidates.size()]);
+	}
+
+	/**
+	 * Get a string identifying all settings which influence the results of a
+	 * row: the {@link #getResultFingerprint()}, the
+	 * {@link #getModelFingerprint()} and the planes recognized per row.
+	 * 
+	 * @return the fingerprint
+	 */
+	public String getRowFingerprint() {
+		return getResultFingerprint() + "|models=" + getModelFingerprint() + "|planes=" + getPlaneMode() + ","
+				+ getPlaneAxis();
+	}
+
+	/**
+	 * Get a string identifying the model files of the language and language
+	 * candidates, since a replaced model recognizes pages differently, see
+	 * {@link TraineddataRegistry#getModelFingerprint(String, String)}.
+	 * 
+	 * @return the fingerprint
+	 */
+	public String getModelFingerprint() {
+		return TraineddataRegistry.getInstance().getModelFingerprint(getTessdataPath(),
+				getLanguage() + "+" + String.join("+", getLanguageCandidates()));
+	}
+
+	/**
+	 * Get a string identifying all settings which influence the result of
+	 * recognizing a page. Pages recognized with equal fingerprints have equal
+	 * results.
+	 * 
+	 * @return the fingerprint
+	 */
+	public String getResultFingerprint() {
+		final StringBuilder fingerprint = new StringBuilder();
+		fingerprint.append(getTessdataPath()).append('|').append(getLanguage()).append('|')
+				.append(getOcrEngineMode()).append('|').append(getPageSegMode());
+		for (final Pair<String, String> variable : tessAdvancedConfig()) {
+			fingerprint.append('|').append(variable.getFirst()).append('=').append(variable.getSecond());
+		}
+		fingerprint.append("|deskew=").append(useDeskew() ? deskewBackendModel().getStringValue() : "off");
+		fingerprint.append("|layout=").append(getLayoutLevel());
+		fingerprint.append("|formats=").append(Arrays.toString(getOutputFormats()));
+		fingerprint.append("|confidence=").append(outputConfidence()).append(',').append(getMinConfidence());
+		if (getTargetResolution() > 0) {
+			fingerprint.append("|dpi=").append(getTargetResolution());
+		}
+		if (detectOrientation()) {
+			fingerprint.append("|orientation");
+		}
+		if (skipBlankPages()) {
+			fingerprint.append("|blank=").append(blankPageInkModel().getDoubleValue());
+		}
+		if (useBinarization()) {
+			fingerprint.append("|binarize=").append(getBinarization());
+			if (getBinarization().equals(BINARIZATIONS[2])) {
+				fingerprint.append(',').append(getSauvolaWindow()).append(',').append(getSauvolaK());
+			}
+		}
+		if (getLanguageCandidates().length > 0) {
+			fingerprint.append("|candidates=").append(String.join("+", getLanguageCandidates()));
+		}
+		if (getBatchSize() > 1) {
+			// text of tiled images is read from a composite page
+			fingerprint.append("|batched");
+		}
+		return fingerprint.toString();
+	}
+
 	/**
 	 * @return the language to use for OCR.
 	 */
@@ -184,6 +1031,13 @@ public class Tess4JNodeSettings {
 		return deskewModel().getBooleanValue();
 	}
 
+	/**
+	 * @return whether to deskew with Leptonica instead of Java.
+	 */
+	public boolean useNativeDeskew() {
+		return deskewBackendModel().getStringValue().equals(DESKEW_BACKENDS[1]);
+	}
+
 	/**
 	 * @return the tesseract configuration key-value pairs
 	 */
@@ -191,6 +1045,15 @@ public class Tess4JNodeSettings {
 		return toTessConfigPairs(m_advancedConfig.getStringArrayValue());
 	}
 
+	/**
+	 * @return the configuration for Tesseract engines as defined by these
+	 *         settings.
+	 */
+	public TessEngineConfig createEngineConfig() {
+		return new TessEngineConfig(getTessdataPath(), getLanguage(), getOcrEngineMode(), getPageSegMode(),
+				tessAdvancedConfig());
+	}
+
 	/**
 	 * Turn an array of strings into a ArrayList of String pairs by splitting at
 	 * the first ' '.
@@ -0,0 +1,523 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.Rectangle;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.knime.knip.tess4j.base.engine.TessEngine;
+
+import com.sun.jna.Pointer;
+
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
+import net.sourceforge.tess4j.TessAPI;
+
+/**
+ * Renders the result of the last recognition of a {@link TessEngine} in the
+ * output formats of {@link Tess4JNodeSettings#OUTPUT_FORMATS}.
+ *
+ * hOCR is rendered by Tesseract itself. The bundled Tesseract version has no
+ * TSV and ALTO renderers, so these are written from a single walk over the
+ * words of the page, following the layout of the renderers of later Tesseract
+ * versions. None of the formats recognize the page again. Word text in TSV
+ * is escaped, see {@link #appendTsvEscaped(StringBuilder, String)}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JPageFormatter {
+
+	private static final int LEVEL_PAGE = 1;
+	private static final int LEVEL_BLOCK = 2;
+	private static final int LEVEL_PARA = 3;
+	private static final int LEVEL_LINE = 4;
+	private static final int LEVEL_WORD = 5;
+
+	/* titles of hOCR elements, which hold their properties separated by "; " */
+	private static final Pattern HOCR_TITLE = Pattern.compile("title=(?:'([^']*)'|\"([^\"]*)\")");
+
+	/* bounding boxes, font metrics and baselines among the properties of hOCR elements */
+	private static final Pattern HOCR_PROPERTY = Pattern.compile(
+			"(?:^|(?<=; ))(?:bbox (\\d+) (\\d+) (\\d+) (\\d+)|(x_size|x_descenders|x_ascenders) ([\\d.]+)"
+					+ "|baseline (-?[\\d.]+) (-?[\\d.]+))");
+
+	private final TessEngine m_engine;
+	private final int m_width;
+	private final int m_height;
+	private final double m_scale;
+
+	/* page layout, only read from tesseract if TSV or ALTO is requested */
+	private List<Entry> m_entries = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param engine
+	 *            the engine which recognized the page
+	 * @param width
+	 *            width of the page
+	 * @param height
+	 *            height of the page
+	 */
+	public Tess4JPageFormatter(final TessEngine engine, final int width, final int height) {
+		this(engine, width, height, 1d);
+	}
+
+	/**
+	 * Constructor for a page which was rescaled before recognition. Bounding
+	 * boxes in all formats are mapped back to the original page, in hOCR
+	 * together with the font metrics and baselines of the lines.
+	 *
+	 * @param engine
+	 *            the engine which recognized the page
+	 * @param width
+	 *            width of the original page
+	 * @param height
+	 *            height of the original page
+	 * @param scale
+	 *            factor the page was rescaled by
+	 */
+	public Tess4JPageFormatter(final TessEngine engine, final int width, final int height, final double scale) {
+		m_engine = engine;
+		m_width = width;
+		m_height = height;
+		m_scale = scale;
+	}
+
+	/**
+	 * Render the page in several formats.
+	 *
+	 * @param formats
+	 *            formats to render, see
+	 *            {@link Tess4JNodeSettings#OUTPUT_FORMATS}
+	 * @return the rendered page per format
+	 */
+	public String[] format(final String[] formats) {
+		final String[] results = new String[formats.length];
+		for (int i = 0; i < formats.length; ++i) {
+			if (formats[i].equals(Tess4JNodeSettings.OUTPUT_FORMATS[0])) {
+				results[i] = hocr();
+			} else if (formats[i].equals(Tess4JNodeSettings.OUTPUT_FORMATS[1])) {
+				results[i] = tsv();
+			} else if (formats[i].equals(Tess4JNodeSettings.OUTPUT_FORMATS[2])) {
+				results[i] = alto();
+			} else {
+				throw new IllegalArgumentException("Unknown output format: " + formats[i]);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * @return the page as hOCR.
+	 */
+	public String hocr() {
+		String result = "";
+
+		final Pointer hocrText = m_engine.getAPI().TessBaseAPIGetHOCRText(m_engine.getHandle(), 0);
+		if (hocrText != null) {
+			result = hocrText.getString(0);
+			m_engine.getAPI().TessDeleteText(hocrText);
+		}
+
+		return unscaleHocr(result, m_scale, m_width, m_height);
+	}
+
+	/**
+	 * Map the coordinates in hOCR rendered by Tesseract for a rescaled page
+	 * back to the original page: bounding boxes, the font metrics x_size,
+	 * x_descenders and x_ascenders and the offsets of baselines. Only the
+	 * titles of elements are changed, never the recognized text.
+	 *
+	 * @param hocr
+	 *            hOCR of the rescaled page
+	 * @param scale
+	 *            factor the page was rescaled by
+	 * @param width
+	 *            width of the original page, bounding boxes are clipped to it
+	 * @param height
+	 *            height of the original page, bounding boxes are clipped to it
+	 * @return hOCR of the original page
+	 */
+	static String unscaleHocr(final String hocr, final double scale, final int width, final int height) {
+		if (scale == 1d) {
+			return hocr;
+		}
+		final Matcher titles = HOCR_TITLE.matcher(hocr);
+		final StringBuffer unscaled = new StringBuffer(hocr.length());
+		while (titles.find()) {
+			final String quote = titles.group(1) != null ? "'" : "\"";
+			final String title = titles.group(1) != null ? titles.group(1) : titles.group(2);
+			titles.appendReplacement(unscaled, Matcher.quoteReplacement(
+					"title=" + quote + unscaleHocrProperties(title, scale, width, height) + quote));
+		}
+		titles.appendTail(unscaled);
+		return unscaled.toString();
+	}
+
+	private static String unscaleHocrProperties(final String title, final double scale, final int width,
+			final int height) {
+		final Matcher matcher = HOCR_PROPERTY.matcher(title);
+		final StringBuffer unscaled = new StringBuffer(title.length());
+		while (matcher.find()) {
+			final String replacement;
+			if (matcher.group(1) != null) {
+				final int left = Integer.parseInt(matcher.group(1));
+				final int top = Integer.parseInt(matcher.group(2));
+				final Rectangle bounds = unscale(new Rectangle(left, top, Integer.parseInt(matcher.group(3)) - left,
+						Integer.parseInt(matcher.group(4)) - top), scale);
+				replacement = "bbox " + bounds.x + " " + bounds.y + " " + Math.min(bounds.x + bounds.width, width)
+						+ " " + Math.min(bounds.y + bounds.height, height);
+			} else if (matcher.group(5) != null) {
+				replacement = matcher.group(5) + " " + format(Double.parseDouble(matcher.group(6)) / scale);
+			} else {
+				// the slope is the same on both pages
+				replacement = "baseline " + matcher.group(7) + " "
+						+ format(Double.parseDouble(matcher.group(8)) / scale);
+			}
+			matcher.appendReplacement(unscaled, replacement);
+		}
+		matcher.appendTail(unscaled);
+		return unscaled.toString();
+	}
+
+	private static String format(final double value) {
+		return value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.2f", value);
+	}
+
+	/**
+	 * @return the page as tab separated values with one row per page, block,
+	 *         paragraph, line and word.
+	 */
+	public String tsv() {
+		final StringBuilder tsv = new StringBuilder(
+				"level\tpage_num\tblock_num\tpar_num\tline_num\tword_num\tleft\ttop\twidth\theight\tconf\ttext\n");
+		tsv.append(LEVEL_PAGE).append("\t1\t0\t0\t0\t0\t0\t0\t").append(m_width).append('\t').append(m_height)
+				.append("\t-1\t\n");
+
+		for (final Entry entry : entries()) {
+			tsv.append(entry.m_level).append("\t1\t").append(entry.m_block).append('\t').append(entry.m_para)
+					.append('\t').append(entry.m_line).append('\t').append(entry.m_word).append('\t')
+					.append(entry.m_bounds.x).append('\t').append(entry.m_bounds.y).append('\t')
+					.append(entry.m_bounds.width).append('\t').append(entry.m_bounds.height).append('\t');
+			if (entry.m_level == LEVEL_WORD) {
+				tsv.append((int) entry.m_confidence).append('\t');
+				appendTsvEscaped(tsv, entry.m_text);
+			} else {
+				tsv.append("-1\t");
+			}
+			tsv.append('\n');
+		}
+		return tsv.toString();
+	}
+
+	/**
+	 * @return the page as ALTO XML with text blocks, lines and strings.
+	 */
+	public String alto() {
+		final StringBuilder alto = new StringBuilder();
+		alto.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+				.append("<alto xmlns=\"http://www.loc.gov/standards/alto/ns-v3#\">\n")
+				.append("\t<Description>\n\t\t<MeasurementUnit>pixel</MeasurementUnit>\n")
+				.append("\t\t<OCRProcessing ID=\"OCR_0\">\n\t\t\t<ocrProcessingStep>\n")
+				.append("\t\t\t\t<processingSoftware>\n\t\t\t\t\t<softwareName>tesseract</softwareName>\n")
+				.append("\t\t\t\t</processingSoftware>\n\t\t\t</ocrProcessingStep>\n\t\t</OCRProcessing>\n")
+				.append("\t</Description>\n\t<Layout>\n");
+		alto.append("\t\t<Page ID=\"page_0\" PHYSICAL_IMG_NR=\"0\" WIDTH=\"").append(m_width).append("\" HEIGHT=\"")
+				.append(m_height).append("\">\n");
+		alto.append("\t\t\t<PrintSpace HPOS=\"0\" VPOS=\"0\" WIDTH=\"").append(m_width).append("\" HEIGHT=\"")
+				.append(m_height).append("\">\n");
+
+		boolean inBlock = false;
+		boolean inLine = false;
+		int blockId = 0;
+		int lineId = 0;
+		int stringId = 0;
+		for (final Entry entry : entries()) {
+			if (entry.m_level == LEVEL_BLOCK) {
+				if (inLine) {
+					alto.append("\t\t\t\t\t</TextLine>\n");
+					inLine = false;
+				}
+				if (inBlock) {
+					alto.append("\t\t\t\t</TextBlock>\n");
+				}
+				alto.append("\t\t\t\t<TextBlock ID=\"block_").append(blockId++).append('"');
+				appendPosition(alto, entry.m_bounds).append(">\n");
+				inBlock = true;
+			} else if (entry.m_level == LEVEL_LINE) {
+				if (inLine) {
+					alto.append("\t\t\t\t\t</TextLine>\n");
+				}
+				alto.append("\t\t\t\t\t<TextLine ID=\"line_").append(lineId++).append('"');
+				appendPosition(alto, entry.m_bounds).append(">\n");
+				inLine = true;
+			} else if (entry.m_level == LEVEL_WORD) {
+				if (entry.m_word > 1) {
+					alto.append("\t\t\t\t\t\t<SP/>\n");
+				}
+				alto.append("\t\t\t\t\t\t<String ID=\"string_").append(stringId++).append('"');
+				appendPosition(alto, entry.m_bounds).append(" WC=\"")
+						.append(String.format(Locale.ROOT, "%.2f", entry.m_confidence / 100f))
+						.append("\" CONTENT=\"");
+				appendEscaped(alto, entry.m_text).append("\"/>\n");
+			}
+		}
+		if (inLine) {
+			alto.append("\t\t\t\t\t</TextLine>\n");
+		}
+		if (inBlock) {
+			alto.append("\t\t\t\t</TextBlock>\n");
+		}
+
+		alto.append("\t\t\t</PrintSpace>\n\t\t</Page>\n\t</Layout>\n</alto>\n");
+		return alto.toString();
+	}
+
+	private static StringBuilder appendPosition(final StringBuilder builder, final Rectangle bounds) {
+		return builder.append(" HPOS=\"").append(bounds.x).append("\" VPOS=\"").append(bounds.y)
+				.append("\" WIDTH=\"").append(bounds.width).append("\" HEIGHT=\"").append(bounds.height)
+				.append('"');
+	}
+
+	/**
+	 * Append text to a TSV field, escaping backslashes, tabs and line breaks
+	 * with a backslash so that they do not split the field or the row.
+	 *
+	 * @param builder
+	 *            the TSV to append to
+	 * @param text
+	 *            text of a word
+	 * @return the builder
+	 */
+	static StringBuilder appendTsvEscaped(final StringBuilder builder, final String text) {
+		for (int i = 0; i < text.length(); ++i) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			default:
+				builder.append(c);
+			}
+		}
+		return builder;
+	}
+
+	private static StringBuilder appendEscaped(final StringBuilder builder, final String text) {
+		for (int i = 0; i < text.length(); ++i) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				builder.append("&lt;");
+				break;
+			case '>':
+				builder.append("&gt;");
+				break;
+			case '&':
+				builder.append("&amp;");
+				break;
+			case '"':
+				builder.append("&quot;");
+				break;
+			case '\'':
+				builder.append("&apos;");
+				break;
+			default:
+				builder.append(c);
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * Walk the words of the page once, adding an entry for every block,
+	 * paragraph and line where a word starts one.
+	 */
+	private List<Entry> entries() {
+		if (m_entries != null) {
+			return m_entries;
+		}
+		m_entries = new ArrayList<>();
+
+		final TessAPI api = m_engine.getAPI();
+		final TessResultIterator it = api.TessBaseAPIGetIterator(m_engine.getHandle());
+		if (it == null) {
+			// nothing was recognized
+			return m_entries;
+		}
+
+		final TessPageIterator pageIt = api.TessResultIteratorGetPageIterator(it);
+		int block = 0;
+		int para = 0;
+		int line = 0;
+		int word = 0;
+		try {
+			do {
+				final Pointer utf8Text = api.TessResultIteratorGetUTF8Text(it, TessPageIteratorLevel.RIL_WORD);
+				if (utf8Text == null) {
+					continue;
+				}
+				final String text = utf8Text.getString(0);
+				api.TessDeleteText(utf8Text);
+
+				if (api.TessPageIteratorIsAtBeginningOf(pageIt, TessPageIteratorLevel.RIL_BLOCK) == ITessAPI.TRUE) {
+					++block;
+					para = line = word = 0;
+					m_entries.add(new Entry(LEVEL_BLOCK, block, para, line, word,
+							bounds(api, pageIt, TessPageIteratorLevel.RIL_BLOCK), -1, null));
+				}
+				if (api.TessPageIteratorIsAtBeginningOf(pageIt, TessPageIteratorLevel.RIL_PARA) == ITessAPI.TRUE) {
+					++para;
+					line = word = 0;
+					m_entries.add(new Entry(LEVEL_PARA, block, para, line, word,
+							bounds(api, pageIt, TessPageIteratorLevel.RIL_PARA), -1, null));
+				}
+				if (api.TessPageIteratorIsAtBeginningOf(pageIt,
+						TessPageIteratorLevel.RIL_TEXTLINE) == ITessAPI.TRUE) {
+					++line;
+					word = 0;
+					m_entries.add(new Entry(LEVEL_LINE, block, para, line, word,
+							bounds(api, pageIt, TessPageIteratorLevel.RIL_TEXTLINE), -1, null));
+				}
+
+				++word;
+				m_entries.add(new Entry(LEVEL_WORD, block, para, line, word,
+						bounds(api, pageIt, TessPageIteratorLevel.RIL_WORD),
+						api.TessResultIteratorConfidence(it, TessPageIteratorLevel.RIL_WORD), text));
+			} while (api.TessResultIteratorNext(it, TessPageIteratorLevel.RIL_WORD) == ITessAPI.TRUE);
+		} finally {
+			api.TessResultIteratorDelete(it);
+		}
+		return m_entries;
+	}
+
+	/**
+	 * @param api
+	 *            the Tesseract API
+	 * @param pageIt
+	 *            the page iterator
+	 * @param level
+	 *            one of {@link TessPageIteratorLevel}
+	 * @return bounding box of the element of the given level at the current
+	 *         position of the page iterator
+	 */
+	static Rectangle boundingBox(final TessAPI api, final TessPageIterator pageIt, final int level) {
+		final IntBuffer left = IntBuffer.allocate(1);
+		final IntBuffer top = IntBuffer.allocate(1);
+		final IntBuffer right = IntBuffer.allocate(1);
+		final IntBuffer bottom = IntBuffer.allocate(1);
+		api.TessPageIteratorBoundingBox(pageIt, level, left, top, right, bottom);
+		return new Rectangle(left.get(0), top.get(0), right.get(0) - left.get(0), bottom.get(0) - top.get(0));
+	}
+
+	/* bounding box on the original page */
+	private Rectangle bounds(final TessAPI api, final TessPageIterator pageIt, final int level) {
+		return unscale(boundingBox(api, pageIt, level), m_scale);
+	}
+
+	/**
+	 * Map a bounding box on a rescaled page back to the original page.
+	 *
+	 * @param bounds
+	 *            bounding box on the rescaled page
+	 * @param scale
+	 *            factor the page was rescaled by
+	 * @return bounding box on the original page
+	 */
+	static Rectangle unscale(final Rectangle bounds, final double scale) {
+		if (scale == 1d) {
+			return bounds;
+		}
+		final int x = (int) Math.floor(bounds.x / scale);
+		final int y = (int) Math.floor(bounds.y / scale);
+		return new Rectangle(x, y, (int) Math.ceil((bounds.x + bounds.width) / scale) - x,
+				(int) Math.ceil((bounds.y + bounds.height) / scale) - y);
+	}
+
+	/* a block, paragraph, line or word with its position in the page hierarchy */
+	private static final class Entry {
+		final int m_level;
+		final int m_block;
+		final int m_para;
+		final int m_line;
+		final int m_word;
+		final Rectangle m_bounds;
+		final float m_confidence;
+		final String m_text;
+
+		Entry(final int level, final int block, final int para, final int line, final int word,
+				final Rectangle bounds, final float confidence, final String text) {
+			m_level = level;
+			m_block = block;
+			m_para = para;
+			m_line = line;
+			m_word = word;
+			m_bounds = bounds;
+			m_confidence = confidence;
+			m_text = text;
+		}
+	}
+}
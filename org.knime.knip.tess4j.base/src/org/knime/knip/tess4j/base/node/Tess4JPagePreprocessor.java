@@ -0,0 +1,582 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.knime.knip.tess4j.base.engine.TessEngine;
+import org.knime.knip.tess4j.base.image.Binarizer;
+import org.knime.knip.tess4j.base.image.BlankPageDetector;
+import org.knime.knip.tess4j.base.image.Deskewer;
+import org.knime.knip.tess4j.base.image.GreyConverter;
+import org.knime.knip.tess4j.base.image.LeptonicaDeskewer;
+import org.knime.knip.tess4j.base.image.OrientationCorrector;
+import org.knime.knip.tess4j.base.image.PageBufferPool;
+import org.knime.knip.tess4j.base.image.PageBufferStatistics;
+import org.knime.knip.tess4j.base.image.Rescaler;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+import net.sourceforge.lept4j.Pix;
+
+/**
+ * Prepares the pages of a {@link Tess4JWorker} and passes them to its
+ * Tesseract engine: converts a plane to grey values, checks it for ink,
+ * rotates it upright, rescales it to the target resolution, deskews it in
+ * Java or with Leptonica and binarizes it, as configured. Small images are
+ * tiled onto composite pages instead, see {@link #setComposite}.
+ *
+ * Heap and native buffers are reused from page to page, so a preprocessor is
+ * not thread-safe and belongs to a single worker.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JPagePreprocessor<T extends RealType<T>> {
+
+	/** Returned by {@link #setPage} for a blank page, which is not passed to Tesseract */
+	public static final double BLANK_PAGE = 0d;
+
+	/** White space around and between the images on a composite page */
+	public static final int SNIPPET_GAP = 32;
+
+	private static final double MINIMUM_DESKEW_THRESHOLD = 0.05d;
+
+	private final boolean m_nativeDeskew;
+	private final int m_targetDpi;
+	private final double m_blankInk;
+	private final boolean m_detectOrientation;
+	private final boolean m_latinScript;
+	private final String m_binarization;
+	private final int m_sauvolaWindow;
+	private final double m_sauvolaK;
+	private final Tess4JTimings m_timings;
+
+	/* reused for every page, tesseract copies the image in SetImage */
+	private final PageBufferPool m_buffers;
+
+	/* grey values of non 8-bit pages for skew detection and rescaling */
+	private byte[] m_greyPlane = null;
+
+	/* rescaled grey values */
+	private byte[] m_scaledPlane = null;
+
+	/* grey values rotated upright */
+	private byte[] m_rotatedPlane = null;
+
+	/* engine the current page is passed to */
+	private TessEngine m_engine;
+
+	/* orientation of the current page, set by setPage */
+	private int m_orientation = 0;
+
+	/* size of the image last passed to Tesseract */
+	private int m_pageWidth;
+	private int m_pageHeight;
+
+	/**
+	 * Grey values of an image to tile onto a composite page, see
+	 * {@link Tess4JPagePreprocessor#snippet(Img)}.
+	 */
+	static final class Snippet {
+		final byte[] m_grey;
+		final int m_offset;
+		final int m_width;
+		final int m_height;
+		final double m_scale;
+
+		Snippet(final byte[] grey, final int offset, final int width, final int height, final double scale) {
+			m_grey = grey;
+			m_offset = offset;
+			m_width = width;
+			m_height = height;
+			m_scale = scale;
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param settings
+	 *            settings to preprocess the pages with
+	 * @param bufferStatistics
+	 *            statistics to record page buffer usage to
+	 * @param timings
+	 *            timings to record the duration of each stage to
+	 */
+	public Tess4JPagePreprocessor(final Tess4JNodeSettings settings, final PageBufferStatistics bufferStatistics,
+			final Tess4JTimings timings) {
+		m_nativeDeskew = settings.useNativeDeskew();
+		m_targetDpi = settings.getTargetResolution();
+		m_blankInk = settings.skipBlankPages() ? settings.getBlankPageInk() : -1;
+		m_detectOrientation = settings.detectOrientation();
+		m_latinScript = OrientationCorrector
+				.isLatinScript(settings.getLanguage() + "+" + String.join("+", settings.getLanguageCandidates()));
+		m_binarization = settings.useBinarization() ? settings.getBinarization() : null;
+		m_sauvolaWindow = settings.getSauvolaWindow();
+		m_sauvolaK = settings.getSauvolaK();
+		m_timings = timings;
+		m_buffers = new PageBufferPool(settings.getPageBufferCapBytes(), bufferStatistics);
+	}
+
+	/**
+	 * @return orientation of the page last passed by {@link #setPage}, 0 if
+	 *         it was not detected
+	 */
+	public int getOrientation() {
+		return m_orientation;
+	}
+
+	/**
+	 * @return width of the image last passed to Tesseract
+	 */
+	public int getPageWidth() {
+		return m_pageWidth;
+	}
+
+	/**
+	 * @return height of the image last passed to Tesseract
+	 */
+	public int getPageHeight() {
+		return m_pageHeight;
+	}
+
+	/**
+	 * Pass a plane of an image to Tesseract, rotating it upright, rescaling it
+	 * to the target resolution and deskewing it first if requested. If blank
+	 * pages are skipped, a blank plane is not passed to Tesseract. The
+	 * orientation of the plane is available from {@link #getOrientation()}
+	 * afterwards.
+	 *
+	 * @param engine
+	 *            engine to pass the plane to
+	 * @param img
+	 *            the input image
+	 * @param plane
+	 *            index of the plane, see {@link GreyConverter}
+	 * @param deskew
+	 *            whether the plane is deskewed
+	 * @param transform
+	 *            whether the plane may be rotated and rescaled
+	 * @return the factor the plane was rescaled by, {@link #BLANK_PAGE} if it
+	 *         is blank
+	 */
+	public double setPage(final TessEngine engine, final Img<T> img, final long plane, final boolean deskew,
+			final boolean transform) {
+		m_engine = engine;
+		int width = (int) img.dimension(0);
+		int height = (int) img.dimension(1);
+		m_orientation = 0;
+
+		if (transform && (m_targetDpi > 0 || m_detectOrientation)) {
+			byte[] grey = GreyConverter.unsignedBytePlane(img, plane);
+			int offset = GreyConverter.planeOffset(img, plane);
+			if (grey == null) {
+				final long start = System.nanoTime();
+				grey = greyPlane(img, plane, width * height);
+				offset = 0;
+				m_timings.stage(Tess4JTimings.CONVERSION, start);
+			}
+			if (isBlank(grey, offset, width, height)) {
+				return BLANK_PAGE;
+			}
+
+			// before rescaling, which estimates the resolution from horizontal text lines
+			if (m_detectOrientation) {
+				final long start = System.nanoTime();
+				m_orientation = OrientationCorrector.orientation(grey, offset, width, height, m_latinScript);
+				if (m_orientation != 0) {
+					if (m_rotatedPlane == null || m_rotatedPlane.length < width * height) {
+						m_rotatedPlane = new byte[width * height];
+					}
+					OrientationCorrector.rotate(grey, offset, width, height, m_orientation, m_rotatedPlane);
+					grey = m_rotatedPlane;
+					offset = 0;
+					if (m_orientation % 180 != 0) {
+						final int rotatedWidth = height;
+						height = width;
+						width = rotatedWidth;
+					}
+				}
+				m_timings.stage(Tess4JTimings.ORIENTATION, start);
+			}
+			if (m_targetDpi <= 0) {
+				setGreyPage(grey, offset, width, height, deskew);
+				return 1d;
+			}
+
+			final long start = System.nanoTime();
+			final double scale = Rescaler.scaleFactor(img, grey, offset, width, height, m_targetDpi);
+			if (scale == 1d) {
+				setGreyPage(grey, offset, width, height, deskew);
+				return scale;
+			}
+
+			final int newWidth = Math.max(1, (int) Math.round(width * scale));
+			final int newHeight = Math.max(1, (int) Math.round(height * scale));
+			if (m_scaledPlane == null || m_scaledPlane.length < newWidth * newHeight) {
+				m_scaledPlane = new byte[newWidth * newHeight];
+			}
+			Rescaler.resample(grey, offset, width, height, m_scaledPlane, newWidth, newHeight);
+			m_timings.stage(Tess4JTimings.RESCALE, start);
+
+			setGreyPage(m_scaledPlane, 0, newWidth, newHeight, deskew);
+			return scale;
+		}
+
+		if (deskew && m_nativeDeskew) {
+			final byte[] grey = GreyConverter.unsignedBytePlane(img, plane);
+			if (grey != null) {
+				final int offset = GreyConverter.planeOffset(img, plane);
+				if (isBlank(grey, offset, width, height)) {
+					return BLANK_PAGE;
+				}
+				setPageNative(ByteBuffer.wrap(grey, offset, width * height), width, height);
+			} else {
+				final ByteBuffer buffer = m_buffers.acquire(width * height);
+				try {
+					final long start = System.nanoTime();
+					GreyConverter.convertPlane(img, plane, buffer);
+					m_timings.stage(Tess4JTimings.CONVERSION, start);
+					if (isBlank(buffer, width, height)) {
+						return BLANK_PAGE;
+					}
+					setPageNative(buffer, width, height);
+				} finally {
+					m_buffers.release(buffer);
+				}
+			}
+		} else if (deskew) {
+			byte[] grey = GreyConverter.unsignedBytePlane(img, plane);
+			int offset = GreyConverter.planeOffset(img, plane);
+			if (grey == null) {
+				final long start = System.nanoTime();
+				grey = greyPlane(img, plane, width * height);
+				offset = 0;
+				m_timings.stage(Tess4JTimings.CONVERSION, start);
+			}
+			if (isBlank(grey, offset, width, height)) {
+				return BLANK_PAGE;
+			}
+			setGreyPage(grey, offset, width, height, true);
+		} else {
+			final ByteBuffer buffer = m_buffers.acquire(width * height);
+			try {
+				long start = System.nanoTime();
+				GreyConverter.convertPlane(img, plane, buffer);
+				m_timings.stage(Tess4JTimings.CONVERSION, start);
+				if (isBlank(buffer, width, height)) {
+					return BLANK_PAGE;
+				}
+
+				setImage(buffer, width, height);
+			} finally {
+				m_buffers.release(buffer);
+			}
+		}
+		return 1d;
+	}
+
+	/**
+	 * Convert the first plane of an image to grey values, rescaled to the
+	 * target resolution if set.
+	 *
+	 * @param img
+	 *            the input image
+	 * @return the snippet, <code>null</code> if the image is blank
+	 */
+	public Snippet snippet(final Img<T> img) {
+		final int width = (int) img.dimension(0);
+		final int height = (int) img.dimension(1);
+
+		long start = System.nanoTime();
+		byte[] grey = GreyConverter.unsignedBytePlane(img, 0);
+		int offset = GreyConverter.planeOffset(img, 0);
+		if (grey == null) {
+			grey = new byte[width * height];
+			offset = 0;
+			GreyConverter.convertPlane(img, 0, ByteBuffer.wrap(grey));
+		}
+		m_timings.stage(Tess4JTimings.CONVERSION, start);
+		if (isBlank(grey, offset, width, height)) {
+			return null;
+		}
+		if (m_targetDpi <= 0) {
+			return new Snippet(grey, offset, width, height, 1d);
+		}
+
+		start = System.nanoTime();
+		final double scale = Rescaler.scaleFactor(img, grey, offset, width, height, m_targetDpi);
+		if (scale == 1d) {
+			m_timings.stage(Tess4JTimings.RESCALE, start);
+			return new Snippet(grey, offset, width, height, scale);
+		}
+		final int newWidth = Math.max(1, (int) Math.round(width * scale));
+		final int newHeight = Math.max(1, (int) Math.round(height * scale));
+		final byte[] scaled = new byte[newWidth * newHeight];
+		Rescaler.resample(grey, offset, width, height, scaled, newWidth, newHeight);
+		m_timings.stage(Tess4JTimings.RESCALE, start);
+		return new Snippet(scaled, 0, newWidth, newHeight, scale);
+	}
+
+	/**
+	 * Stack the given snippets onto a white composite page, separated by
+	 * {@link #SNIPPET_GAP} pixels, and pass it to Tesseract.
+	 *
+	 * @param engine
+	 *            engine to pass the composite page to
+	 * @param snippets
+	 *            the snippets, from top to bottom
+	 * @return the top of each snippet on the composite page
+	 */
+	public int[] setComposite(final TessEngine engine, final List<Snippet> snippets) {
+		m_engine = engine;
+		m_orientation = 0;
+		final int[] tops = new int[snippets.size()];
+		int width = 0;
+		int height = SNIPPET_GAP;
+		for (int i = 0; i < tops.length; ++i) {
+			final Snippet snippet = snippets.get(i);
+			width = Math.max(width, snippet.m_width);
+			tops[i] = height;
+			height += snippet.m_height + SNIPPET_GAP;
+		}
+		width += 2 * SNIPPET_GAP;
+
+		final ByteBuffer buffer = m_buffers.acquire(width * height);
+		try {
+			final long start = System.nanoTime();
+			for (int i = 0; i < width * height; ++i) {
+				buffer.put(i, (byte) 0xFF);
+			}
+			for (int i = 0; i < tops.length; ++i) {
+				final Snippet snippet = snippets.get(i);
+				for (int y = 0; y < snippet.m_height; ++y) {
+					buffer.position((tops[i] + y) * width + SNIPPET_GAP);
+					buffer.put(snippet.m_grey, snippet.m_offset + y * snippet.m_width, snippet.m_width);
+				}
+			}
+			buffer.rewind();
+			m_timings.stage(Tess4JTimings.CONVERSION, start);
+
+			setImage(buffer, width, height);
+		} finally {
+			m_buffers.release(buffer);
+		}
+		return tops;
+	}
+
+	/**
+	 * @return whether blank pages are skipped and the grey plane has no more
+	 *         ink than allowed
+	 */
+	private boolean isBlank(final byte[] grey, final int offset, final int width, final int height) {
+		if (m_blankInk < 0) {
+			return false;
+		}
+		final long start = System.nanoTime();
+		final boolean blank = BlankPageDetector.inkRatio(grey, offset, width, height) <= m_blankInk;
+		m_timings.stage(Tess4JTimings.BLANK, start);
+		return blank;
+	}
+
+	/**
+	 * @return whether blank pages are skipped and the grey plane in the buffer
+	 *         has no more ink than allowed
+	 */
+	private boolean isBlank(final ByteBuffer grey, final int width, final int height) {
+		if (m_blankInk < 0) {
+			return false;
+		}
+		final long start = System.nanoTime();
+		final boolean blank = BlankPageDetector.inkRatio(grey, width, height) <= m_blankInk;
+		m_timings.stage(Tess4JTimings.BLANK, start);
+		return blank;
+	}
+
+	/**
+	 * Pass a grey plane on the heap to Tesseract, deskewing it first if
+	 * requested.
+	 */
+	private void setGreyPage(final byte[] grey, final int offset, final int width, final int height,
+			final boolean deskew) {
+		if (deskew && m_nativeDeskew) {
+			setPageNative(ByteBuffer.wrap(grey, offset, width * height), width, height);
+			return;
+		}
+		if (!deskew && m_binarization != null) {
+			// binarized straight from the heap, Tesseract gets the packed bits only
+			setImage(ByteBuffer.wrap(grey, offset, width * height).slice(), width, height);
+			return;
+		}
+
+		final ByteBuffer buffer = m_buffers.acquire(width * height);
+		try {
+			long start = System.nanoTime();
+			if (deskew) {
+				final double skewAngle = Deskewer.skewAngle(grey, offset, width, height);
+				if (Math.abs(skewAngle) > MINIMUM_DESKEW_THRESHOLD) {
+					Deskewer.deskew(grey, offset, width, height, skewAngle, buffer);
+				} else {
+					GreyConverter.copyPlane(grey, offset, width, height, buffer);
+				}
+				m_timings.stage(Tess4JTimings.DESKEW, start);
+			} else {
+				GreyConverter.copyPlane(grey, offset, width, height, buffer);
+				m_timings.stage(Tess4JTimings.CONVERSION, start);
+			}
+
+			setImage(buffer, width, height);
+		} finally {
+			m_buffers.release(buffer);
+		}
+	}
+
+	/**
+	 * Pass grey values starting at index 0 of a buffer to Tesseract, packed
+	 * into one bit per pixel by the selected binarization if any.
+	 */
+	private void setImage(final ByteBuffer grey, final int width, final int height) {
+		m_pageWidth = width;
+		m_pageHeight = height;
+		if (m_binarization == null) {
+			final long start = System.nanoTime();
+			m_engine.getAPI().TessBaseAPISetImage(m_engine.getHandle(), grey, width, height, 1, width);
+			m_timings.stage(Tess4JTimings.SET_IMAGE, start);
+			return;
+		}
+
+		final int bytesPerLine = Binarizer.packedBytesPerLine(width);
+		final ByteBuffer binary = m_buffers.acquire(bytesPerLine * height);
+		try {
+			long start = System.nanoTime();
+			binarize(grey, width, height, true, binary);
+			m_timings.stage(Tess4JTimings.BINARIZATION, start);
+
+			// 0 bytes per pixel passes a binary image, which tesseract does not threshold again
+			start = System.nanoTime();
+			m_engine.getAPI().TessBaseAPISetImage(m_engine.getHandle(), binary, width, height, 0, bytesPerLine);
+			m_timings.stage(Tess4JTimings.SET_IMAGE, start);
+		} finally {
+			m_buffers.release(binary);
+		}
+	}
+
+	private void binarize(final ByteBuffer grey, final int width, final int height, final boolean packed,
+			final ByteBuffer out) {
+		if (m_binarization.equals(Tess4JNodeSettings.BINARIZATIONS[2])) {
+			Binarizer.sauvola(grey, width, height, m_sauvolaWindow, m_sauvolaK, packed, out);
+		} else {
+			Binarizer.otsu(grey, width, height, packed, out);
+		}
+	}
+
+	/**
+	 * Deskew a grey plane with Leptonica and pass the resulting Pix to
+	 * Tesseract. If binarization is selected, the plane is binarized to black
+	 * and white grey values before, since the Pix is rotated as 8-bit image.
+	 */
+	private void setPageNative(final ByteBuffer grey, final int width, final int height) {
+		if (m_binarization == null) {
+			setPix(grey, width, height);
+			return;
+		}
+
+		final ByteBuffer binary = m_buffers.acquire(width * height);
+		try {
+			final long start = System.nanoTime();
+			binarize(grey.slice(), width, height, false, binary);
+			m_timings.stage(Tess4JTimings.BINARIZATION, start);
+			setPix(binary, width, height);
+		} finally {
+			m_buffers.release(binary);
+		}
+	}
+
+	private void setPix(final ByteBuffer grey, final int width, final int height) {
+		long start = System.nanoTime();
+		final Pix pix = LeptonicaDeskewer.deskew(grey, width, height);
+		m_timings.stage(Tess4JTimings.DESKEW, start);
+		try {
+			// tesseract keeps its own reference to the Pix
+			start = System.nanoTime();
+			m_engine.getAPI().TessBaseAPISetImage2(m_engine.getHandle(), pix);
+			m_timings.stage(Tess4JTimings.SET_IMAGE, start);
+			// the rotated Pix is larger than the plane
+			m_pageWidth = pix.w;
+			m_pageHeight = pix.h;
+		} finally {
+			LeptonicaDeskewer.destroy(pix);
+		}
+	}
+
+	/**
+	 * Convert a plane of an image to grey values on the heap, reusing the array
+	 * of the previous page if large enough.
+	 */
+	private byte[] greyPlane(final Img<T> img, final long plane, final int size) {
+		if (m_greyPlane == null || m_greyPlane.length < size) {
+			m_greyPlane = new byte[size];
+		}
+		GreyConverter.convertPlane(img, plane, ByteBuffer.wrap(m_greyPlane));
+		return m_greyPlane;
+	}
+
+	/**
+	 * Free the buffers of the preprocessor. It may still be used afterwards,
+	 * the buffers are allocated again as needed.
+	 */
+	public void clear() {
+		m_buffers.clear();
+		m_greyPlane = null;
+		m_scaledPlane = null;
+		m_rotatedPlane = null;
+		m_engine = null;
+	}
+}
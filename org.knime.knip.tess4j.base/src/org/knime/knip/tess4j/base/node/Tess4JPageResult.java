@@ -0,0 +1,396 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.Rectangle;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Result of recognizing one page: its text and, if requested, its mean
+ * confidence, the layout elements of one level and renderings in further
+ * output formats, all taken from a single recognition pass.
+ *
+ * A page whose mean confidence is below the threshold of the node is rejected:
+ * only its confidence is known, none of the other results are extracted. A
+ * blank page is not recognized at all: its text, layout elements and output
+ * formats are empty and its confidence is unknown. Its orientation is not
+ * detected either, see {@link #UNKNOWN_ORIENTATION}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JPageResult {
+
+	/** Orientation of a page whose orientation was not detected */
+	public static final int UNKNOWN_ORIENTATION = -1;
+
+	private final String m_text;
+	private final int m_confidence;
+	private final List<Tess4JLayoutElement> m_elements;
+	private final String[] m_formats;
+	private final double m_scale;
+	private final boolean m_blank;
+	private final int m_orientation;
+
+	/**
+	 * Constructor for a page which was not rescaled.
+	 *
+	 * @param text
+	 *            the recognized text of the page
+	 * @param confidence
+	 *            mean confidence of the page between 0 and 100,
+	 *            <code>-1</code> if not requested
+	 * @param elements
+	 *            layout elements of the page, <code>null</code> if not
+	 *            requested
+	 * @param formats
+	 *            the page rendered in each requested output format, see
+	 *            {@link Tess4JNodeSettings#getOutputFormats()}
+	 */
+	public Tess4JPageResult(final String text, final int confidence, final List<Tess4JLayoutElement> elements,
+			final String[] formats) {
+		this(text, confidence, elements, formats, 1d);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param text
+	 *            the recognized text of the page
+	 * @param confidence
+	 *            mean confidence of the page between 0 and 100,
+	 *            <code>-1</code> if not requested
+	 * @param elements
+	 *            layout elements of the page, <code>null</code> if not
+	 *            requested
+	 * @param formats
+	 *            the page rendered in each requested output format, see
+	 *            {@link Tess4JNodeSettings#getOutputFormats()}
+	 * @param scale
+	 *            factor the page was rescaled by before recognition
+	 */
+	public Tess4JPageResult(final String text, final int confidence, final List<Tess4JLayoutElement> elements,
+			final String[] formats, final double scale) {
+		this(text, confidence, elements, formats, scale, UNKNOWN_ORIENTATION);
+	}
+
+	/**
+	 * Constructor for a page which was rotated upright before recognition.
+	 *
+	 * @param text
+	 *            the recognized text of the page
+	 * @param confidence
+	 *            mean confidence of the page between 0 and 100,
+	 *            <code>-1</code> if not requested
+	 * @param elements
+	 *            layout elements of the page, <code>null</code> if not
+	 *            requested
+	 * @param formats
+	 *            the page rendered in each requested output format, see
+	 *            {@link Tess4JNodeSettings#getOutputFormats()}
+	 * @param scale
+	 *            factor the page was rescaled by before recognition
+	 * @param orientation
+	 *            clockwise angle in degrees the text was rotated by on the
+	 *            page, {@link #UNKNOWN_ORIENTATION} if not detected
+	 */
+	public Tess4JPageResult(final String text, final int confidence, final List<Tess4JLayoutElement> elements,
+			final String[] formats, final double scale, final int orientation) {
+		this(text, confidence, elements, formats, scale, false, orientation);
+	}
+
+	private Tess4JPageResult(final String text, final int confidence, final List<Tess4JLayoutElement> elements,
+			final String[] formats, final double scale, final boolean blank, final int orientation) {
+		m_text = text;
+		m_confidence = confidence;
+		m_elements = elements;
+		m_formats = formats;
+		m_scale = scale;
+		m_blank = blank;
+		m_orientation = orientation;
+	}
+
+	/**
+	 * Create the result of a rejected page.
+	 *
+	 * @param confidence
+	 *            mean confidence of the page
+	 * @return the result
+	 */
+	public static Tess4JPageResult rejected(final int confidence) {
+		return rejected(confidence, 1d);
+	}
+
+	/**
+	 * Create the result of a rejected page which was rescaled.
+	 *
+	 * @param confidence
+	 *            mean confidence of the page
+	 * @param scale
+	 *            factor the page was rescaled by before recognition
+	 * @return the result
+	 */
+	public static Tess4JPageResult rejected(final int confidence, final double scale) {
+		return rejected(confidence, scale, UNKNOWN_ORIENTATION);
+	}
+
+	/**
+	 * Create the result of a rejected page which was rescaled and rotated.
+	 *
+	 * @param confidence
+	 *            mean confidence of the page
+	 * @param scale
+	 *            factor the page was rescaled by before recognition
+	 * @param orientation
+	 *            clockwise angle in degrees the text was rotated by on the
+	 *            page
+	 * @return the result
+	 */
+	public static Tess4JPageResult rejected(final int confidence, final double scale, final int orientation) {
+		return new Tess4JPageResult(null, confidence, null, null, scale, orientation);
+	}
+
+	/**
+	 * Create the result of a blank page, which was not recognized.
+	 *
+	 * @param layout
+	 *            whether layout elements were requested
+	 * @param numFormats
+	 *            number of requested output formats
+	 * @return the result
+	 */
+	public static Tess4JPageResult blank(final boolean layout, final int numFormats) {
+		final String[] formats = new String[numFormats];
+		Arrays.fill(formats, "");
+		return new Tess4JPageResult("", -1, layout ? new ArrayList<Tess4JLayoutElement>() : null, formats, 1d,
+				true, UNKNOWN_ORIENTATION);
+	}
+
+	/**
+	 * @return whether the page was rejected for its confidence.
+	 */
+	public boolean isRejected() {
+		return m_text == null;
+	}
+
+	/**
+	 * @return whether the page was found to be blank and not recognized.
+	 */
+	public boolean isBlank() {
+		return m_blank;
+	}
+
+	/**
+	 * @return the recognized text of the page, <code>null</code> if rejected.
+	 */
+	public String getText() {
+		return m_text;
+	}
+
+	/**
+	 * @return mean confidence of the page between 0 and 100, <code>-1</code>
+	 *         if not requested or the page is blank.
+	 */
+	public int getConfidence() {
+		return m_confidence;
+	}
+
+	/**
+	 * @return layout elements of the page in reading order, <code>null</code>
+	 *         if not requested or rejected.
+	 */
+	public List<Tess4JLayoutElement> getElements() {
+		return m_elements;
+	}
+
+	/**
+	 * @return the page rendered in each requested output format,
+	 *         <code>null</code> if rejected.
+	 */
+	public String[] getFormats() {
+		return m_formats;
+	}
+
+	/**
+	 * @return factor the page was rescaled by before recognition, 1 if it
+	 *         was not rescaled.
+	 */
+	public double getScale() {
+		return m_scale;
+	}
+
+	/**
+	 * @return clockwise angle in degrees the text was rotated by on the page
+	 *         and which was undone before recognition,
+	 *         {@link #UNKNOWN_ORIENTATION} if the orientation was not
+	 *         detected, e.g. for blank pages or images on a composite page.
+	 */
+	public int getOrientation() {
+		return m_orientation;
+	}
+
+	/**
+	 * Serialize this result.
+	 *
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(final DataOutput out) throws IOException {
+		writeString(m_text, out);
+		out.writeInt(m_confidence);
+
+		out.writeInt(m_elements == null ? -1 : m_elements.size());
+		if (m_elements != null) {
+			for (final Tess4JLayoutElement element : m_elements) {
+				writeString(element.getText(), out);
+				final Rectangle bounds = element.getBounds();
+				out.writeInt(bounds.x);
+				out.writeInt(bounds.y);
+				out.writeInt(bounds.width);
+				out.writeInt(bounds.height);
+				out.writeFloat(element.getConfidence());
+			}
+		}
+
+		out.writeInt(m_formats == null ? -1 : m_formats.length);
+		if (m_formats != null) {
+			for (final String format : m_formats) {
+				writeString(format, out);
+			}
+		}
+		out.writeDouble(m_scale);
+		out.writeBoolean(m_blank);
+		out.writeInt(m_orientation);
+	}
+
+	/**
+	 * Deserialize a result written by {@link #write(DataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @return the result
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	public static Tess4JPageResult read(final DataInput in) throws IOException {
+		final String text = readString(in);
+		final int confidence = in.readInt();
+
+		final int numElements = in.readInt();
+		List<Tess4JLayoutElement> elements = null;
+		if (numElements >= 0) {
+			elements = new ArrayList<>(numElements);
+			for (int i = 0; i < numElements; ++i) {
+				final String elementText = readString(in);
+				final Rectangle bounds = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+				elements.add(new Tess4JLayoutElement(elementText, bounds, in.readFloat()));
+			}
+		}
+
+		final int numFormats = in.readInt();
+		String[] formats = null;
+		if (numFormats >= 0) {
+			formats = new String[numFormats];
+			for (int i = 0; i < numFormats; ++i) {
+				formats[i] = readString(in);
+			}
+		}
+
+		final double scale = in.readDouble();
+		final boolean blank = in.readBoolean();
+		return new Tess4JPageResult(text, confidence, elements, formats, scale, blank, in.readInt());
+	}
+
+	/**
+	 * Write a string as UTF-8 with a length prefix, since
+	 * {@link DataOutput#writeUTF(String)} is limited to 64k.
+	 *
+	 * @param s
+	 *            the string, may be <code>null</code>
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	static void writeString(final String s, final DataOutput out) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Read a string written by {@link #writeString(String, DataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @return the string, may be <code>null</code>
+	 * @throws IOException
+	 *             if reading fails
+	 */
+	static String readString(final DataInput in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
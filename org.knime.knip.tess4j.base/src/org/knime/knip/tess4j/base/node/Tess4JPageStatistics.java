@@ -0,0 +1,157 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of pages recognized, rejected, skipped as blank and taken from the
+ * result cache during one execution, and the number of pages recognized per
+ * language if languages are detected per page.
+ * 
+ * Thread-safe, shared between all workers of a {@link Tess4JWorkerPool}.
+ * 
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JPageStatistics {
+
+	private final AtomicLong m_pages = new AtomicLong();
+	private final AtomicLong m_rejected = new AtomicLong();
+	private final AtomicLong m_cached = new AtomicLong();
+	private final AtomicLong m_blank = new AtomicLong();
+	private final Map<String, AtomicLong> m_languages = new ConcurrentHashMap<>();
+
+	/**
+	 * Record a recognized page.
+	 * 
+	 * @param rejected
+	 *            whether the page was rejected for its confidence
+	 */
+	void recognized(final boolean rejected) {
+		m_pages.incrementAndGet();
+		if (rejected) {
+			m_rejected.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Record a page which was found to be blank and not recognized.
+	 */
+	void blank() {
+		m_blank.incrementAndGet();
+	}
+
+	/**
+	 * Record the language detected for a page.
+	 * 
+	 * @param language
+	 *            the language the page is recognized with
+	 */
+	void language(final String language) {
+		m_languages.computeIfAbsent(language, l -> new AtomicLong()).incrementAndGet();
+	}
+
+	/**
+	 * Record a page whose result was taken from the result cache.
+	 */
+	void cached() {
+		m_cached.incrementAndGet();
+	}
+
+	/**
+	 * @return number of pages recognized, including rejected ones.
+	 */
+	public long getPages() {
+		return m_pages.get();
+	}
+
+	/**
+	 * @return number of pages rejected for a mean confidence below the
+	 *         threshold.
+	 */
+	public long getRejected() {
+		return m_rejected.get();
+	}
+
+	/**
+	 * @return number of pages taken from the result cache instead of being
+	 *         recognized.
+	 */
+	public long getCached() {
+		return m_cached.get();
+	}
+
+	/**
+	 * @return number of pages skipped as blank, not included in
+	 *         {@link #getPages()}.
+	 */
+	public long getBlank() {
+		return m_blank.get();
+	}
+
+	/**
+	 * @return number of pages per detected language, sorted by language.
+	 */
+	public Map<String, Long> getLanguages() {
+		final Map<String, Long> languages = new TreeMap<>();
+		m_languages.forEach((language, count) -> languages.put(language, count.get()));
+		return languages;
+	}
+
+	@Override
+	public String toString() {
+		final String pages = String.format("%d pages recognized, %d rejected for low confidence, "
+				+ "%d skipped as blank, %d taken from the result cache", getPages(), getRejected(), getBlank(),
+				getCached());
+		return m_languages.isEmpty() ? pages : pages + ", pages per language: " + getLanguages();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import org.knime.knip.tess4j.base.image.GreyConverter;
+
+import net.imagej.ImgPlus;
+import net.imagej.axis.Axes;
+
+/**
+ * Selects the planes of an image which are recognized by the Tess4J node.
+ *
+ * Planes are identified by their index as used by {@link GreyConverter}, so
+ * the planes along an axis can be converted directly from the image storage
+ * without creating views or copies of the stack.
+ *
+ * @author KNIME Image Processing contributors
+ */
+final class Tess4JPlanes {
+
+	private Tess4JPlanes() {
+		// utility class
+	}
+
+	/**
+	 * Get the planes along an axis of an image. All other dimensions after X
+	 * and Y are fixed at their first position.
+	 *
+	 * @param img
+	 *            the image
+	 * @param axisLabel
+	 *            label of the axis to iterate, <code>null</code> to select only
+	 *            the first plane
+	 * @return the plane indices, the first plane only if the image has no such
+	 *         axis
+	 */
+	static long[] select(final ImgPlus<?> img, final String axisLabel) {
+		if (axisLabel == null) {
+			return new long[] { 0 };
+		}
+
+		final int d = img.dimensionIndex(Axes.get(axisLabel));
+		if (d < 2) {
+			// no such axis, or it is one of the axes of the plane itself
+			return new long[] { 0 };
+		}
+
+		long stride = 1;
+		for (int i = 2; i < d; ++i) {
+			stride *= img.dimension(i);
+		}
+
+		final long[] planes = new long[(int) img.dimension(d)];
+		for (int i = 0; i < planes.length; ++i) {
+			planes[i] = i * stride;
+		}
+		return planes;
+	}
+}
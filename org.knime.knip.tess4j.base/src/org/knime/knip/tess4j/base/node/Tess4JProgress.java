@@ -0,0 +1,113 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.knime.core.node.ExecutionMonitor;
+
+/**
+ * Reports the progress of the Tess4J node at most twice a second instead of
+ * once per row, with the number of processed rows, the page throughput and the
+ * estimated remaining time.
+ *
+ * Thread-safe. If several threads finish rows at the same time, only one of
+ * them updates the progress.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JProgress {
+
+	private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	private final Tess4JTimings m_timings;
+	private final long m_start = System.nanoTime();
+	private final AtomicLong m_lastReport = new AtomicLong(m_start - INTERVAL_NANOS);
+
+	/**
+	 * Constructor
+	 *
+	 * @param timings
+	 *            timings of the execution to read the number of pages from
+	 */
+	public Tess4JProgress(final Tess4JTimings timings) {
+		m_timings = timings;
+	}
+
+	/**
+	 * Report the progress if the last report is long enough ago.
+	 *
+	 * @param exec
+	 *            monitor to report the progress to
+	 * @param rowsDone
+	 *            number of rows processed so far
+	 * @param rowCount
+	 *            total number of rows, <code>-1</code> if unknown, e.g. when
+	 *            streaming
+	 */
+	public void update(final ExecutionMonitor exec, final long rowsDone, final long rowCount) {
+		final long now = System.nanoTime();
+		final long last = m_lastReport.get();
+		if (now - last < INTERVAL_NANOS || !m_lastReport.compareAndSet(last, now)) {
+			return;
+		}
+
+		final double seconds = (now - m_start) / 1e9;
+		final String throughput = String.format("%.1f pages/s", m_timings.getPages() / seconds);
+		if (rowCount <= 0) {
+			exec.setMessage(rowsDone + " rows, " + throughput);
+			return;
+		}
+
+		final long remaining = rowsDone == 0 ? -1 : Math.round(seconds / rowsDone * (rowCount - rowsDone));
+		exec.setProgress(rowsDone / (double) rowCount, rowsDone + " of " + rowCount + " rows, " + throughput
+				+ (remaining < 0 ? "" : String.format(", %d:%02d remaining", remaining / 60, remaining % 60)));
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.Rectangle;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.roi.labeling.LabelingType;
+import net.imglib2.view.Views;
+
+/**
+ * Determines the regions of a page which are recognized separately when a
+ * labeling is given for an image.
+ *
+ * @author KNIME Image Processing contributors
+ */
+final class Tess4JRegions {
+
+	private Tess4JRegions() {
+		// utility class
+	}
+
+	/**
+	 * Compute the bounding box of every label of a labeling, projected onto the
+	 * X/Y plane and clipped to the page.
+	 *
+	 * @param labeling
+	 *            the labeling, its first two dimensions are X and Y of the page
+	 * @param width
+	 *            width of the page
+	 * @param height
+	 *            height of the page
+	 * @return bounding boxes by label name, sorted by label name
+	 */
+	static <L> Map<String, Rectangle> boundingBoxes(final RandomAccessibleInterval<LabelingType<L>> labeling,
+			final int width, final int height) {
+		/* minX, minY, maxX, maxY per label */
+		final Map<String, int[]> bounds = new TreeMap<>();
+
+		final long minX = labeling.min(0);
+		final long minY = labeling.min(1);
+		final Cursor<LabelingType<L>> cursor = Views.iterable(labeling).localizingCursor();
+		while (cursor.hasNext()) {
+			final LabelingType<L> labels = cursor.next();
+			if (labels.isEmpty()) {
+				continue;
+			}
+
+			final int x = (int) (cursor.getLongPosition(0) - minX);
+			final int y = (int) (cursor.getLongPosition(1) - minY);
+			for (final L label : labels) {
+				final int[] b = bounds.get(label.toString());
+				if (b == null) {
+					bounds.put(label.toString(), new int[] { x, y, x, y });
+				} else {
+					b[0] = Math.min(b[0], x);
+					b[1] = Math.min(b[1], y);
+					b[2] = Math.max(b[2], x);
+					b[3] = Math.max(b[3], y);
+				}
+			}
+		}
+
+		final Rectangle page = new Rectangle(0, 0, width, height);
+		final Map<String, Rectangle> boxes = new TreeMap<>();
+		for (final Map.Entry<String, int[]> entry : bounds.entrySet()) {
+			final int[] b = entry.getValue();
+			final Rectangle box = new Rectangle(b[0], b[1], b[2] - b[0] + 1, b[3] - b[1] + 1).intersection(page);
+			if (!box.isEmpty()) {
+				boxes.put(entry.getKey(), box);
+			}
+		}
+		return boxes;
+	}
+}
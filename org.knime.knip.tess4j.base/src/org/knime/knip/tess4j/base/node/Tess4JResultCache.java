@@ -0,0 +1,248 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.knime.core.node.NodeLogger;
+
+/**
+ * Size-bounded cache of {@link Tess4JPageResult}s on disk, shared by all
+ * executions using the same directory, also across KNIME sessions.
+ *
+ * Each result is stored in its own file named after its key, which is
+ * computed from a fingerprint of the page and the settings influencing the
+ * result. When the cache exceeds its size, the least recently used results are
+ * deleted. Last use is tracked by the modification time of the files, so it
+ * survives restarts.
+ *
+ * Thread-safe.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JResultCache {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(Tess4JResultCache.class);
+
+	private static final String SUFFIX = ".ocr";
+
+	/* bump when the file format changes, old files are then ignored */
+	private static final int FORMAT_VERSION = 4;
+
+	private static final Map<File, Tess4JResultCache> CACHES = new HashMap<>();
+
+	private final File m_dir;
+	private long m_maxBytes;
+
+	/* file sizes of cached results, least recently used first */
+	private final LinkedHashMap<String, Long> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long m_bytes = 0;
+
+	private Tess4JResultCache(final File dir, final long maxBytes) {
+		m_dir = dir;
+		m_maxBytes = maxBytes;
+
+		final File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+		if (files != null) {
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+			for (final File file : files) {
+				final String name = file.getName();
+				m_entries.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+				m_bytes += file.length();
+			}
+		}
+	}
+
+	/**
+	 * Get the cache stored in a directory, creating the directory if required.
+	 *
+	 * @param dir
+	 *            the cache directory
+	 * @param maxBytes
+	 *            maximum size of all cached results, replaces the size given
+	 *            by previous executions
+	 * @return the cache
+	 * @throws IOException
+	 *             if the directory cannot be created
+	 */
+	public static Tess4JResultCache open(final File dir, final long maxBytes) throws IOException {
+		final File canonical = dir.getCanonicalFile();
+		synchronized (CACHES) {
+			Tess4JResultCache cache = CACHES.get(canonical);
+			if (cache == null) {
+				Files.createDirectories(canonical.toPath());
+				cache = new Tess4JResultCache(canonical, maxBytes);
+				CACHES.put(canonical, cache);
+			}
+			synchronized (cache) {
+				cache.m_maxBytes = maxBytes;
+				cache.evict();
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Get a cached result.
+	 *
+	 * @param key
+	 *            key of the result
+	 * @return the result or <code>null</code> if not cached
+	 */
+	public Tess4JPageResult get(final String key) {
+		synchronized (this) {
+			if (m_entries.get(key) == null) {
+				return null;
+			}
+		}
+
+		final File file = file(key);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+			if (in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unsupported format version.");
+			}
+			final Tess4JPageResult result = Tess4JPageResult.read(in);
+			file.setLastModified(System.currentTimeMillis());
+			return result;
+		} catch (final IOException e) {
+			// deleted by another process or written by another version
+			LOGGER.debug("Could not read cached OCR result " + file + ": " + e.getMessage());
+			remove(key);
+			return null;
+		}
+	}
+
+	/**
+	 * Cache a result, evicting the least recently used results if the cache
+	 * exceeds its size. Failing to write the result is logged and otherwise
+	 * ignored.
+	 *
+	 * @param key
+	 *            key of the result
+	 * @param result
+	 *            the result
+	 */
+	public void put(final String key, final Tess4JPageResult result) {
+		final File file = file(key);
+		Path tmp = null;
+		try {
+			tmp = Files.createTempFile(m_dir.toPath(), key, ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(FORMAT_VERSION);
+				result.write(out);
+			}
+			// readers never see partially written results
+			Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			LOGGER.warn("Could not write OCR result to cache " + m_dir + ": " + e.getMessage());
+			if (tmp != null) {
+				tmp.toFile().delete();
+			}
+			return;
+		}
+
+		synchronized (this) {
+			final Long previous = m_entries.put(key, file.length());
+			m_bytes += file.length() - (previous == null ? 0 : previous);
+			evict();
+		}
+	}
+
+	/**
+	 * Create the key of a result.
+	 *
+	 * @param pageHash
+	 *            fingerprint of the page, see
+	 *            {@link org.knime.knip.tess4j.base.image.PlaneHasher}
+	 * @param settingsHash
+	 *            fingerprint of the settings, see
+	 *            {@link Tess4JNodeSettings#getResultFingerprint()}
+	 * @return the key
+	 */
+	public static String key(final long pageHash, final long settingsHash) {
+		return String.format("%016x%016x", pageHash, settingsHash);
+	}
+
+	private synchronized void remove(final String key) {
+		final Long size = m_entries.remove(key);
+		if (size != null) {
+			m_bytes -= size;
+		}
+		file(key).delete();
+	}
+
+	/* delete least recently used results until the cache fits its size */
+	private void evict() {
+		final Iterator<Map.Entry<String, Long>> it = m_entries.entrySet().iterator();
+		while (m_bytes > m_maxBytes && it.hasNext()) {
+			final Map.Entry<String, Long> eldest = it.next();
+			it.remove();
+			m_bytes -= eldest.getValue();
+			file(eldest.getKey()).delete();
+		}
+	}
+
+	private File file(final String key) {
+		return new File(m_dir, key + SUFFIX);
+	}
+}
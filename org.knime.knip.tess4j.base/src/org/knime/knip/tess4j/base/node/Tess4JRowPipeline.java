@@ -0,0 +1,209 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.knime.core.data.DataRow;
+
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Computes the results of rows asynchronously with a
+ * {@link Tess4JWorkerPool}, see {@link Tess4JWorkerPool#submitRow}, for
+ * callers which cannot use the parallel processing of a cell factory, e.g.
+ * streaming or creating several output rows per input row.
+ *
+ * A few rows per worker are queued so that no worker idles. Results are
+ * handed to the {@link RowConsumer} in the order the rows were added.
+ *
+ * Not thread-safe, rows need to be added by a single thread.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JRowPipeline<T extends RealType<T>, R> implements AutoCloseable {
+
+	/**
+	 * Computes the result of a row, called concurrently.
+	 */
+	interface RowFunction<R> {
+
+		/**
+		 * @param row
+		 *            the input row
+		 * @return the result of the row
+		 * @throws InterruptedException
+		 *             if interrupted while waiting for a worker
+		 * @throws IOException
+		 *             if the results cannot be recorded for the next
+		 *             execution
+		 */
+		R compute(DataRow row) throws InterruptedException, IOException;
+	}
+
+	/**
+	 * Receives the result of every row.
+	 */
+	interface RowConsumer<R> {
+
+		/**
+		 * @param row
+		 *            the input row
+		 * @param result
+		 *            the result of the row
+		 * @throws InterruptedException
+		 *             if interrupted while passing the row on
+		 */
+		void accept(DataRow row, R result) throws InterruptedException;
+	}
+
+	/* an input row and the future of its result */
+	private static final class Pending<R> {
+		final DataRow m_row;
+		final Future<R> m_result;
+
+		Pending(final DataRow row, final Future<R> result) {
+			m_row = row;
+			m_result = result;
+		}
+	}
+
+	private final Tess4JWorkerPool<T> m_pool;
+	private final RowFunction<R> m_function;
+	private final RowConsumer<R> m_consumer;
+	private final int m_maxPending;
+
+	private final Deque<Pending<R>> m_pending = new ArrayDeque<>();
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 *            pool to compute the rows with
+	 * @param function
+	 *            computes the result of a row
+	 * @param consumer
+	 *            receives the result of every row
+	 */
+	public Tess4JRowPipeline(final Tess4JWorkerPool<T> pool, final RowFunction<R> function,
+			final RowConsumer<R> consumer) {
+		m_pool = pool;
+		m_function = function;
+		m_consumer = consumer;
+		/* same queue length as the cell factory */
+		m_maxPending = 4 * pool.size();
+	}
+
+	/**
+	 * Submit a row. Blocks while the queue is full, passing finished rows to
+	 * the consumer.
+	 *
+	 * @param row
+	 *            the row
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a row
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	public void add(final DataRow row) throws InterruptedException, IOException {
+		while (m_pending.size() >= m_maxPending) {
+			drain();
+		}
+		m_pending.add(new Pending<>(row, m_pool.submitRow(() -> m_function.compute(row))));
+	}
+
+	/**
+	 * Wait for all rows and pass them to the consumer.
+	 *
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a row
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	public void finish() throws InterruptedException, IOException {
+		while (!m_pending.isEmpty()) {
+			drain();
+		}
+	}
+
+	/**
+	 * Wait for the oldest row and pass it to the consumer.
+	 */
+	private void drain() throws InterruptedException, IOException {
+		final Pending<R> pending = m_pending.poll();
+		final R result;
+		try {
+			result = pending.m_result.get();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		m_consumer.accept(pending.m_row, result);
+	}
+
+	/**
+	 * Cancel all rows which are still being computed.
+	 */
+	@Override
+	public void close() {
+		for (final Pending<R> pending : m_pending) {
+			pending.m_result.cancel(true);
+		}
+		m_pending.clear();
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.knime.core.data.DataCell;
+import org.knime.core.data.DataColumnSpec;
+import org.knime.core.data.DataColumnSpecCreator;
+import org.knime.core.data.DataRow;
+import org.knime.core.data.DataTableSpec;
+import org.knime.core.data.DataType;
+import org.knime.core.data.RowKey;
+import org.knime.core.data.def.DefaultRow;
+import org.knime.core.data.def.DoubleCell;
+import org.knime.core.data.def.LongCell;
+import org.knime.core.data.def.StringCell;
+
+/**
+ * Time spent in each stage of the OCR pipeline, latency of rows and
+ * throughput during one execution, reported in the log and in the optional
+ * execution report table of the Tess4J node.
+ *
+ * Row latencies are counted in buckets of powers of two milliseconds.
+ *
+ * Thread-safe, shared between all workers of a {@link Tess4JWorkerPool}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JTimings {
+
+	/** Names of the stages */
+	public static final String[] STAGES = { "Image conversion", "Blank page detection", "Orientation detection",
+			"Rescale", "Deskew", "Binarization", "Set image", "Language detection", "Recognition",
+			"Text extraction", "Layout and formats" };
+
+	/** Converting a plane to grey values */
+	public static final int CONVERSION = 0;
+	/** Measuring the ink of a page to skip blank ones */
+	public static final int BLANK = 1;
+	/** Detecting the orientation of a page and rotating it upright */
+	public static final int ORIENTATION = 2;
+	/** Determining the resolution and resampling the page */
+	public static final int RESCALE = 3;
+	/** Detecting the skew angle and rotating the page */
+	public static final int DESKEW = 4;
+	/** Thresholding the page to black and white */
+	public static final int BINARIZATION = 5;
+	/** Passing the page to Tesseract */
+	public static final int SET_IMAGE = 6;
+	/** Probing candidate languages on a band of the page */
+	public static final int LANGUAGE = 7;
+	/** Recognizing the page or its regions */
+	public static final int RECOGNITION = 8;
+	/** Reading the recognized text */
+	public static final int TEXT = 9;
+	/** Reading layout elements and rendering output formats */
+	public static final int RESULTS = 10;
+
+	/** Columns of the report table */
+	public static final String[] REPORT_COLUMNS = { "Category", "Name", "Count", "Total time [ms]", "Mean time [ms]",
+			"Max time [ms]", "Rate [1/s]" };
+
+	private static final int LATENCY_BUCKETS = 18;
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final AtomicLongArray m_stageNanos = new AtomicLongArray(STAGES.length);
+	private final AtomicLongArray m_stageCounts = new AtomicLongArray(STAGES.length);
+	private final AtomicLongArray m_stageMax = new AtomicLongArray(STAGES.length);
+
+	/* bucket i counts rows below 2^i ms, the last one all slower rows */
+	private final AtomicLongArray m_latencies = new AtomicLongArray(LATENCY_BUCKETS);
+	private final AtomicLong m_rowNanos = new AtomicLong();
+	private final AtomicLong m_rowMax = new AtomicLong();
+	private final AtomicLong m_rows = new AtomicLong();
+	private final AtomicLong m_pages = new AtomicLong();
+
+	private final long m_start = System.nanoTime();
+	private volatile long m_end = -1;
+
+	/**
+	 * Record the duration of a stage.
+	 *
+	 * @param stage
+	 *            one of the stage indices, e.g. {@link #RECOGNITION}
+	 * @param start
+	 *            {@link System#nanoTime()} at the start of the stage
+	 */
+	void stage(final int stage, final long start) {
+		final long nanos = System.nanoTime() - start;
+		m_stageNanos.addAndGet(stage, nanos);
+		m_stageCounts.incrementAndGet(stage);
+		m_stageMax.accumulateAndGet(stage, nanos, Math::max);
+	}
+
+	/**
+	 * Record the latency of a row.
+	 *
+	 * @param nanos
+	 *            time spent processing the row in nanoseconds
+	 * @param pages
+	 *            number of pages of the row
+	 */
+	void row(final long nanos, final int pages) {
+		m_rowNanos.addAndGet(nanos);
+		m_rowMax.accumulateAndGet(nanos, Math::max);
+		m_rows.incrementAndGet();
+		m_pages.addAndGet(pages);
+
+		final long millis = nanos / 1000000L;
+		final int bucket = 64 - Long.numberOfLeadingZeros(millis);
+		m_latencies.incrementAndGet(Math.min(bucket, LATENCY_BUCKETS - 1));
+	}
+
+	/**
+	 * Stop the clock for throughput. Called when the execution is done.
+	 */
+	void finish() {
+		if (m_end < 0) {
+			m_end = System.nanoTime();
+		}
+	}
+
+	/**
+	 * @return number of pages of all recorded rows.
+	 */
+	public long getPages() {
+		return m_pages.get();
+	}
+
+	private double elapsedSeconds() {
+		final long end = m_end < 0 ? System.nanoTime() : m_end;
+		return (end - m_start) / 1e9;
+	}
+
+	/**
+	 * @return spec of the report table
+	 */
+	public static DataTableSpec createReportSpec() {
+		final DataType[] types = { StringCell.TYPE, StringCell.TYPE, LongCell.TYPE, DoubleCell.TYPE,
+				DoubleCell.TYPE, DoubleCell.TYPE, DoubleCell.TYPE };
+		final DataColumnSpec[] specs = new DataColumnSpec[REPORT_COLUMNS.length];
+		for (int i = 0; i < specs.length; ++i) {
+			specs[i] = new DataColumnSpecCreator(REPORT_COLUMNS[i], types[i]).createSpec();
+		}
+		return new DataTableSpec(specs);
+	}
+
+	/**
+	 * Create the rows of the report table: one per stage, one per latency
+	 * bucket and the throughput of rows and pages.
+	 *
+	 * @param keyPrefix
+	 *            prefix of the row keys, to keep keys of several partitions
+	 *            unique
+	 * @return the rows
+	 */
+	public List<DataRow> createReportRows(final String keyPrefix) {
+		final List<DataRow> rows = new ArrayList<>();
+		final DataCell missing = DataType.getMissingCell();
+
+		for (int i = 0; i < STAGES.length; ++i) {
+			final long count = m_stageCounts.get(i);
+			final double total = m_stageNanos.get(i) / NANOS_PER_MILLI;
+			rows.add(new DefaultRow(new RowKey(keyPrefix + "Stage " + STAGES[i]), new StringCell("Stage"),
+					new StringCell(STAGES[i]), new LongCell(count), new DoubleCell(total),
+					count == 0 ? missing : new DoubleCell(total / count),
+					new DoubleCell(m_stageMax.get(i) / NANOS_PER_MILLI), missing));
+		}
+
+		for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+			final String name = i == LATENCY_BUCKETS - 1 ? ">= " + (1L << (i - 1)) + " ms" : "< " + (1L << i) + " ms";
+			rows.add(new DefaultRow(new RowKey(keyPrefix + "Row latency " + name), new StringCell("Row latency"),
+					new StringCell(name), new LongCell(m_latencies.get(i)), missing, missing, missing, missing));
+		}
+
+		final double seconds = elapsedSeconds();
+		final long numRows = m_rows.get();
+		final double rowTotal = m_rowNanos.get() / NANOS_PER_MILLI;
+		rows.add(new DefaultRow(new RowKey(keyPrefix + "Throughput rows"), new StringCell("Throughput"),
+				new StringCell("Rows"), new LongCell(numRows), new DoubleCell(rowTotal),
+				numRows == 0 ? missing : new DoubleCell(rowTotal / numRows),
+				new DoubleCell(m_rowMax.get() / NANOS_PER_MILLI), new DoubleCell(numRows / seconds)));
+		rows.add(new DefaultRow(new RowKey(keyPrefix + "Throughput pages"), new StringCell("Throughput"),
+				new StringCell("Pages"), new LongCell(m_pages.get()), missing, missing, missing,
+				new DoubleCell(m_pages.get() / seconds)));
+		return rows;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		final double seconds = elapsedSeconds();
+		builder.append(String.format("%d rows, %d pages in %.1f s (%.2f rows/s, %.2f pages/s)", m_rows.get(),
+				m_pages.get(), seconds, m_rows.get() / seconds, m_pages.get() / seconds));
+		for (int i = 0; i < STAGES.length; ++i) {
+			final long count = m_stageCounts.get(i);
+			if (count > 0) {
+				builder.append(String.format("; %s: %.1f ms total, %.1f ms mean, %.1f ms max", STAGES[i],
+						m_stageNanos.get(i) / NANOS_PER_MILLI, m_stageNanos.get(i) / NANOS_PER_MILLI / count,
+						m_stageMax.get(i) / NANOS_PER_MILLI));
+			}
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,570 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.knime.knip.tess4j.base.engine.TessEngine;
+import org.knime.knip.tess4j.base.engine.TessEngineCache;
+import org.knime.knip.tess4j.base.engine.TessEngineConfig;
+import org.knime.knip.tess4j.base.image.GreyConverter;
+import org.knime.knip.tess4j.base.image.LeptonicaDeskewer;
+import org.knime.knip.tess4j.base.image.PageBufferStatistics;
+import org.knime.knip.tess4j.base.node.Tess4JPagePreprocessor.Snippet;
+
+import com.sun.jna.Pointer;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+import net.sourceforge.lept4j.Pix;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIterator;
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+import net.sourceforge.tess4j.ITessAPI.TessResultIterator;
+import net.sourceforge.tess4j.TessAPI;
+
+/**
+ * Runs the OCR pipeline of the Tess4J node on one image at a time using its own
+ * Tesseract engine, which is taken from and returned to the
+ * {@link TessEngineCache}. If languages are detected per page, the worker
+ * holds one more engine per candidate language. Pages are prepared and passed
+ * to the engine by a {@link Tess4JPagePreprocessor}; the worker recognizes
+ * them and extracts the results.
+ *
+ * A worker is not thread-safe. Concurrent recognition is achieved by using one
+ * worker per thread, see {@link Tess4JWorkerPool}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JWorker<T extends RealType<T>> {
+
+	/** Images wider than this are not tiled onto a composite page */
+	public static final int MAX_SNIPPET_WIDTH = 2048;
+
+	/** Images higher than this are not tiled onto a composite page */
+	public static final int MAX_SNIPPET_HEIGHT = 256;
+
+	/* height at which a composite page is split, to bound its buffer */
+	private static final int MAX_COMPOSITE_HEIGHT = 16384;
+
+	/* mean confidence of the probe band at which its language is accepted */
+	private static final int PROBE_CONFIDENCE = 70;
+
+	/* top and height of the probe band relative to the page height */
+	private static final double PROBE_TOP = 0.4d;
+	private static final double PROBE_HEIGHT = 0.2d;
+
+	private final TessEngineConfig m_config;
+	private final TessEngine m_defaultEngine;
+	private final String[] m_candidates;
+	private final Map<String, TessEngine> m_languageEngines = new HashMap<>();
+	private final boolean m_deskew;
+	private final int m_layoutLevel;
+	private final String[] m_outputFormats;
+	private final boolean m_outputConfidence;
+	private final int m_minConfidence;
+	private final Tess4JPagePreprocessor<T> m_preprocessor;
+	private final Tess4JPageStatistics m_pageStatistics;
+	private final Tess4JTimings m_timings;
+
+	/* engine the current page is passed to */
+	private TessEngine m_engine;
+
+	/* language of the previous page, probed first */
+	private String m_lastLanguage;
+
+	/**
+	 * Constructor. Obtains a Tesseract engine from the {@link TessEngineCache}.
+	 *
+	 * @param settings
+	 *            settings to initialize Tesseract with
+	 * @param bufferStatistics
+	 *            statistics to record page buffer usage to
+	 * @param pageStatistics
+	 *            statistics to record recognized and rejected pages to
+	 * @param timings
+	 *            timings to record the duration of each stage to
+	 */
+	public Tess4JWorker(final Tess4JNodeSettings settings, final PageBufferStatistics bufferStatistics,
+			final Tess4JPageStatistics pageStatistics, final Tess4JTimings timings) {
+		m_deskew = settings.useDeskew();
+		m_layoutLevel = settings.getLayoutLevel();
+		m_outputFormats = settings.getOutputFormats();
+		m_outputConfidence = settings.outputConfidence();
+		m_minConfidence = settings.getMinConfidence();
+		m_preprocessor = new Tess4JPagePreprocessor<>(settings, bufferStatistics, timings);
+		m_pageStatistics = pageStatistics;
+		m_timings = timings;
+		m_config = settings.createEngineConfig();
+		m_defaultEngine = TessEngineCache.getInstance().acquire(m_config);
+		m_engine = m_defaultEngine;
+		m_candidates = settings.getLanguageCandidates();
+		m_lastLanguage = m_candidates.length > 0 ? m_candidates[0] : null;
+	}
+
+	/**
+	 * Recognize the text in a plane of the given image.
+	 *
+	 * The plane is prepared and passed to Tesseract by the
+	 * {@link Tess4JPagePreprocessor}, which may skip it as blank, rotate it
+	 * upright, rescale, deskew and binarize it; coordinates of layout elements
+	 * and of all output formats are mapped back to the original page, or to
+	 * the upright page if it was rotated. If language candidates are
+	 * set, the page is passed to the engine of the language of the previous
+	 * page and may be moved to the engine of another candidate, see
+	 * {@link #selectLanguage()}. Layout elements and further output formats
+	 * are read from the result of the same recognition pass. If the mean
+	 * confidence of the page is below the threshold, the page is rejected
+	 * before any of them is extracted. The duration of each stage is recorded
+	 * to the {@link Tess4JTimings}.
+	 *
+	 * @param img
+	 *            the input image
+	 * @param plane
+	 *            index of the plane, see {@link GreyConverter}
+	 * @return the recognition result
+	 */
+	public Tess4JPageResult recognize(final Img<T> img, final long plane) {
+		m_engine = m_lastLanguage == null ? m_defaultEngine : languageEngine(m_lastLanguage);
+		final double scale = m_preprocessor.setPage(m_engine, img, plane, m_deskew, true);
+		if (scale == Tess4JPagePreprocessor.BLANK_PAGE) {
+			m_pageStatistics.blank();
+			return Tess4JPageResult.blank(m_layoutLevel >= 0, m_outputFormats.length);
+		}
+		if (m_candidates.length > 0) {
+			selectLanguage();
+		}
+
+		long start = System.nanoTime();
+		m_engine.getAPI().TessBaseAPIRecognize(m_engine.getHandle(), null);
+
+		int confidence = -1;
+		if (m_outputConfidence || m_minConfidence > 0) {
+			confidence = m_engine.getAPI().TessBaseAPIMeanTextConf(m_engine.getHandle());
+		}
+		m_timings.stage(Tess4JTimings.RECOGNITION, start);
+		if (m_minConfidence > 0 && confidence < m_minConfidence) {
+			m_pageStatistics.recognized(true);
+			return Tess4JPageResult.rejected(confidence, scale, m_preprocessor.getOrientation());
+		}
+		m_pageStatistics.recognized(false);
+
+		// the results below are read from the recognition above
+		start = System.nanoTime();
+		final String text = getUTF8Text();
+		m_timings.stage(Tess4JTimings.TEXT, start);
+
+		List<Tess4JLayoutElement> elements = null;
+		String[] formats = new String[0];
+		if (m_layoutLevel >= 0 || m_outputFormats.length > 0) {
+			start = System.nanoTime();
+			elements = m_layoutLevel < 0 ? null : getLayoutElements(m_layoutLevel, scale);
+			// the upright page is rotated by 90 degrees against the input
+			final boolean swap = m_preprocessor.getOrientation() % 180 != 0;
+			final int width = (int) img.dimension(swap ? 1 : 0);
+			final int height = (int) img.dimension(swap ? 0 : 1);
+			formats = new Tess4JPageFormatter(m_engine, width, height, scale).format(m_outputFormats);
+			m_timings.stage(Tess4JTimings.RESULTS, start);
+		}
+		return new Tess4JPageResult(text, confidence, elements, formats, scale, m_preprocessor.getOrientation());
+	}
+
+	/**
+	 * Recognize the text in several regions of a plane of the given image. The
+	 * page is passed to Tesseract once and each region is recognized on its
+	 * own. The page is neither rescaled, rotated nor deskewed, since that would
+	 * move the regions, and it is recognized with the configured language.
+	 * All regions of a blank page get empty text.
+	 *
+	 * @param img
+	 *            the input image
+	 * @param plane
+	 *            index of the plane, see {@link GreyConverter}
+	 * @param regions
+	 *            regions of the page to recognize
+	 * @return the recognized text per region
+	 */
+	public String[] recognizeRegions(final Img<T> img, final long plane, final List<Rectangle> regions) {
+		final String[] texts = new String[regions.size()];
+		m_engine = m_defaultEngine;
+		if (m_preprocessor.setPage(m_engine, img, plane, false, false) == Tess4JPagePreprocessor.BLANK_PAGE) {
+			m_pageStatistics.blank();
+			Arrays.fill(texts, "");
+			return texts;
+		}
+
+		for (int i = 0; i < texts.length; ++i) {
+			final Rectangle r = regions.get(i);
+			// recognizes the region when the text is requested
+			final long start = System.nanoTime();
+			m_engine.getAPI().TessBaseAPISetRectangle(m_engine.getHandle(), r.x, r.y, r.width, r.height);
+			texts[i] = getUTF8Text();
+			m_timings.stage(Tess4JTimings.RECOGNITION, start);
+		}
+		return texts;
+	}
+
+	/**
+	 * Recognize the text of many small images at once. The images are stacked
+	 * onto a composite page with white space between them, which is
+	 * recognized in a single pass as one column of text. Every recognized word
+	 * is then assigned to the image its bounding box lies in, so each image
+	 * gets its own text and mean confidence.
+	 *
+	 * Only the first plane of each image is used and images are neither
+	 * deskewed nor rotated, but rescaled to the target resolution if set. The
+	 * composite page is recognized with the configured language. Blank images
+	 * are not tiled onto the composite page. Images larger than {@link #MAX_SNIPPET_WIDTH} x
+	 * {@link #MAX_SNIPPET_HEIGHT} are recognized on their own.
+	 *
+	 * @param imgs
+	 *            the input images
+	 * @return the recognition result per image, in the order of imgs
+	 */
+	public Tess4JPageResult[] recognizeBatch(final List<Img<T>> imgs) {
+		final Tess4JPageResult[] results = new Tess4JPageResult[imgs.size()];
+		final List<Integer> batch = new ArrayList<>();
+		final List<Snippet> snippets = new ArrayList<>();
+		int height = Tess4JPagePreprocessor.SNIPPET_GAP;
+		for (int i = 0; i < results.length; ++i) {
+			final Img<T> img = imgs.get(i);
+			if (img.dimension(0) > MAX_SNIPPET_WIDTH || img.dimension(1) > MAX_SNIPPET_HEIGHT) {
+				results[i] = recognize(img, 0);
+				continue;
+			}
+
+			final Snippet snippet = m_preprocessor.snippet(img);
+			if (snippet == null) {
+				m_pageStatistics.blank();
+				results[i] = Tess4JPageResult.blank(false, 0);
+				continue;
+			}
+			final int snippetHeight = snippet.m_height + Tess4JPagePreprocessor.SNIPPET_GAP;
+			if (height + snippetHeight > MAX_COMPOSITE_HEIGHT) {
+				recognizeComposite(batch, snippets, results);
+				batch.clear();
+				snippets.clear();
+				height = Tess4JPagePreprocessor.SNIPPET_GAP;
+			}
+			batch.add(i);
+			snippets.add(snippet);
+			height += snippetHeight;
+		}
+		if (!batch.isEmpty()) {
+			recognizeComposite(batch, snippets, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Recognize the given snippets on one composite page.
+	 *
+	 * @param batch
+	 *            indices of the snippets in results
+	 */
+	private void recognizeComposite(final List<Integer> batch, final List<Snippet> snippets,
+			final Tess4JPageResult[] results) {
+		m_engine = m_defaultEngine;
+		final int[] tops = m_preprocessor.setComposite(m_engine, snippets);
+
+		// the snippets form one column of text regardless of the configured mode
+		final TessAPI api = m_engine.getAPI();
+		final int pageSegMode = api.TessBaseAPIGetPageSegMode(m_engine.getHandle());
+		long start = System.nanoTime();
+		api.TessBaseAPISetPageSegMode(m_engine.getHandle(), TessPageSegMode.PSM_SINGLE_COLUMN);
+		try {
+			api.TessBaseAPIRecognize(m_engine.getHandle(), null);
+		} finally {
+			api.TessBaseAPISetPageSegMode(m_engine.getHandle(), pageSegMode);
+		}
+		m_timings.stage(Tess4JTimings.RECOGNITION, start);
+
+		start = System.nanoTime();
+		final StringBuilder[] texts = new StringBuilder[tops.length];
+		final double[] confidences = new double[tops.length];
+		final int[] words = new int[tops.length];
+		for (int i = 0; i < texts.length; ++i) {
+			texts[i] = new StringBuilder();
+		}
+
+		final TessResultIterator it = api.TessBaseAPIGetIterator(m_engine.getHandle());
+		if (it != null) {
+			final TessPageIterator pageIt = api.TessResultIteratorGetPageIterator(it);
+			try {
+				do {
+					final Pointer utf8Text = api.TessResultIteratorGetUTF8Text(it, TessPageIteratorLevel.RIL_WORD);
+					if (utf8Text == null) {
+						continue;
+					}
+					final String word = utf8Text.getString(0);
+					api.TessDeleteText(utf8Text);
+
+					final Rectangle box = Tess4JPageFormatter.boundingBox(api, pageIt, TessPageIteratorLevel.RIL_WORD);
+					final int snippet = snippetAt(tops, box.y + box.height / 2);
+					final StringBuilder text = texts[snippet];
+					if (text.length() > 0) {
+						text.append(api.TessPageIteratorIsAtBeginningOf(pageIt,
+								TessPageIteratorLevel.RIL_TEXTLINE) == ITessAPI.TRUE ? '\n' : ' ');
+					}
+					text.append(word);
+					confidences[snippet] += api.TessResultIteratorConfidence(it, TessPageIteratorLevel.RIL_WORD);
+					words[snippet]++;
+				} while (api.TessResultIteratorNext(it, TessPageIteratorLevel.RIL_WORD) == ITessAPI.TRUE);
+			} finally {
+				api.TessResultIteratorDelete(it);
+			}
+		}
+		m_timings.stage(Tess4JTimings.TEXT, start);
+
+		for (int i = 0; i < tops.length; ++i) {
+			int confidence = -1;
+			if (m_outputConfidence || m_minConfidence > 0) {
+				confidence = words[i] == 0 ? 0 : (int) Math.round(confidences[i] / words[i]);
+			}
+			final boolean rejected = m_minConfidence > 0 && confidence < m_minConfidence;
+			m_pageStatistics.recognized(rejected);
+
+			// end the text with a newline like Tesseract does for a page
+			final String text = texts[i].length() == 0 ? "" : texts[i].append('\n').toString();
+			final double scale = snippets.get(i).m_scale;
+			results[batch.get(i)] = rejected ? Tess4JPageResult.rejected(confidence, scale)
+					: new Tess4JPageResult(text, confidence, null, new String[0], scale);
+		}
+	}
+
+	/**
+	 * @return index of the snippet containing the given y coordinate of the
+	 *         composite page, the closest one above if it lies in a gap
+	 */
+	private static int snippetAt(final int[] tops, final int y) {
+		int low = 0;
+		int high = tops.length - 1;
+		while (low < high) {
+			final int mid = (low + high + 1) >>> 1;
+			if (tops[mid] <= y) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Choose the language of the page passed to the current engine among the
+	 * candidates and move the page to the engine of that language.
+	 *
+	 * Tesseract 3 cannot detect the script of a page without an OSD model, so
+	 * the languages are probed instead: a horizontal band through the middle
+	 * of the page is recognized with the language of the previous page first,
+	 * which is kept if the mean confidence of the band reaches
+	 * {@link #PROBE_CONFIDENCE}. Otherwise the band is recognized with each
+	 * other candidate on the image thresholded by the current engine, and the
+	 * most confident one is chosen if it reaches the threshold. If none does,
+	 * the page is recognized with the configured language. Since a single
+	 * language model is much faster than several, a band costs only a fraction
+	 * of the time saved on mixed collections.
+	 */
+	private void selectLanguage() {
+		final long start = System.nanoTime();
+		final int pageWidth = m_preprocessor.getPageWidth();
+		final int pageHeight = m_preprocessor.getPageHeight();
+		final int top = (int) (pageHeight * PROBE_TOP);
+		final int height = Math.max(1, (int) (pageHeight * PROBE_HEIGHT));
+
+		String best = m_lastLanguage;
+		int bestConfidence = probe(m_engine, top, pageWidth, height);
+		if (bestConfidence >= PROBE_CONFIDENCE) {
+			m_engine.getAPI().TessBaseAPISetRectangle(m_engine.getHandle(), 0, 0, pageWidth, pageHeight);
+			m_pageStatistics.language(best);
+			m_timings.stage(Tess4JTimings.LANGUAGE, start);
+			return;
+		}
+
+		// the full page thresholded once, for all other engines
+		m_engine.getAPI().TessBaseAPISetRectangle(m_engine.getHandle(), 0, 0, pageWidth, pageHeight);
+		final Pix pix = m_engine.getAPI().TessBaseAPIGetThresholdedImage(m_engine.getHandle());
+		if (pix == null) {
+			m_timings.stage(Tess4JTimings.LANGUAGE, start);
+			return;
+		}
+		try {
+			for (final String candidate : m_candidates) {
+				if (candidate.equals(m_lastLanguage)) {
+					continue;
+				}
+				final TessEngine engine = languageEngine(candidate);
+				engine.getAPI().TessBaseAPISetImage2(engine.getHandle(), pix);
+				final int confidence = probe(engine, top, pageWidth, height);
+				if (confidence > bestConfidence) {
+					best = candidate;
+					bestConfidence = confidence;
+				}
+			}
+
+			final TessEngine engine;
+			if (bestConfidence >= PROBE_CONFIDENCE) {
+				engine = languageEngine(best);
+				m_lastLanguage = best;
+				m_pageStatistics.language(best);
+			} else {
+				engine = m_defaultEngine;
+				m_pageStatistics.language(m_config.getLanguage());
+			}
+			if (engine != m_engine) {
+				// resets the rectangle to the full page
+				engine.getAPI().TessBaseAPISetImage2(engine.getHandle(), pix);
+				m_engine = engine;
+			}
+		} finally {
+			LeptonicaDeskewer.destroy(pix);
+		}
+		m_timings.stage(Tess4JTimings.LANGUAGE, start);
+	}
+
+	/**
+	 * @return mean confidence of the given band of the image set on the engine
+	 */
+	private static int probe(final TessEngine engine, final int top, final int width, final int height) {
+		final TessAPI api = engine.getAPI();
+		api.TessBaseAPISetRectangle(engine.getHandle(), 0, top, width, height);
+		api.TessBaseAPIRecognize(engine.getHandle(), null);
+		return api.TessBaseAPIMeanTextConf(engine.getHandle());
+	}
+
+	/**
+	 * @return engine for a candidate language, obtained from the
+	 *         {@link TessEngineCache} on first use
+	 */
+	private TessEngine languageEngine(final String language) {
+		if (language.equals(m_config.getLanguage())) {
+			return m_defaultEngine;
+		}
+		return m_languageEngines.computeIfAbsent(language,
+				l -> TessEngineCache.getInstance().acquire(m_config.withLanguage(l)));
+	}
+
+	/**
+	 * Recognize the current image.
+	 *
+	 * @return the recognized text
+	 */
+	private String getUTF8Text() {
+		String result = "";
+
+		// process and get the result
+		Pointer utf8Text = m_engine.getAPI().TessBaseAPIGetUTF8Text(m_engine.getHandle());
+		if (utf8Text != null) {
+			result = utf8Text.getString(0);
+			m_engine.getAPI().TessDeleteText(utf8Text);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Walk the result iterator of the last recognition at the given level.
+	 *
+	 * @param level
+	 *            one of {@link ITessAPI.TessPageIteratorLevel}
+	 * @param scale
+	 *            factor the page was rescaled by, to map the bounding boxes
+	 *            back to the original page
+	 * @return the non-empty elements of the level in reading order
+	 */
+	private List<Tess4JLayoutElement> getLayoutElements(final int level, final double scale) {
+		final List<Tess4JLayoutElement> elements = new ArrayList<>();
+
+		final TessAPI api = m_engine.getAPI();
+		final TessResultIterator it = api.TessBaseAPIGetIterator(m_engine.getHandle());
+		if (it == null) {
+			// nothing was recognized
+			return elements;
+		}
+
+		final TessPageIterator pageIt = api.TessResultIteratorGetPageIterator(it);
+		try {
+			do {
+				final Pointer utf8Text = api.TessResultIteratorGetUTF8Text(it, level);
+				if (utf8Text == null) {
+					continue;
+				}
+				final String text = utf8Text.getString(0).trim();
+				api.TessDeleteText(utf8Text);
+
+				final Rectangle bounds = Tess4JPageFormatter.unscale(
+						Tess4JPageFormatter.boundingBox(api, pageIt, level), scale);
+				elements.add(new Tess4JLayoutElement(text, bounds, api.TessResultIteratorConfidence(it, level)));
+			} while (api.TessResultIteratorNext(it, level) == ITessAPI.TRUE);
+		} finally {
+			api.TessResultIteratorDelete(it);
+		}
+		return elements;
+	}
+
+	/**
+	 * Return the Tesseract engines to the {@link TessEngineCache}. The worker
+	 * must not be used afterwards.
+	 */
+	public void dispose() {
+		m_preprocessor.clear();
+		TessEngineCache.getInstance().release(m_defaultEngine);
+		for (final TessEngine engine : m_languageEngines.values()) {
+			TessEngineCache.getInstance().release(engine);
+		}
+		m_languageEngines.clear();
+		m_engine = null;
+	}
+}
\ No newline at end of file
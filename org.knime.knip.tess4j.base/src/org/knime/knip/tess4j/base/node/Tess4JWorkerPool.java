@@ -0,0 +1,650 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.core.node.NodeLogger;
+import org.knime.knip.tess4j.base.image.PageBufferStatistics;
+import org.knime.knip.tess4j.base.image.PlaneHasher;
+import org.knime.knip.tess4j.base.image.Rescaler;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Pool of {@link Tess4JWorker}s used during one execution of the Tess4J node.
+ *
+ * Workers are created lazily up to the configured pool size, so only as many
+ * Tesseract engines are in use as rows are actually processed concurrently.
+ * Closing the pool waits until all workers are released and then returns the
+ * engines to the {@link org.knime.knip.tess4j.base.engine.TessEngineCache}
+ * for reuse by later executions.
+ *
+ * Multiple planes of one image may be recognized in parallel on threads owned
+ * by the pool, which are started on first use.
+ *
+ * If the result cache is enabled, pages are looked up in the
+ * {@link Tess4JResultCache} before a worker is acquired, so pages recognized
+ * by previous executions with the same settings need no Tesseract engine.
+ *
+ * If the node is executed incrementally, whole rows are looked up in the
+ * {@link Tess4JIncrementalResults} of the previous execution by their key and
+ * the fingerprint of their image, see {@link #recognizeRow}.
+ *
+ * Many small images can be recognized together on composite pages, see
+ * {@link #recognizeBatch(List, List)}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+class Tess4JWorkerPool<T extends RealType<T>> implements AutoCloseable {
+
+	private static final NodeLogger LOGGER = NodeLogger.getLogger(Tess4JWorkerPool.class);
+
+	private final Tess4JNodeSettings m_settings;
+	private final int m_size;
+	private final PageBufferStatistics m_bufferStatistics = new PageBufferStatistics();
+	private final Tess4JPageStatistics m_pageStatistics = new Tess4JPageStatistics();
+	private final Tess4JTimings m_timings = new Tess4JTimings();
+
+	/* all below guarded by m_workers */
+	private final Deque<Tess4JWorker<T>> m_idle = new ArrayDeque<>();
+	private final Set<Tess4JWorker<T>> m_inUse = new HashSet<>();
+	private final List<Tess4JWorker<T>> m_workers = new ArrayList<>();
+
+	private int m_created = 0;
+	private boolean m_closed = false;
+
+	private ExecutorService m_planeExecutor = null;
+	private ExecutorService m_rowExecutor = null;
+
+	/* null if results are not cached */
+	private final Tess4JResultCache m_cache;
+	private final long m_settingsHash;
+
+	private final boolean m_rowDiagnostics;
+
+	/* null if the node is not executed incrementally */
+	private Tess4JIncrementalResults m_incremental = null;
+
+	/**
+	 * Constructor
+	 *
+	 * @param settings
+	 *            settings to initialize the workers with
+	 * @param size
+	 *            maximum number of workers
+	 */
+	public Tess4JWorkerPool(final Tess4JNodeSettings settings, final int size) {
+		m_settings = settings;
+		m_size = Math.max(1, size);
+		m_rowDiagnostics = settings.logRowDiagnostics();
+
+		Tess4JResultCache cache = null;
+		if (settings.useResultCache()) {
+			try {
+				cache = Tess4JResultCache.open(settings.getResultCacheDirectory(), settings.getResultCacheSizeBytes());
+			} catch (final IOException e) {
+				LOGGER.warn("Result cache disabled, could not open " + settings.getResultCacheDirectory() + ": "
+						+ e.getMessage());
+			}
+		}
+		m_cache = cache;
+		if (cache == null) {
+			m_settingsHash = 0;
+		} else {
+			m_settingsHash = PlaneHasher.combine(0,
+					settings.getResultFingerprint() + "|models=" + settings.getModelFingerprint());
+		}
+	}
+
+	/**
+	 * @return the maximum number of workers in this pool.
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * @return page buffer memory usage of all workers of this pool.
+	 */
+	public PageBufferStatistics getBufferStatistics() {
+		return m_bufferStatistics;
+	}
+
+	/**
+	 * @return number of pages recognized and rejected by all workers of this
+	 *         pool.
+	 */
+	public Tess4JPageStatistics getPageStatistics() {
+		return m_pageStatistics;
+	}
+
+	/**
+	 * @return time spent in each stage and row latencies of all workers of
+	 *         this pool.
+	 */
+	public Tess4JTimings getTimings() {
+		return m_timings;
+	}
+
+	/**
+	 * Set the results of the previous execution to reuse for unchanged rows
+	 * and to record the results of this execution to.
+	 *
+	 * @param incremental
+	 *            the results, <code>null</code> to recognize all rows
+	 */
+	public void setIncrementalResults(final Tess4JIncrementalResults incremental) {
+		m_incremental = incremental;
+	}
+
+	/**
+	 * Get a worker for exclusive use by the calling thread. Blocks until a
+	 * worker becomes available if all workers are in use.
+	 *
+	 * @return a worker, which needs to be returned via
+	 *         {@link #release(Tess4JWorker)}
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker
+	 */
+	public Tess4JWorker<T> acquire() throws InterruptedException {
+		synchronized (m_workers) {
+			while (true) {
+				if (m_closed) {
+					throw new IllegalStateException("Worker pool has already been closed.");
+				}
+				final Tess4JWorker<T> worker = m_idle.poll();
+				if (worker != null) {
+					m_inUse.add(worker);
+					return worker;
+				}
+				if (m_created < m_size) {
+					m_created++;
+					break;
+				}
+				m_workers.wait();
+			}
+		}
+
+		// initialize outside of the lock, Tesseract init takes a while
+		final Tess4JWorker<T> newWorker;
+		try {
+			newWorker = new Tess4JWorker<>(m_settings, m_bufferStatistics, m_pageStatistics, m_timings);
+		} catch (final RuntimeException | Error e) {
+			synchronized (m_workers) {
+				m_created--;
+				m_workers.notifyAll();
+			}
+			throw e;
+		}
+
+		synchronized (m_workers) {
+			if (m_closed) {
+				m_created--;
+				newWorker.dispose();
+				throw new IllegalStateException("Worker pool has already been closed.");
+			}
+			m_workers.add(newWorker);
+			m_inUse.add(newWorker);
+		}
+		return newWorker;
+	}
+
+	/**
+	 * Return a worker previously obtained via {@link #acquire()}. A worker
+	 * released while the pool is being closed is not handed out again.
+	 *
+	 * @param worker
+	 *            the worker to return
+	 */
+	public void release(final Tess4JWorker<T> worker) {
+		synchronized (m_workers) {
+			if (!m_inUse.remove(worker)) {
+				throw new IllegalStateException("Worker is not in use or the pool has already been closed.");
+			}
+			if (!m_closed) {
+				m_idle.add(worker);
+			}
+			m_workers.notifyAll();
+		}
+	}
+
+	/**
+	 * Recognize several planes of an image, in parallel if the pool has more
+	 * than one worker.
+	 *
+	 * @param img
+	 *            the image
+	 * @param planes
+	 *            indices of the planes to recognize
+	 * @return the recognition result per plane, in the order of planes
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker or result
+	 */
+	public Tess4JPageResult[] recognizePlanes(final Img<T> img, final long[] planes) throws InterruptedException {
+		final Tess4JPageResult[] results = new Tess4JPageResult[planes.length];
+
+		if (planes.length == 1 || m_size == 1) {
+			for (int i = 0; i < planes.length; ++i) {
+				results[i] = recognizePlane(img, planes[i]);
+			}
+			return results;
+		}
+
+		final ExecutorService executor = planeExecutor();
+		final List<Future<Tess4JPageResult>> futures = new ArrayList<>(planes.length);
+		for (final long plane : planes) {
+			futures.add(executor.submit(() -> recognizePlane(img, plane)));
+		}
+
+		try {
+			for (int i = 0; i < results.length; ++i) {
+				results[i] = futures.get(i).get();
+			}
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			for (final Future<Tess4JPageResult> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Recognize several planes of the image of a row, taking the results of
+	 * the previous execution if the row is unchanged.
+	 *
+	 * @param rowKey
+	 *            key of the row
+	 * @param img
+	 *            the image
+	 * @param planes
+	 *            indices of the planes to recognize
+	 * @return the recognition result per plane, in the order of planes
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker or result
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	public Tess4JPageResult[] recognizeRow(final String rowKey, final Img<T> img, final long[] planes)
+			throws InterruptedException, IOException {
+		final long start = System.nanoTime();
+		final Tess4JIncrementalResults incremental = m_incremental;
+		if (incremental == null) {
+			final Tess4JPageResult[] results = recognizePlanes(img, planes);
+			rowDone(rowKey, img, System.nanoTime() - start, planes.length, false);
+			return results;
+		}
+
+		final long fingerprint = fingerprint(img, planes);
+		Tess4JPageResult[] results = incremental.getPrevious(rowKey, fingerprint);
+		final boolean reused = results != null;
+		if (!reused) {
+			results = recognizePlanes(img, planes);
+		}
+		incremental.record(rowKey, fingerprint, results);
+		rowDone(rowKey, img, System.nanoTime() - start, planes.length, reused);
+		return results;
+	}
+
+	/**
+	 * Recognize the first plane of many small images on composite pages with
+	 * a single worker, see {@link Tess4JWorker#recognizeBatch(List)}. Images
+	 * whose results are cached or unchanged since the previous execution are
+	 * not passed to the worker.
+	 *
+	 * @param rowKeys
+	 *            keys of the rows of the images
+	 * @param imgs
+	 *            the images
+	 * @return the recognition result per image, in the order of imgs
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker
+	 * @throws IOException
+	 *             if the results cannot be recorded for the next execution
+	 */
+	public Tess4JPageResult[] recognizeBatch(final List<String> rowKeys, final List<Img<T>> imgs)
+			throws InterruptedException, IOException {
+		final long start = System.nanoTime();
+		final Tess4JIncrementalResults incremental = m_incremental;
+		final long[] firstPlane = { 0 };
+		final Tess4JPageResult[] results = new Tess4JPageResult[imgs.size()];
+		final long[] fingerprints = new long[results.length];
+		final boolean[] reused = new boolean[results.length];
+		final String[] keys = new String[results.length];
+
+		final List<Img<T>> pending = new ArrayList<>();
+		final List<Integer> pendingIdx = new ArrayList<>();
+		for (int i = 0; i < results.length; ++i) {
+			final Img<T> img = imgs.get(i);
+			if (incremental != null) {
+				fingerprints[i] = fingerprint(img, firstPlane);
+				final Tess4JPageResult[] previous = incremental.getPrevious(rowKeys.get(i), fingerprints[i]);
+				if (previous != null) {
+					results[i] = previous[0];
+					reused[i] = true;
+					continue;
+				}
+			}
+			if (m_cache != null) {
+				keys[i] = cacheKey(img, 0);
+				results[i] = m_cache.get(keys[i]);
+				if (results[i] != null) {
+					m_pageStatistics.cached();
+					continue;
+				}
+			}
+			pending.add(img);
+			pendingIdx.add(i);
+		}
+
+		if (!pending.isEmpty()) {
+			final Tess4JPageResult[] recognized;
+			final Tess4JWorker<T> worker = acquire();
+			try {
+				recognized = worker.recognizeBatch(pending);
+			} finally {
+				release(worker);
+			}
+			for (int j = 0; j < recognized.length; ++j) {
+				final int i = pendingIdx.get(j);
+				results[i] = recognized[j];
+				if (m_cache != null) {
+					m_cache.put(keys[i], recognized[j]);
+				}
+			}
+		}
+
+		/* the rows share the time of the batch, counting it once per row would inflate the latencies */
+		final long rowNanos = (System.nanoTime() - start) / Math.max(1, results.length);
+		for (int i = 0; i < results.length; ++i) {
+			if (incremental != null) {
+				incremental.record(rowKeys.get(i), fingerprints[i], new Tess4JPageResult[] { results[i] });
+			}
+			rowDone(rowKeys.get(i), imgs.get(i), rowNanos, 1, reused[i]);
+		}
+		return results;
+	}
+
+	/**
+	 * Recognize a batch of small images on a thread owned by this pool, see
+	 * {@link #recognizeBatch(List, List)}.
+	 *
+	 * @param rowKeys
+	 *            keys of the rows of the images
+	 * @param imgs
+	 *            the images
+	 * @return future of the recognition result per image
+	 */
+	public Future<Tess4JPageResult[]> submitBatch(final List<String> rowKeys, final List<Img<T>> imgs) {
+		return planeExecutor().submit(() -> recognizeBatch(rowKeys, imgs));
+	}
+
+	/**
+	 * Fingerprint of the given planes of an image for incremental execution.
+	 */
+	private long fingerprint(final Img<T> img, final long[] planes) {
+		long fingerprint = planes.length;
+		for (final long plane : planes) {
+			fingerprint = fingerprint * 31 + pageHash(img, plane);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Key of the cached result of a plane.
+	 */
+	private String cacheKey(final Img<T> img, final long plane) {
+		return Tess4JResultCache.key(pageHash(img, plane), m_settingsHash);
+	}
+
+	/**
+	 * Hash of a plane. Includes the calibrated resolution of the image if
+	 * pages are rescaled to a target resolution, since the scale factor is
+	 * derived from it.
+	 */
+	private long pageHash(final Img<T> img, final long plane) {
+		final long hash = PlaneHasher.hash(img, plane);
+		if (m_settings.getTargetResolution() > 0) {
+			return PlaneHasher.combine(hash, Double.toString(Rescaler.calibratedResolution(img)));
+		}
+		return hash;
+	}
+
+	/**
+	 * Record the latency of a row and log it if row diagnostics are enabled.
+	 */
+	private void rowDone(final String rowKey, final Img<T> img, final long nanos, final int pages,
+			final boolean reused) {
+		m_timings.row(nanos, pages);
+		if (m_rowDiagnostics && LOGGER.isDebugEnabled()) {
+			LOGGER.debug(String.format("Row %s: %d pages, %s, %.1f ms%s", rowKey, pages,
+					img.firstElement().getClass().getSimpleName(), nanos / 1e6,
+					reused ? ", reused" : ""));
+		}
+	}
+
+	/**
+	 * Recognize a plane with any available worker or take its result from the
+	 * cache.
+	 */
+	private Tess4JPageResult recognizePlane(final Img<T> img, final long plane) throws InterruptedException {
+		String key = null;
+		if (m_cache != null) {
+			key = cacheKey(img, plane);
+			final Tess4JPageResult cached = m_cache.get(key);
+			if (cached != null) {
+				m_pageStatistics.cached();
+				return cached;
+			}
+		}
+
+		final Tess4JPageResult result;
+		final Tess4JWorker<T> worker = acquire();
+		try {
+			result = worker.recognize(img, plane);
+		} finally {
+			release(worker);
+		}
+
+		if (m_cache != null) {
+			m_cache.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Recognize several regions of the first plane of an image with a single
+	 * worker, passing the page to Tesseract only once.
+	 *
+	 * @param rowKey
+	 *            key of the row, for diagnostics
+	 * @param img
+	 *            the image
+	 * @param regions
+	 *            regions of the page to recognize
+	 * @return the recognized text per region
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for a worker
+	 */
+	public String[] recognizeRegions(final String rowKey, final Img<T> img, final List<Rectangle> regions)
+			throws InterruptedException {
+		final long start = System.nanoTime();
+		final String[] texts;
+		final Tess4JWorker<T> worker = acquire();
+		try {
+			texts = worker.recognizeRegions(img, 0, regions);
+		} finally {
+			release(worker);
+		}
+		rowDone(rowKey, img, System.nanoTime() - start, 1, false);
+		return texts;
+	}
+
+	/**
+	 * Compute the result of a row asynchronously, see
+	 * {@link Tess4JRowPipeline}. Up to as many rows as the pool has workers
+	 * are computed concurrently. Rows are computed on different threads than
+	 * planes, so that a row may wait for its planes without blocking them.
+	 *
+	 * @param task
+	 *            computes the result of the row with this pool
+	 * @return the future result
+	 */
+	public <R> Future<R> submitRow(final Callable<R> task) {
+		synchronized (m_workers) {
+			if (m_closed) {
+				throw new IllegalStateException("Worker pool has already been closed.");
+			}
+			if (m_rowExecutor == null) {
+				m_rowExecutor = createExecutor("Tess4J row recognition");
+			}
+			return m_rowExecutor.submit(task);
+		}
+	}
+
+	private ExecutorService planeExecutor() {
+		synchronized (m_workers) {
+			if (m_closed) {
+				throw new IllegalStateException("Worker pool has already been closed.");
+			}
+			if (m_planeExecutor == null) {
+				m_planeExecutor = createExecutor("Tess4J plane recognition");
+			}
+			return m_planeExecutor;
+		}
+	}
+
+	private ExecutorService createExecutor(final String name) {
+		return Executors.newFixedThreadPool(m_size, (r) -> {
+			final Thread thread = new Thread(r, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/* interrupt the tasks of an executor and wait for them, returns whether interrupted while waiting */
+	private static boolean shutdown(final ExecutorService executor) {
+		boolean interrupted = false;
+		if (executor != null) {
+			executor.shutdownNow();
+			while (!executor.isTerminated()) {
+				try {
+					executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		return interrupted;
+	}
+
+	/**
+	 * Dispose all workers of this pool, returning their engines to the cache.
+	 * Waits for rows and planes which are still being recognized and for all
+	 * workers to be released, since a worker must not be disposed while
+	 * Tesseract is running. Afterwards workers can neither be acquired nor
+	 * released.
+	 */
+	@Override
+	public void close() {
+		final ExecutorService rowExecutor;
+		final ExecutorService planeExecutor;
+		synchronized (m_workers) {
+			m_closed = true;
+			rowExecutor = m_rowExecutor;
+			planeExecutor = m_planeExecutor;
+			m_rowExecutor = null;
+			m_planeExecutor = null;
+			// wake up threads waiting for a worker
+			m_workers.notifyAll();
+		}
+
+		// rows first, they may wait for planes
+		boolean interrupted = shutdown(rowExecutor);
+		interrupted |= shutdown(planeExecutor);
+
+		synchronized (m_workers) {
+			// cell factory threads may still be recognizing a row
+			while (!m_inUse.isEmpty()) {
+				try {
+					m_workers.wait();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			for (final Tess4JWorker<T> worker : m_workers) {
+				worker.dispose();
+			}
+			m_workers.clear();
+			m_idle.clear();
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
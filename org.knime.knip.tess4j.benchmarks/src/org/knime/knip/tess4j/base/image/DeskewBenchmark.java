@@ -0,0 +1,159 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+
+import net.sourceforge.tess4j.util.ImageHelper;
+
+/**
+ * Deskewing a page with the {@link Deskewer}, the {@link LeptonicaDeskewer}
+ * and the jdeskew implementation used by the former renderer path.
+ *
+ * The detected angles of the Java implementations are compared against the
+ * known skew of the synthetic page once per trial and printed with the
+ * results.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeskewBenchmark {
+
+	/** Page size in pixels, A4 at 150 and 300 dpi */
+	@Param({ "1240x1754", "2480x3508" })
+	public String size;
+
+	/** Skew of the text on the page in degrees */
+	@Param({ "2.5" })
+	public double angle;
+
+	private BufferedImage m_page;
+	private byte[] m_grey;
+	private ByteBuffer m_greyBuffer;
+	private ByteBuffer m_buffer;
+
+	/**
+	 * Create the skewed page and report the angles detected by each
+	 * implementation.
+	 */
+	@Setup
+	public void setup() {
+		m_page = BenchmarkPages.render(size, angle);
+		m_grey = ((DataBufferByte) m_page.getRaster().getDataBuffer()).getData();
+		m_greyBuffer = ByteBuffer.allocateDirect(m_grey.length);
+		m_greyBuffer.put(m_grey).flip();
+		m_buffer = ByteBuffer.allocateDirect(m_grey.length);
+
+		System.out.println(String.format(Locale.ROOT, "Skew of %.2f degrees detected as %.2f by Deskewer, "
+				+ "%.2f by jdeskew", angle, javaSkewAngle(), jdeskewSkewAngle()));
+	}
+
+	/**
+	 * @return skew angle detected by the {@link Deskewer}
+	 */
+	@Benchmark
+	public double javaSkewAngle() {
+		return Deskewer.skewAngle(m_grey, 0, m_page.getWidth(), m_page.getHeight());
+	}
+
+	/**
+	 * @return the page deskewed by the {@link Deskewer}
+	 */
+	@Benchmark
+	public ByteBuffer javaDeskew() {
+		final int width = m_page.getWidth();
+		final int height = m_page.getHeight();
+		Deskewer.deskew(m_grey, 0, width, height, Deskewer.skewAngle(m_grey, 0, width, height), m_buffer);
+		return m_buffer;
+	}
+
+	/**
+	 * Deskew the page with Leptonica, including copying it into and out of a
+	 * Pix.
+	 */
+	@Benchmark
+	public void leptonicaDeskew() {
+		m_greyBuffer.rewind();
+		LeptonicaDeskewer.destroy(LeptonicaDeskewer.deskew(m_greyBuffer, m_page.getWidth(), m_page.getHeight()));
+	}
+
+	/**
+	 * @return skew angle detected by jdeskew
+	 */
+	@Benchmark
+	public double jdeskewSkewAngle() {
+		return new ImageDeskew(m_page).getSkewAngle();
+	}
+
+	/**
+	 * @return the page deskewed by jdeskew like the former renderer path
+	 */
+	@Benchmark
+	public BufferedImage jdeskewDeskew() {
+		return ImageHelper.rotateImage(m_page, -new ImageDeskew(m_page).getSkewAngle());
+	}
+}
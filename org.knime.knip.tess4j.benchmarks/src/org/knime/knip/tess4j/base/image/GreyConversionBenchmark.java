@@ -0,0 +1,160 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.core.awt.Real2GreyRenderer;
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+/**
+ * Converting a page into the 8-bit grey buffer passed to Tesseract, comparing
+ * {@link GreyConverter} with the stages of the former renderer path: render
+ * the image with the {@link Real2GreyRenderer}, convert the result to
+ * grayscale and copy it into a buffer.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GreyConversionBenchmark {
+
+	/** Page size in pixels, A4 at 150 and 300 dpi */
+	@Param({ "1240x1754", "2480x3508" })
+	public String size;
+
+	/** Pixel type, see {@link BenchmarkPages#TYPES} */
+	@Param({ "uint8", "uint16", "float32" })
+	public String type;
+
+	private Img<?> m_img;
+	private BufferedImage m_rendered;
+	private BufferedImage m_grayscale;
+	private ByteBuffer m_buffer;
+
+	/**
+	 * Create the page and the intermediate results of the renderer path.
+	 */
+	@Setup
+	public void setup() {
+		m_img = BenchmarkPages.create(size, type, 0);
+		m_rendered = render();
+		m_grayscale = ImageHelper.convertImageToGrayscale(m_rendered);
+		m_buffer = ByteBuffer.allocateDirect((int) (m_img.dimension(0) * m_img.dimension(1)));
+	}
+
+	/**
+	 * @return the page converted by {@link GreyConverter}
+	 */
+	@Benchmark
+	public ByteBuffer greyConverter() {
+		convert(m_img);
+		return m_buffer;
+	}
+
+	/**
+	 * @return the page converted by all stages of the renderer path
+	 */
+	@Benchmark
+	public ByteBuffer rendererPath() {
+		return ImageIOHelper.convertImageData(ImageHelper.convertImageToGrayscale(render()));
+	}
+
+	/**
+	 * @return the page rendered by the {@link Real2GreyRenderer}
+	 */
+	@Benchmark
+	public BufferedImage render() {
+		return render(m_img);
+	}
+
+	/**
+	 * @return the rendered page converted to grayscale
+	 */
+	@Benchmark
+	public BufferedImage grayscale() {
+		return ImageHelper.convertImageToGrayscale(m_rendered);
+	}
+
+	/**
+	 * @return the grayscale page copied into a buffer
+	 */
+	@Benchmark
+	public ByteBuffer bufferConversion() {
+		return ImageIOHelper.convertImageData(m_grayscale);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends RealType<T>> void convert(final Img<?> img) {
+		GreyConverter.convertPlane((Img<T>) img, 0, m_buffer);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends RealType<T>> BufferedImage render(final Img<?> img) {
+		final Img<T> typed = (Img<T>) img;
+		final Real2GreyRenderer<T> renderer = new Real2GreyRenderer<T>(typed.firstElement().getMinValue());
+		return (BufferedImage) renderer.render(typed, 0, 1, new long[typed.numDimensions()]).image();
+	}
+}
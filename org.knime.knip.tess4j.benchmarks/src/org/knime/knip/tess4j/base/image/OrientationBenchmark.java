@@ -0,0 +1,129 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Detecting the orientation of a page and rotating it upright with the
+ * {@link OrientationCorrector}.
+ *
+ * The detected orientation is compared against the actual orientation of the
+ * synthetic page once per trial and printed with the results.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrientationBenchmark {
+
+	/** Page size in pixels, A4 at 150, 300 and 600 dpi */
+	@Param({ "1240x1754", "2480x3508", "4960x7016" })
+	public String size;
+
+	/** Clockwise angle in degrees the text is rotated by on the page */
+	@Param({ "0", "90", "180", "270" })
+	public int orientation;
+
+	private int m_width;
+	private int m_height;
+	private byte[] m_grey;
+	private byte[] m_upright;
+
+	/**
+	 * Create the rotated page and report the orientation detected for it.
+	 */
+	@Setup
+	public void setup() {
+		final BufferedImage page = BenchmarkPages.render(size, 0);
+		final byte[] upright = ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+		final boolean swap = orientation % 180 != 0;
+		m_width = swap ? page.getHeight() : page.getWidth();
+		m_height = swap ? page.getWidth() : page.getHeight();
+		m_grey = new byte[upright.length];
+		m_upright = new byte[upright.length];
+
+		// rotating counter-clockwise by the complement rotates clockwise
+		OrientationCorrector.rotate(upright, 0, page.getWidth(), page.getHeight(), (360 - orientation) % 360,
+				m_grey);
+
+		System.out.println(String.format("Orientation of %d degrees detected as %d degrees", orientation,
+				detect()));
+	}
+
+	/**
+	 * @return the detected orientation
+	 */
+	@Benchmark
+	public int detect() {
+		return OrientationCorrector.orientation(m_grey, 0, m_width, m_height, true);
+	}
+
+	/**
+	 * @return the page rotated upright
+	 */
+	@Benchmark
+	public byte[] rotate() {
+		OrientationCorrector.rotate(m_grey, 0, m_width, m_height, orientation, m_upright);
+		return m_upright;
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Estimating the resolution of a page and resampling it to 300 dpi with the
+ * {@link Rescaler}.
+ *
+ * The estimated resolution is compared against the actual resolution of the
+ * synthetic page once per trial and printed with the results.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RescaleBenchmark {
+
+	/** Page size in pixels, A4 at 150, 300 and 600 dpi */
+	@Param({ "1240x1754", "2480x3508", "4960x7016" })
+	public String size;
+
+	/** Resolution to rescale to */
+	@Param({ "300" })
+	public int targetDpi;
+
+	private int m_width;
+	private int m_height;
+	private byte[] m_grey;
+	private byte[] m_target;
+	private int m_newWidth;
+	private int m_newHeight;
+
+	/**
+	 * Create the page and report the resolution estimated for it.
+	 */
+	@Setup
+	public void setup() {
+		final BufferedImage page = BenchmarkPages.render(size, 0);
+		m_width = page.getWidth();
+		m_height = page.getHeight();
+		m_grey = ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+
+		final double scale = targetDpi * BenchmarkPages.A4_HEIGHT_INCHES / m_height;
+		m_newWidth = (int) Math.round(m_width * scale);
+		m_newHeight = (int) Math.round(m_height * scale);
+		m_target = new byte[m_newWidth * m_newHeight];
+
+		System.out.println(String.format(Locale.ROOT, "Resolution of %.0f dpi estimated as %.0f dpi",
+				m_height / BenchmarkPages.A4_HEIGHT_INCHES, estimateResolution()));
+	}
+
+	/**
+	 * @return resolution estimated from the text line height
+	 */
+	@Benchmark
+	public double estimateResolution() {
+		return Rescaler.estimateResolution(m_grey, 0, m_width, m_height);
+	}
+
+	/**
+	 * @return the page resampled to the target resolution
+	 */
+	@Benchmark
+	public byte[] resample() {
+		Rescaler.resample(m_grey, 0, m_width, m_height, m_target, m_newWidth, m_newHeight);
+		return m_target;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.image.BufferedImage;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.tess4j.base.image.PageBufferStatistics;
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Recognizing a clean and a degraded page end-to-end with a
+ * {@link Tess4JWorker}, binarized by Tesseract or by one of the methods of the
+ * node, to show the impact of binarization on recognition time.
+ *
+ * The mean confidence and the length of the recognized text are printed once
+ * per trial with the results, as a rough measure of accuracy.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BinarizationBenchmark {
+
+	/** Page size in pixels, A4 at 150 and 300 dpi */
+	@Param({ "1240x1754", "2480x3508" })
+	public String size;
+
+	/** Whether the page is "clean" or "degraded" like a poor scan */
+	@Param({ "clean", "degraded" })
+	public String scan;
+
+	/** Binarization, see {@link Tess4JNodeSettings#BINARIZATIONS} */
+	@Param({ "Tesseract", "Otsu", "Sauvola" })
+	public String binarization;
+
+	/** Language of the traineddata to use */
+	@Param({ "deu" })
+	public String language;
+
+	private Img<?> m_img;
+	private Tess4JWorker<?> m_worker;
+
+	/**
+	 * Create the page and a worker and report the accuracy of the result.
+	 */
+	@Setup
+	public void setup() {
+		final BufferedImage page = BenchmarkPages.render(size, 0);
+		if (scan.equals("degraded")) {
+			BenchmarkPages.degrade(page, 42);
+		}
+		m_img = BenchmarkPages.create(page, BenchmarkPages.TYPES[0]);
+
+		final Tess4JNodeSettings settings = new Tess4JNodeSettings();
+		settings.languageModel().setStringValue(language);
+		settings.deskewModel().setBooleanValue(false);
+		settings.outputConfidenceModel().setBooleanValue(true);
+		settings.binarizationModel().setStringValue(binarization);
+
+		m_worker = new Tess4JWorker<>(settings, new PageBufferStatistics(), new Tess4JPageStatistics(),
+				new Tess4JTimings());
+
+		final Tess4JPageResult result = worker();
+		System.out.println(String.format(Locale.ROOT, "%s binarization of %s page: mean confidence %d, "
+				+ "%d characters", binarization, scan, result.getConfidence(), result.getText().length()));
+	}
+
+	/**
+	 * Return the engine to the cache.
+	 */
+	@TearDown
+	public void tearDown() {
+		m_worker.dispose();
+	}
+
+	/**
+	 * @return the result of recognizing the page with a worker
+	 */
+	@Benchmark
+	public Tess4JPageResult worker() {
+		return recognize(m_worker, m_img);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends RealType<T>> Tess4JPageResult recognize(final Tess4JWorker<?> worker, final Img<?> img) {
+		return ((Tess4JWorker<T>) worker).recognize((Img<T>) img, 0);
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.tess4j.base.engine.TessEngine;
+import org.knime.knip.tess4j.base.engine.TessEngineCache;
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.sun.jna.Pointer;
+
+/**
+ * Rendering the result of one recognition pass as plain text and in each of
+ * the {@link Tess4JNodeSettings#OUTPUT_FORMATS} with the
+ * {@link Tess4JPageFormatter}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OutputFormatBenchmark {
+
+	/** Page size in pixels, A4 at 150 and 300 dpi */
+	@Param({ "1240x1754", "2480x3508" })
+	public String size;
+
+	/** "Text" or one of {@link Tess4JNodeSettings#OUTPUT_FORMATS} */
+	@Param({ "Text", "hOCR", "TSV", "ALTO XML" })
+	public String format;
+
+	/** Language of the traineddata to use */
+	@Param({ "deu" })
+	public String language;
+
+	private TessEngine m_engine;
+
+	/**
+	 * Recognize the page once.
+	 */
+	@Setup
+	public void setup() {
+		final Tess4JNodeSettings settings = new Tess4JNodeSettings();
+		settings.languageModel().setStringValue(language);
+		m_engine = TessEngineCache.getInstance().acquire(settings.createEngineConfig());
+
+		final byte[] grey = (byte[]) BenchmarkPages.render(size, 0).getRaster().getDataElements(0, 0,
+				BenchmarkPages.width(size), BenchmarkPages.height(size), null);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(grey.length);
+		buffer.put(grey).flip();
+
+		final int width = BenchmarkPages.width(size);
+		m_engine.getAPI().TessBaseAPISetImage(m_engine.getHandle(), buffer, width, BenchmarkPages.height(size), 1,
+				width);
+		m_engine.getAPI().TessBaseAPIRecognize(m_engine.getHandle(), null);
+	}
+
+	/**
+	 * Return the engine to the cache.
+	 */
+	@TearDown
+	public void tearDown() {
+		TessEngineCache.getInstance().release(m_engine);
+	}
+
+	/**
+	 * @return the page in the selected format
+	 */
+	@Benchmark
+	public String format() {
+		if (format.equals("Text")) {
+			final Pointer utf8Text = m_engine.getAPI().TessBaseAPIGetUTF8Text(m_engine.getHandle());
+			final String text = utf8Text.getString(0);
+			m_engine.getAPI().TessDeleteText(utf8Text);
+			return text;
+		}
+		return new Tess4JPageFormatter(m_engine, BenchmarkPages.width(size), BenchmarkPages.height(size))
+				.format(new String[] { format })[0];
+	}
+}
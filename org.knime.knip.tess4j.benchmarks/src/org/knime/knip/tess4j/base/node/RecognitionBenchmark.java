@@ -0,0 +1,217 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.knime.knip.core.awt.Real2GreyRenderer;
+import org.knime.knip.tess4j.base.engine.TessEngine;
+import org.knime.knip.tess4j.base.engine.TessEngineCache;
+import org.knime.knip.tess4j.base.image.GreyConverter;
+import org.knime.knip.tess4j.base.image.PageBufferStatistics;
+import org.knime.knip.tess4j.benchmarks.BenchmarkPages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.recognition.software.jdeskew.ImageDeskew;
+import com.sun.jna.Pointer;
+
+import net.imglib2.img.Img;
+import net.imglib2.type.numeric.RealType;
+import net.sourceforge.tess4j.util.ImageHelper;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+/**
+ * Recognizing a page end-to-end with a {@link Tess4JWorker} and with the
+ * former renderer path, and the recognition stage alone.
+ *
+ * English is not among the bundled traineddata files, so the German model is
+ * used by default, which covers the Latin script of the synthetic pages. The
+ * language can be overridden with the "language" parameter.
+ *
+ * @author KNIME Image Processing contributors
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecognitionBenchmark {
+
+	/** Page size in pixels, A4 at 150 and 300 dpi */
+	@Param({ "1240x1754", "2480x3508" })
+	public String size;
+
+	/** Pixel type, see {@link BenchmarkPages#TYPES} */
+	@Param({ "uint8", "uint16" })
+	public String type;
+
+	/** Deskew backend, one of "off", "java" and "leptonica" */
+	@Param({ "off", "java", "leptonica" })
+	public String deskew;
+
+	/** Language of the traineddata to use */
+	@Param({ "deu" })
+	public String language;
+
+	private Img<?> m_img;
+	private Tess4JWorker<?> m_worker;
+	private TessEngine m_engine;
+	private ByteBuffer m_buffer;
+
+	/**
+	 * Create the page, a worker and an engine for the recognition stage.
+	 */
+	@Setup
+	public void setup() {
+		m_img = BenchmarkPages.create(size, type, deskew.equals("off") ? 0 : 2.5);
+
+		final Tess4JNodeSettings settings = new Tess4JNodeSettings();
+		settings.languageModel().setStringValue(language);
+		settings.deskewModel().setBooleanValue(!deskew.equals("off"));
+		settings.deskewBackendModel().setStringValue(
+				Tess4JNodeSettings.DESKEW_BACKENDS[deskew.equals("leptonica") ? 1 : 0]);
+
+		m_worker = new Tess4JWorker<>(settings, new PageBufferStatistics(), new Tess4JPageStatistics(),
+				new Tess4JTimings());
+		m_engine = TessEngineCache.getInstance().acquire(settings.createEngineConfig());
+
+		m_buffer = ByteBuffer.allocateDirect((int) (m_img.dimension(0) * m_img.dimension(1)));
+		convert(m_img, m_buffer);
+	}
+
+	/**
+	 * Return the engines to the cache.
+	 */
+	@TearDown
+	public void tearDown() {
+		m_worker.dispose();
+		TessEngineCache.getInstance().release(m_engine);
+	}
+
+	/**
+	 * @return the result of recognizing the page with a worker
+	 */
+	@Benchmark
+	public Tess4JPageResult worker() {
+		return recognize(m_worker, m_img);
+	}
+
+	/**
+	 * Recognize the page like the former renderer path: render, deskew with
+	 * jdeskew unless off, convert to grayscale and copy into a buffer.
+	 *
+	 * @return the recognized text
+	 */
+	@Benchmark
+	public String rendererPath() {
+		BufferedImage bi = render(m_img);
+		if (!deskew.equals("off")) {
+			final double skewAngle = new ImageDeskew(bi).getSkewAngle();
+			if (Math.abs(skewAngle) > 0.05d) {
+				bi = ImageHelper.rotateImage(bi, -skewAngle);
+			}
+		}
+		bi = ImageHelper.convertImageToGrayscale(bi);
+		final ByteBuffer buffer = ImageIOHelper.convertImageData(bi);
+
+		m_engine.getAPI().TessBaseAPISetImage(m_engine.getHandle(), buffer, bi.getWidth(), bi.getHeight(), 1,
+				bi.getWidth());
+		return text();
+	}
+
+	/**
+	 * Pass the converted page to Tesseract and recognize it.
+	 *
+	 * @return the recognized text
+	 */
+	@Benchmark
+	public String recognition() {
+		final int width = (int) m_img.dimension(0);
+		m_buffer.rewind();
+		m_engine.getAPI().TessBaseAPISetImage(m_engine.getHandle(), m_buffer, width, (int) m_img.dimension(1), 1,
+				width);
+		m_engine.getAPI().TessBaseAPIRecognize(m_engine.getHandle(), null);
+		return text();
+	}
+
+	private String text() {
+		final Pointer utf8Text = m_engine.getAPI().TessBaseAPIGetUTF8Text(m_engine.getHandle());
+		if (utf8Text == null) {
+			return "";
+		}
+		final String text = utf8Text.getString(0);
+		m_engine.getAPI().TessDeleteText(utf8Text);
+		return text;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends RealType<T>> Tess4JPageResult recognize(final Tess4JWorker<?> worker, final Img<?> img) {
+		return ((Tess4JWorker<T>) worker).recognize((Img<T>) img, 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends RealType<T>> void convert(final Img<?> img, final ByteBuffer buffer) {
+		GreyConverter.convertPlane((Img<T>) img, 0, buffer);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends RealType<T>> BufferedImage render(final Img<?> img) {
+		final Img<T> typed = (Img<T>) img;
+		final Real2GreyRenderer<T> renderer = new Real2GreyRenderer<T>(typed.firstElement().getMinValue());
+		return (BufferedImage) renderer.render(typed, 0, 1, new long[typed.numDimensions()]).image();
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.benchmarks;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * Synthetic pages of printed text for the benchmarks, so that results do not
+ * depend on image files outside of the repository.
+ *
+ * Page sizes are given as "widthxheight" in pixels, pixel types as one of
+ * {@link #TYPES}. The text is set in a 12pt serif font at the resolution
+ * implied by the page height for A4 paper.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class BenchmarkPages {
+
+	/** Supported pixel types */
+	public static final String[] TYPES = { "uint8", "uint16", "float32" };
+
+	/** Height of an A4 page in inches */
+	public static final double A4_HEIGHT_INCHES = 11.69;
+
+	private static final String[] LINES = { "The quick brown fox jumps over the lazy dog. 0123456789",
+			"Pack my box with five dozen liquor jugs, then sphinx of black quartz, judge my vow.",
+			"How vexingly quick daft zebras jump; the five boxing wizards jump quickly!",
+			"Optical character recognition converts images of printed text into machine-encoded text." };
+
+	private BenchmarkPages() {
+		// utility class
+	}
+
+	/**
+	 * Render a page of text.
+	 *
+	 * @param size
+	 *            page size as "widthxheight"
+	 * @param angle
+	 *            skew of the text in degrees, counter-clockwise
+	 * @return the page as 8-bit grey image, black text on white
+	 */
+	public static BufferedImage render(final String size, final double angle) {
+		final int width = width(size);
+		final int height = height(size);
+		final double dpi = height / A4_HEIGHT_INCHES;
+		final int fontSize = (int) Math.round(dpi * 12 / 72);
+		final int margin = (int) Math.round(dpi * 0.8);
+
+		final BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D g = page.createGraphics();
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, width, height);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g.rotate(-Math.toRadians(angle), width / 2d, height / 2d);
+			g.setColor(Color.BLACK);
+			g.setFont(new Font(Font.SERIF, Font.PLAIN, fontSize));
+
+			final int lineHeight = fontSize * 3 / 2;
+			int line = 0;
+			for (int y = margin + fontSize; y < height - margin; y += lineHeight) {
+				g.drawString(LINES[line++ % LINES.length], margin, y);
+			}
+		} finally {
+			g.dispose();
+		}
+		return page;
+	}
+
+	/**
+	 * Degrade a page like a poor scan: the lighting falls off from the top
+	 * left to half the brightness in the bottom right corner and Gaussian
+	 * noise is added.
+	 *
+	 * @param page
+	 *            8-bit grey page as returned by {@link #render(String, double)},
+	 *            modified in place
+	 * @param seed
+	 *            seed of the noise
+	 */
+	public static void degrade(final BufferedImage page, final long seed) {
+		final byte[] grey = ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+		final int width = page.getWidth();
+		final int height = page.getHeight();
+		final Random random = new Random(seed);
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				final double light = 1 - 0.25 * ((double) x / width + (double) y / height);
+				final double value = (grey[y * width + x] & 0xff) * light + random.nextGaussian() * 12;
+				grey[y * width + x] = (byte) Math.max(0, Math.min(255, (int) Math.round(value)));
+			}
+		}
+	}
+
+	/**
+	 * Render a page of text into an image of the given pixel type.
+	 *
+	 * @param size
+	 *            page size as "widthxheight"
+	 * @param type
+	 *            one of {@link #TYPES}
+	 * @param angle
+	 *            skew of the text in degrees, counter-clockwise
+	 * @return the page, black text on white in the full range of the type
+	 */
+	public static <T extends RealType<T>> Img<T> create(final String size, final String type, final double angle) {
+		return create(render(size, angle), type);
+	}
+
+	/**
+	 * Convert a rendered page into an image of the given pixel type.
+	 *
+	 * @param page
+	 *            8-bit grey page as returned by {@link #render(String, double)}
+	 * @param type
+	 *            one of {@link #TYPES}
+	 * @return the page in the full range of the type
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T extends RealType<T>> Img<T> create(final BufferedImage page, final String type) {
+		final byte[] grey = ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+		final long width = page.getWidth();
+		final long height = page.getHeight();
+
+		final Img img;
+		if (type.equals(TYPES[0])) {
+			img = ArrayImgs.unsignedBytes(grey.clone(), width, height);
+		} else if (type.equals(TYPES[1])) {
+			final short[] shorts = new short[grey.length];
+			for (int i = 0; i < grey.length; ++i) {
+				shorts[i] = (short) ((grey[i] & 0xff) * 257);
+			}
+			img = ArrayImgs.unsignedShorts(shorts, width, height);
+		} else if (type.equals(TYPES[2])) {
+			final float[] floats = new float[grey.length];
+			for (int i = 0; i < grey.length; ++i) {
+				floats[i] = (grey[i] & 0xff) / 255f;
+			}
+			img = ArrayImgs.floats(floats, width, height);
+		} else {
+			throw new IllegalArgumentException("Unknown pixel type \"" + type + "\".");
+		}
+		return img;
+	}
+
+	/**
+	 * @param size
+	 *            page size as "widthxheight"
+	 * @return the width
+	 */
+	public static int width(final String size) {
+		return Integer.parseInt(size.substring(0, size.indexOf('x')));
+	}
+
+	/**
+	 * @param size
+	 *            page size as "widthxheight"
+	 * @return the height
+	 */
+	public static int height(final String size) {
+		return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+	}
+}
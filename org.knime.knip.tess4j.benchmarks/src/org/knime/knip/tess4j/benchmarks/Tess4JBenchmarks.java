@@ -0,0 +1,117 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.benchmarks;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this fragment inside the OSGi test runtime of
+ * tycho-surefire, where the KNIME classes, the native libraries and the
+ * bundled tessdata are available. Run with
+ * <code>mvn -B -Pbenchmarks verify</code> and the following optional system
+ * properties:
+ * <ul>
+ * <li>{@value #PROP_INCLUDE}: regular expression selecting the benchmarks</li>
+ * <li>{@value #PROP_LANGUAGE}: traineddata to recognize with</li>
+ * <li>{@value #PROP_WARMUP}, {@value #PROP_ITERATIONS}: number of warmup and
+ * measurement iterations</li>
+ * <li>{@value #PROP_RESULT}: file to write the results to as JSON</li>
+ * </ul>
+ *
+ * Benchmarks run in the test JVM, since forked JVMs would not see the bundle
+ * class path.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class Tess4JBenchmarks {
+
+	/** Property for the regular expression selecting the benchmarks */
+	public static final String PROP_INCLUDE = "tess4j.benchmark.include";
+
+	/** Property for the language to recognize with */
+	public static final String PROP_LANGUAGE = "tess4j.benchmark.language";
+
+	/** Property for the number of warmup iterations */
+	public static final String PROP_WARMUP = "tess4j.benchmark.warmup";
+
+	/** Property for the number of measurement iterations */
+	public static final String PROP_ITERATIONS = "tess4j.benchmark.iterations";
+
+	/** Property for the file to write the results to */
+	public static final String PROP_RESULT = "tess4j.benchmark.result";
+
+	/**
+	 * Run the selected benchmarks.
+	 *
+	 * @throws RunnerException
+	 *             if a benchmark fails
+	 */
+	@Test
+	public void run() throws RunnerException {
+		final ChainedOptionsBuilder options = new OptionsBuilder().include(System.getProperty(PROP_INCLUDE, ".*"))
+				.forks(0).warmupIterations(Integer.getInteger(PROP_WARMUP, 3))
+				.measurementIterations(Integer.getInteger(PROP_ITERATIONS, 5))
+				.param("language", System.getProperty(PROP_LANGUAGE, "deu"));
+
+		final String result = System.getProperty(PROP_RESULT);
+		if (result != null && !result.isEmpty()) {
+			new File(result).getParentFile().mkdirs();
+			options.resultFormat(ResultFormatType.JSON).result(result);
+		}
+
+		new Runner(options.build()).run();
+	}
+}
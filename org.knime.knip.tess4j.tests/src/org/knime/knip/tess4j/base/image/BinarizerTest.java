@@ -0,0 +1,193 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.knime.knip.tess4j.tests.TestPages;
+
+/**
+ * Tests of the {@link Binarizer}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class BinarizerTest {
+
+	/** The threshold separates both modes of a bimodal histogram */
+	@Test
+	public void testOtsuThreshold() {
+		final long[] histogram = new long[256];
+		histogram[20] = 100;
+		histogram[30] = 50;
+		histogram[200] = 300;
+		histogram[230] = 200;
+		final int threshold = Binarizer.otsuThreshold(histogram, 650);
+		assertTrue("Threshold " + threshold, threshold >= 30 && threshold < 200);
+	}
+
+	/** Between two spread modes, the threshold lies near the middle */
+	@Test
+	public void testOtsuThresholdOfSpreadModes() {
+		final long[] histogram = new long[256];
+		long total = 0;
+		for (int i = 0; i < 256; ++i) {
+			histogram[i] = Math.round(1000 * (Math.exp(-Math.pow(i - 60, 2) / 800)
+					+ Math.exp(-Math.pow(i - 190, 2) / 800)));
+			total += histogram[i];
+		}
+		assertEquals(125, Binarizer.otsuThreshold(histogram, total), 5);
+	}
+
+	/** Without contrast there is nothing to separate */
+	@Test
+	public void testOtsuThresholdOfSingleValue() {
+		final long[] histogram = new long[256];
+		histogram[128] = 1000;
+		assertEquals(127, Binarizer.otsuThreshold(histogram, 1000));
+	}
+
+	/** Dark pixels become black, light ones white, one byte per pixel */
+	@Test
+	public void testOtsu() {
+		final int width = 5;
+		final int height = 2;
+		final ByteBuffer grey = ByteBuffer.wrap(new byte[] { 10, 20, (byte) 200, (byte) 220, 15, //
+				(byte) 240, 30, (byte) 210, 25, (byte) 250 });
+		final ByteBuffer out = ByteBuffer.allocate(width * height);
+		Binarizer.otsu(grey, width, height, false, out);
+
+		final byte[] expected = { 0, 0, -1, -1, 0, -1, 0, -1, 0, -1 };
+		for (int i = 0; i < expected.length; ++i) {
+			assertEquals("Pixel " + i, expected[i], out.get(i));
+		}
+	}
+
+	/** Packed rows hold white pixels as set bits, the first pixel in the highest bit */
+	@Test
+	public void testOtsuPacked() {
+		final int width = 10;
+		final int height = 2;
+		final byte[] grey = new byte[width * height];
+		for (int i = 0; i < grey.length; ++i) {
+			grey[i] = (byte) (i % 3 == 0 ? 10 : 240);
+		}
+		assertEquals(2, Binarizer.packedBytesPerLine(width));
+		final ByteBuffer out = ByteBuffer.allocate(Binarizer.packedBytesPerLine(width) * height);
+		Binarizer.otsu(ByteBuffer.wrap(grey), width, height, true, out);
+
+		// row 0: pixels 0, 3, 6, 9 black, padding bits are black
+		assertEquals((byte) 0b01101101, out.get(0));
+		assertEquals((byte) 0b10000000, out.get(1));
+		// row 1: pixels 12, 15, 18 black, i.e. 2, 5, 8 of the row
+		assertEquals((byte) 0b11011011, out.get(2));
+		assertEquals((byte) 0b01000000, out.get(3));
+	}
+
+	/** Packed rows need one byte per eight pixels, rounded up */
+	@Test
+	public void testPackedBytesPerLine() {
+		assertEquals(1, Binarizer.packedBytesPerLine(1));
+		assertEquals(1, Binarizer.packedBytesPerLine(8));
+		assertEquals(2, Binarizer.packedBytesPerLine(9));
+		assertEquals(125, Binarizer.packedBytesPerLine(1000));
+	}
+
+	/** Sauvola keeps the text where the lighting falls off */
+	@Test
+	public void testSauvolaUnevenLighting() {
+		final int width = 600;
+		final int height = 300;
+		final byte[] page = TestPages.render(width, height, 20, 0);
+		final byte[] clean = page.clone();
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				// the right half is dimmed to about a third, light text is then darker than the left background
+				final double light = x < width / 2 ? 1 : 0.35;
+				page[y * width + x] = (byte) (int) Math.round((page[y * width + x] & 0xff) * light);
+			}
+		}
+
+		final ByteBuffer out = ByteBuffer.allocate(width * height);
+		Binarizer.sauvola(ByteBuffer.wrap(page), width, height, 31, 0.2, false, out);
+		final byte[] binary = new byte[width * height];
+		out.get(binary);
+
+		// a global threshold turns the whole dimmed half black, Sauvola only misses edges of the glyphs
+		int mismatches = 0;
+		int globalMismatches = 0;
+		for (int i = 0; i < binary.length; ++i) {
+			final boolean dark = (clean[i] & 0xff) < 128;
+			if (dark != (binary[i] == 0)) {
+				++mismatches;
+			}
+			if (dark != (page[i] & 0xff) < 128) {
+				++globalMismatches;
+			}
+		}
+		assertTrue("Global mismatches " + globalMismatches, globalMismatches > binary.length / 3);
+		assertTrue("Mismatches " + mismatches, mismatches < binary.length / 25);
+	}
+
+	/** A plane without text stays white */
+	@Test
+	public void testSauvolaUniformPlane() {
+		final int width = 64;
+		final int height = 32;
+		final ByteBuffer out = ByteBuffer.allocate(width * height);
+		Binarizer.sauvola(ByteBuffer.wrap(TestPages.uniform(width, height, 180)), width, height, 15, 0.3, false,
+				out);
+		for (int i = 0; i < width * height; ++i) {
+			assertEquals((byte) 0xff, out.get(i));
+		}
+	}
+}
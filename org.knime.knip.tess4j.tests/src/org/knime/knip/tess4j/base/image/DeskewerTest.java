@@ -0,0 +1,146 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.knime.knip.tess4j.tests.TestPages;
+
+/**
+ * Tests of the {@link Deskewer}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class DeskewerTest {
+
+	private static final int WIDTH = 1200;
+	private static final int HEIGHT = 900;
+	private static final int FONT_SIZE = 24;
+
+	/** Text rotated counter-clockwise ascends to the right, a negative skew */
+	@Test
+	public void testSkewAngle() {
+		for (final double angle : new double[] { -5, -2.5, 1, 3 }) {
+			final byte[] page = TestPages.render(WIDTH, HEIGHT, FONT_SIZE, angle);
+			assertEquals("Skew of " + angle, -angle, Deskewer.skewAngle(page, 0, WIDTH, HEIGHT), 0.2);
+		}
+		final byte[] straight = TestPages.render(WIDTH, HEIGHT, FONT_SIZE, 0);
+		assertEquals(0, Deskewer.skewAngle(straight, 0, WIDTH, HEIGHT), 0.1);
+	}
+
+	/** A plane without structure has no skew */
+	@Test
+	public void testSkewAngleOfUniformPlane() {
+		assertEquals(0, Deskewer.skewAngle(TestPages.uniform(WIDTH, HEIGHT, 255), 0, WIDTH, HEIGHT), 0);
+		assertEquals(0, Deskewer.skewAngle(TestPages.uniform(WIDTH, HEIGHT, 0), 0, WIDTH, HEIGHT), 0);
+	}
+
+	/** The plane may start at an offset in its array */
+	@Test
+	public void testSkewAngleAtOffset() {
+		final byte[] page = TestPages.render(WIDTH, HEIGHT, FONT_SIZE, 2.5);
+		final int offset = 7 * WIDTH;
+		final byte[] padded = new byte[offset + page.length];
+		System.arraycopy(page, 0, padded, offset, page.length);
+		assertEquals(Deskewer.skewAngle(page, 0, WIDTH, HEIGHT), Deskewer.skewAngle(padded, offset, WIDTH, HEIGHT),
+				0);
+	}
+
+	/** Rotating by the detected angle straightens the text lines */
+	@Test
+	public void testDeskew() {
+		final byte[] page = TestPages.render(WIDTH, HEIGHT, FONT_SIZE, 3);
+		final double angle = Deskewer.skewAngle(page, 0, WIDTH, HEIGHT);
+		final ByteBuffer buffer = ByteBuffer.allocate(WIDTH * HEIGHT);
+		Deskewer.deskew(page, 0, WIDTH, HEIGHT, angle, buffer);
+
+		assertEquals(WIDTH * HEIGHT, buffer.remaining());
+		final byte[] deskewed = new byte[WIDTH * HEIGHT];
+		buffer.get(deskewed);
+		assertEquals(0, Deskewer.skewAngle(deskewed, 0, WIDTH, HEIGHT), 0.2);
+	}
+
+	/** A skew of 0 copies the plane */
+	@Test
+	public void testDeskewByZero() {
+		final byte[] page = TestPages.render(WIDTH, HEIGHT, FONT_SIZE, 0);
+		final ByteBuffer buffer = ByteBuffer.allocate(WIDTH * HEIGHT);
+		Deskewer.deskew(page, 0, WIDTH, HEIGHT, 0, buffer);
+		final byte[] deskewed = new byte[WIDTH * HEIGHT];
+		buffer.get(deskewed);
+		assertArrayEquals(page, deskewed);
+	}
+
+	/**
+	 * Regression test: source positions in 16.16 fixed point overflowed an
+	 * int for planes wider than 32767 pixels, which turned their right part
+	 * white.
+	 */
+	@Test
+	public void testDeskewWidePlane() {
+		final int width = 40000;
+		final int height = 5;
+		final byte[] black = TestPages.uniform(width, height, 0);
+		final ByteBuffer buffer = ByteBuffer.allocate(width * height);
+		Deskewer.deskew(black, 0, width, height, 0.001, buffer);
+
+		final int middle = (height / 2) * width;
+		for (final int x : new int[] { 100, 32767, 32768, 35000, width - 100 }) {
+			assertEquals("Pixel at x = " + x, 0, buffer.get(middle + x));
+		}
+		final byte[] deskewed = new byte[width * height];
+		buffer.get(deskewed);
+		assertTrue(TestPages.countDark(deskewed, 127) > width * (height - 2));
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.logic.BitType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+/**
+ * Tests of the {@link GreyConverter}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class GreyConverterTest {
+
+	/** Planes are counted over all dimensions after X and Y */
+	@Test
+	public void testNumPlanes() {
+		assertEquals(1, GreyConverter.numPlanes(ArrayImgs.unsignedBytes(4, 3)));
+		assertEquals(6, GreyConverter.numPlanes(ArrayImgs.unsignedBytes(4, 3, 2, 3)));
+	}
+
+	/** 8-bit unsigned planes are used in place */
+	@Test
+	public void testUnsignedBytePlane() {
+		final byte[] data = new byte[4 * 3 * 2];
+		final Img<UnsignedByteType> img = ArrayImgs.unsignedBytes(data, 4, 3, 2);
+		assertSame(data, GreyConverter.unsignedBytePlane(img, 1));
+		assertEquals(12, GreyConverter.planeOffset(img, 1));
+
+		final Img<UnsignedByteType> planar = PlanarImgs.unsignedBytes(4, 3, 2);
+		assertEquals(0, GreyConverter.planeOffset(planar, 1));
+		assertEquals(12, GreyConverter.unsignedBytePlane(planar, 1).length);
+
+		assertNull(GreyConverter.unsignedBytePlane(ArrayImgs.bytes(4, 3), 0));
+		assertNull(GreyConverter.unsignedBytePlane(ArrayImgs.unsignedShorts(4, 3), 0));
+	}
+
+	/** 8-bit unsigned planes are copied unchanged */
+	@Test
+	public void testConvertUnsignedBytes() {
+		final byte[] data = { 0, 1, 2, 3, 4, 5, (byte) 250, (byte) 251, (byte) 252, (byte) 253, (byte) 254,
+				(byte) 255 };
+		assertArrayEquals(new byte[] { (byte) 250, (byte) 251, (byte) 252, (byte) 253, (byte) 254, (byte) 255 },
+				convert(ArrayImgs.unsignedBytes(data, 3, 2, 2), 1));
+	}
+
+	/** Signed bytes are shifted to the unsigned range */
+	@Test
+	public void testConvertSignedBytes() {
+		assertArrayEquals(new byte[] { 0, (byte) 128, (byte) 255 },
+				convert(ArrayImgs.bytes(new byte[] { -128, 0, 127 }, 3, 1), 0));
+	}
+
+	/** 16-bit types keep their upper 8 bits */
+	@Test
+	public void testConvertShorts() {
+		assertArrayEquals(new byte[] { 0, 1, (byte) 128, (byte) 255 },
+				convert(ArrayImgs.unsignedShorts(new short[] { 0, 0x01ff, (short) 0x8000, (short) 0xffff }, 4, 1),
+						0));
+		assertArrayEquals(new byte[] { 0, (byte) 128, (byte) 255 },
+				convert(ArrayImgs.shorts(new short[] { Short.MIN_VALUE, 0, Short.MAX_VALUE }, 3, 1), 0));
+	}
+
+	/** Floating point planes are stretched from their minimum to their maximum */
+	@Test
+	public void testConvertFloats() {
+		assertArrayEquals(new byte[] { 0, (byte) 128, (byte) 255 },
+				convert(ArrayImgs.floats(new float[] { -2f, 0f, 2f }, 3, 1), 0));
+		assertArrayEquals(new byte[] { 0, 51, (byte) 255 },
+				convert(ArrayImgs.doubles(new double[] { 10, 12, 20 }, 3, 1), 0));
+		// no contrast
+		assertArrayEquals(new byte[] { 0, 0 }, convert(ArrayImgs.floats(new float[] { 7f, 7f }, 2, 1), 0));
+	}
+
+	/** Types without a primitive array of one element per pixel are converted from their range */
+	@Test
+	public void testConvertGeneric() {
+		final Img<BitType> img = ArrayImgs.bits(2, 2);
+		final RandomAccess<BitType> access = img.randomAccess();
+		access.setPosition(new long[] { 1, 0 });
+		access.get().set(true);
+		access.setPosition(new long[] { 0, 1 });
+		access.get().set(true);
+		assertArrayEquals(new byte[] { 0, (byte) 255, (byte) 255, 0 }, convert(img, 0));
+	}
+
+	/** A plane copied from an array starts at index 0 of the buffer */
+	@Test
+	public void testCopyPlane() {
+		final ByteBuffer buffer = ByteBuffer.allocate(8);
+		GreyConverter.copyPlane(new byte[] { 9, 9, 1, 2, 3, 4 }, 2, 2, 2, buffer);
+		assertEquals(4, buffer.remaining());
+		assertEquals(1, buffer.get(0));
+		assertEquals(4, buffer.get(3));
+	}
+
+	private static <T extends RealType<T>> byte[] convert(final Img<T> img, final long plane) {
+		final int size = (int) (img.dimension(0) * img.dimension(1));
+		final ByteBuffer buffer = ByteBuffer.allocate(size);
+		GreyConverter.convertPlane(img, plane, buffer);
+		assertEquals(size, buffer.remaining());
+		final byte[] grey = new byte[size];
+		buffer.get(grey);
+		return grey;
+	}
+}
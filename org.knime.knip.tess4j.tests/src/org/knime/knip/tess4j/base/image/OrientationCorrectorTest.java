@@ -0,0 +1,160 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.knime.knip.tess4j.tests.TestPages;
+
+/**
+ * Tests of the {@link OrientationCorrector}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class OrientationCorrectorTest {
+
+	private static final int WIDTH = 1200;
+	private static final int HEIGHT = 900;
+	private static final int[] ORIENTATIONS = { 0, 90, 180, 270 };
+
+	/** Orientations of Latin script are detected in all four directions */
+	@Test
+	public void testOrientationLatin() {
+		final byte[] page = TestPages.render(WIDTH, HEIGHT, 24, 0);
+		for (final int orientation : ORIENTATIONS) {
+			assertEquals("Orientation " + orientation, orientation, orientation(page, orientation, true));
+		}
+	}
+
+	/** Slightly skewed pages are still detected */
+	@Test
+	public void testOrientationSkewed() {
+		final byte[] page = TestPages.render(WIDTH, HEIGHT, 24, 2);
+		for (final int orientation : ORIENTATIONS) {
+			assertEquals("Orientation " + orientation, orientation, orientation(page, orientation, true));
+		}
+	}
+
+	/** Other scripts are never turned upside down, sideways text is turned by 90 degrees */
+	@Test
+	public void testOrientationOtherScript() {
+		final byte[] page = TestPages.render(WIDTH, HEIGHT, 24, 0);
+		assertEquals(0, orientation(page, 0, false));
+		assertEquals(90, orientation(page, 90, false));
+		assertEquals(0, orientation(page, 180, false));
+		assertEquals(90, orientation(page, 270, false));
+	}
+
+	/** A page without text is left as it is */
+	@Test
+	public void testOrientationOfBlankPage() {
+		assertEquals(0, OrientationCorrector.orientation(TestPages.uniform(WIDTH, HEIGHT, 255), 0, WIDTH, HEIGHT,
+				true));
+		assertEquals(0, OrientationCorrector.orientation(new byte[1], 0, 1, 1, true));
+	}
+
+	/** Languages are Latin script only if all parts are */
+	@Test
+	public void testIsLatinScript() {
+		assertTrue(OrientationCorrector.isLatinScript("eng"));
+		assertTrue(OrientationCorrector.isLatinScript("eng+deu+deu-frak"));
+		assertFalse(OrientationCorrector.isLatinScript("rus"));
+		assertFalse(OrientationCorrector.isLatinScript("eng+ell"));
+		assertFalse(OrientationCorrector.isLatinScript("chi_sim"));
+	}
+
+	/** Rotating upright undoes rotating clockwise by the orientation */
+	@Test
+	public void testRotate() {
+		// 3 x 2, rotated counter-clockwise by 90 degrees to 2 x 3
+		final byte[] plane = { 1, 2, 3, 4, 5, 6 };
+		final byte[] out = new byte[6];
+		OrientationCorrector.rotate(plane, 0, 3, 2, 90, out);
+		assertArrayEquals(new byte[] { 3, 6, 2, 5, 1, 4 }, out);
+		OrientationCorrector.rotate(plane, 0, 3, 2, 180, out);
+		assertArrayEquals(new byte[] { 6, 5, 4, 3, 2, 1 }, out);
+		OrientationCorrector.rotate(plane, 0, 3, 2, 270, out);
+		assertArrayEquals(new byte[] { 4, 1, 5, 2, 6, 3 }, out);
+		OrientationCorrector.rotate(plane, 0, 3, 2, 0, out);
+		assertArrayEquals(plane, out);
+
+		final Random random = new Random(42);
+		final int width = 37;
+		final int height = 23;
+		final byte[] noise = new byte[5 + width * height];
+		random.nextBytes(noise);
+		for (final int orientation : ORIENTATIONS) {
+			final byte[] rotated = new byte[width * height];
+			OrientationCorrector.rotate(noise, 5, width, height, orientation, rotated);
+			final boolean swap = orientation % 180 != 0;
+			final byte[] back = new byte[width * height];
+			OrientationCorrector.rotate(rotated, 0, swap ? height : width, swap ? width : height,
+					(360 - orientation) % 360, back);
+			for (int i = 0; i < back.length; ++i) {
+				assertEquals(noise[5 + i], back[i]);
+			}
+		}
+	}
+
+	/* detect the orientation of the upright page rotated clockwise by the given angle */
+	private static int orientation(final byte[] upright, final int orientation, final boolean latinScript) {
+		final int ccw = (360 - orientation) % 360;
+		final byte[] page = new byte[upright.length];
+		OrientationCorrector.rotate(upright, 0, WIDTH, HEIGHT, ccw, page);
+		final boolean swap = orientation % 180 != 0;
+		return OrientationCorrector.orientation(page, 0, swap ? HEIGHT : WIDTH, swap ? WIDTH : HEIGHT,
+				latinScript);
+	}
+}
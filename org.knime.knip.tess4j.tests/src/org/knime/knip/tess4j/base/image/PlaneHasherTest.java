@@ -0,0 +1,123 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.img.planar.PlanarImgs;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+
+/**
+ * Tests of the {@link PlaneHasher}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class PlaneHasherTest {
+
+	private static final byte[] PLANES = { 1, 2, 3, 4, 5, 6, //
+			1, 2, 3, 4, 5, 7 };
+
+	/** Equal planes have equal fingerprints, regardless of the storage */
+	@Test
+	public void testEqualPlanes() {
+		assertEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES.clone(), 3, 2, 2), 0),
+				PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES.clone(), 3, 2, 2), 0));
+		assertEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES.clone(), 3, 2, 2), 0),
+				PlaneHasher.hash(ArrayImgs.unsignedBytes(new byte[] { 1, 2, 3, 4, 5, 6 }, 3, 2), 0));
+	}
+
+	/** A single changed pixel changes the fingerprint */
+	@Test
+	public void testDifferentPlanes() {
+		assertNotEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES, 3, 2, 2), 0),
+				PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES, 3, 2, 2), 1));
+	}
+
+	/** The size and the type of the plane are part of the fingerprint */
+	@Test
+	public void testShapeAndType() {
+		final byte[] plane = { 1, 2, 3, 4, 5, 6 };
+		assertNotEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(plane, 3, 2), 0),
+				PlaneHasher.hash(ArrayImgs.unsignedBytes(plane, 2, 3), 0));
+		assertNotEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(plane, 3, 2), 0),
+				PlaneHasher.hash(ArrayImgs.bytes(plane, 3, 2), 0));
+		assertNotEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(plane, 3, 2), 0),
+				PlaneHasher.hash(ArrayImgs.unsignedShorts(new short[] { 1, 2, 3, 4, 5, 6 }, 3, 2), 0));
+	}
+
+	/** Planes of planar images are hashed like those of array images */
+	@Test
+	public void testPlanarImg() {
+		final PlanarImg<UnsignedByteType, ByteArray> img = PlanarImgs.unsignedBytes(3, 2, 2);
+		System.arraycopy(PLANES, 6, img.getPlane(1).getCurrentStorageArray(), 0, 6);
+		assertEquals(PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES, 3, 2, 2), 1), PlaneHasher.hash(img, 1));
+	}
+
+	/** Types packing several pixels into one element are hashed per pixel */
+	@Test
+	public void testBits() {
+		assertEquals(PlaneHasher.hash(ArrayImgs.bits(5, 4), 0), PlaneHasher.hash(ArrayImgs.bits(5, 4), 0));
+		assertNotEquals(PlaneHasher.hash(ArrayImgs.bits(5, 4), 0), PlaneHasher.hash(ArrayImgs.bits(4, 5), 0));
+	}
+
+	/** Combining with different strings gives different fingerprints */
+	@Test
+	public void testCombine() {
+		final long hash = PlaneHasher.hash(ArrayImgs.unsignedBytes(PLANES, 3, 2, 2), 0);
+		assertEquals(PlaneHasher.combine(hash, "eng"), PlaneHasher.combine(hash, "eng"));
+		assertNotEquals(PlaneHasher.combine(hash, "eng"), PlaneHasher.combine(hash, "deu"));
+		assertNotEquals(PlaneHasher.combine(hash, ""), hash);
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.image;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.knime.knip.tess4j.tests.TestPages;
+
+import net.imglib2.img.array.ArrayImgs;
+
+/**
+ * Tests of the {@link Rescaler}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class RescalerTest {
+
+	/* 12pt text at 300 dpi is 50 pixels high */
+	private static final int FONT_SIZE_300_DPI = 50;
+
+	/** The resolution is estimated from the height of the text lines */
+	@Test
+	public void testEstimateResolution() {
+		final byte[] page = TestPages.render(1600, 1200, FONT_SIZE_300_DPI, 0);
+		assertEquals(300, Rescaler.estimateResolution(page, 0, 1600, 1200), 45);
+
+		final byte[] smaller = TestPages.render(1600, 1200, FONT_SIZE_300_DPI / 2, 0);
+		assertEquals(Rescaler.estimateResolution(page, 0, 1600, 1200) / 2,
+				Rescaler.estimateResolution(smaller, 0, 1600, 1200), 15);
+	}
+
+	/** Without text lines the resolution is unknown */
+	@Test
+	public void testEstimateResolutionOfBlankPlane() {
+		assertEquals(-1, Rescaler.estimateResolution(TestPages.uniform(400, 300, 255), 0, 400, 300), 0);
+	}
+
+	/** The scale factor reaches the target resolution, within its limits */
+	@Test
+	public void testScaleFactor() {
+		final byte[] page = TestPages.render(1600, 1200, FONT_SIZE_300_DPI, 0);
+		final double dpi = Rescaler.estimateResolution(page, 0, 1600, 1200);
+		final double scale = Rescaler.scaleFactor(ArrayImgs.unsignedBytes(page, 1600, 1200), page, 0, 1600, 1200,
+				600);
+		assertEquals(600 / dpi, scale, 1e-9);
+
+		assertEquals(Rescaler.MAX_SCALE, Rescaler.scaleFactor(ArrayImgs.unsignedBytes(page, 1600, 1200), page, 0,
+				1600, 1200, 100000), 0);
+		// close enough to the target
+		assertEquals(1, Rescaler.scaleFactor(ArrayImgs.unsignedBytes(page, 1600, 1200), page, 0, 1600, 1200,
+				(int) Math.round(dpi)), 0);
+		// unknown resolution
+		final byte[] blank = TestPages.uniform(400, 300, 255);
+		assertEquals(1, Rescaler.scaleFactor(ArrayImgs.unsignedBytes(blank, 400, 300), blank, 0, 400, 300, 300),
+				0);
+	}
+
+	/** Downsampling averages the covered pixels */
+	@Test
+	public void testResampleDown() {
+		final byte[] plane = { 0, 0, 100, 100, //
+				0, 0, 100, 100, //
+				(byte) 200, (byte) 200, 50, 50, //
+				(byte) 200, (byte) 200, 50, 50 };
+		final byte[] target = new byte[4];
+		Rescaler.resample(plane, 0, 4, 4, target, 2, 2);
+		assertArrayEquals(new byte[] { 0, 100, (byte) 200, 50 }, target);
+	}
+
+	/** The plane may start at an offset in its array */
+	@Test
+	public void testResampleAtOffset() {
+		final byte[] plane = { 1, 2, 3, 10, 10, 10, 10, 30, 30, 30, 30 };
+		final byte[] target = new byte[2];
+		Rescaler.resample(plane, 3, 4, 2, target, 2, 1);
+		assertArrayEquals(new byte[] { 20, 20 }, target);
+	}
+
+	/** Upsampling keeps a uniform plane and the range of grey values */
+	@Test
+	public void testResampleUp() {
+		final byte[] target = new byte[40 * 30];
+		Rescaler.resample(TestPages.uniform(20, 15, 77), 0, 20, 15, target, 40, 30);
+		assertArrayEquals(TestPages.uniform(40, 30, 77), target);
+
+		final byte[] edge = { 0, (byte) 255 };
+		final byte[] wide = new byte[8];
+		Rescaler.resample(edge, 0, 2, 1, wide, 8, 1);
+		for (int x = 1; x < wide.length; ++x) {
+			assertTrue("Monotonic at " + x, (wide[x] & 0xff) >= (wide[x - 1] & 0xff));
+		}
+	}
+}
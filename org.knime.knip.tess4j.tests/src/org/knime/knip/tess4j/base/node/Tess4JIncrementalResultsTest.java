@@ -0,0 +1,199 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests of the {@link Tess4JIncrementalResults}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class Tess4JIncrementalResultsTest {
+
+	private static final String SETTINGS = "eng|psm=3|models=eng:1234:5678";
+
+	private File m_file;
+
+	/** Delete the committed results */
+	@After
+	public void tearDown() {
+		if (m_file != null) {
+			m_file.delete();
+		}
+	}
+
+	/** Results of unchanged rows are reused by the next execution */
+	@Test
+	public void testReuse() throws IOException {
+		final Tess4JPageResult[] row1 = { new Tess4JPageResult("first\n", 90,
+				Arrays.asList(new Tess4JLayoutElement("first", new Rectangle(0, 1, 2, 3), 90f)), new String[0], 2d,
+				180) };
+		final Tess4JPageResult[] row2 = { Tess4JPageResult.rejected(10), Tess4JPageResult.blank(false, 0) };
+		m_file = record(SETTINGS, new String[] { "Row1", "Row2" }, new long[] { 11, 22 }, row1, row2);
+
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file, SETTINGS)) {
+			final Tess4JPageResult[] previous1 = results.getPrevious("Row1", 11);
+			assertEquals(1, previous1.length);
+			Tess4JResultCacheTest.assertResultEquals(row1[0], previous1[0]);
+
+			final Tess4JPageResult[] previous2 = results.getPrevious("Row2", 22);
+			assertEquals(2, previous2.length);
+			assertTrue(previous2[0].isRejected());
+			assertTrue(previous2[1].isBlank());
+			assertEquals(2, results.getReused());
+		}
+	}
+
+	/** Rows whose image changed or which are new are recognized again */
+	@Test
+	public void testChangedRows() throws IOException {
+		m_file = record(SETTINGS, new String[] { "Row1" }, new long[] { 11 },
+				new Tess4JPageResult[] { new Tess4JPageResult("text", 90, null, new String[0]) });
+
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file, SETTINGS)) {
+			assertNull(results.getPrevious("Row1", 12));
+			assertNull(results.getPrevious("Row2", 11));
+			assertEquals(0, results.getReused());
+		}
+	}
+
+	/** No results are reused after the settings changed */
+	@Test
+	public void testChangedSettings() throws IOException {
+		m_file = record(SETTINGS, new String[] { "Row1" }, new long[] { 11 },
+				new Tess4JPageResult[] { new Tess4JPageResult("text", 90, null, new String[0]) });
+
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file,
+				"eng|psm=3|models=eng:1234:9999")) {
+			assertNull(results.getPrevious("Row1", 11));
+		}
+	}
+
+	/** Truncated rows and files of another format version are recognized again */
+	@Test
+	public void testUnreadableFile() throws IOException {
+		m_file = record(SETTINGS, new String[] { "Row1", "Row2" }, new long[] { 11, 22 },
+				new Tess4JPageResult[] { new Tess4JPageResult("text", 90, null, new String[0]) },
+				new Tess4JPageResult[] { new Tess4JPageResult("more text", 90, null, new String[0]) });
+		try (DataInputStream in = new DataInputStream(new FileInputStream(m_file))) {
+			assertEquals(4, in.readInt());
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(m_file, "rw")) {
+			file.setLength(file.length() - 3);
+		}
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file, SETTINGS)) {
+			assertNull(results.getPrevious("Row2", 22));
+		}
+
+		try (RandomAccessFile file = new RandomAccessFile(m_file, "rw")) {
+			file.writeInt(3);
+		}
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file, SETTINGS)) {
+			assertNull(results.getPrevious("Row1", 11));
+		}
+	}
+
+	/** Closing an execution which was not committed keeps the previous results, also when closed twice */
+	@Test
+	public void testNotCommitted() throws IOException {
+		m_file = record(SETTINGS, new String[] { "Row1" }, new long[] { 11 },
+				new Tess4JPageResult[] { new Tess4JPageResult("text", 90, null, new String[0]) });
+
+		final Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file, SETTINGS);
+		results.record("Row1", 12, new Tess4JPageResult[0]);
+		results.close();
+		results.close();
+
+		assertTrue(m_file.isFile());
+		try (Tess4JIncrementalResults next = new Tess4JIncrementalResults(m_file, SETTINGS)) {
+			assertEquals("text", next.getPrevious("Row1", 11)[0].getText());
+		}
+	}
+
+	/** If a row was recorded twice, its last results are used */
+	@Test
+	public void testRecordedTwice() throws IOException {
+		m_file = record(SETTINGS, new String[] { "Row1", "Row1" }, new long[] { 11, 12 },
+				new Tess4JPageResult[] { new Tess4JPageResult("old", 90, null, new String[0]) },
+				new Tess4JPageResult[] { new Tess4JPageResult("new", 90, null, new String[0]) });
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(m_file, SETTINGS)) {
+			assertNull(results.getPrevious("Row1", 11));
+			assertEquals("new", results.getPrevious("Row1", 12)[0].getText());
+		}
+	}
+
+	/* record the results of one execution and commit them */
+	private static File record(final String settings, final String[] rowKeys, final long[] fingerprints,
+			final Tess4JPageResult[]... rows) throws IOException {
+		try (Tess4JIncrementalResults results = new Tess4JIncrementalResults(null, settings)) {
+			for (int i = 0; i < rowKeys.length; ++i) {
+				results.record(rowKeys[i], fingerprints[i], rows[i]);
+			}
+			final File file = results.commit();
+			assertFalse(file.length() == 0);
+			return file;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+
+import org.junit.Test;
+
+/**
+ * Tests of the {@link Tess4JPageFormatter}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class Tess4JPageFormatterTest {
+
+	/** Boxes of pages which were not rescaled are kept */
+	@Test
+	public void testUnscaleIdentity() {
+		final Rectangle bounds = new Rectangle(3, 5, 7, 9);
+		assertSame(bounds, Tess4JPageFormatter.unscale(bounds, 1d));
+	}
+
+	/** Boxes are mapped back to the original page, rounded outwards */
+	@Test
+	public void testUnscale() {
+		assertEquals(new Rectangle(1, 2, 4, 5), Tess4JPageFormatter.unscale(new Rectangle(3, 5, 7, 9), 2d));
+		assertEquals(new Rectangle(6, 10, 14, 18), Tess4JPageFormatter.unscale(new Rectangle(3, 5, 7, 9), 0.5d));
+	}
+
+	/** The unscaled box always covers the rescaled box */
+	@Test
+	public void testUnscaleCovers() {
+		for (final double scale : new double[] { 0.125, 0.3, 0.7, 1.5, 2.37, 4 }) {
+			for (int x = 0; x < 20; x += 3) {
+				final Rectangle bounds = new Rectangle(x, 2 * x + 1, x + 5, 11);
+				final Rectangle unscaled = Tess4JPageFormatter.unscale(bounds, scale);
+				assertTrue(unscaled.x <= bounds.x / scale);
+				assertTrue(unscaled.y <= bounds.y / scale);
+				assertTrue(unscaled.x + unscaled.width >= (bounds.x + bounds.width) / scale - 1e-9);
+				assertTrue(unscaled.y + unscaled.height >= (bounds.y + bounds.height) / scale - 1e-9);
+				assertTrue(unscaled.width <= Math.ceil(bounds.width / scale) + 1);
+			}
+		}
+	}
+
+	/** Coordinates in the titles of hOCR elements are mapped back to the original page, the text is kept */
+	@Test
+	public void testUnscaleHocr() {
+		final String hocr = "<div class='ocr_page' id='page_1' title='image \"\"; bbox 0 0 200 100; ppageno 0'>\n"
+				+ "<span class='ocr_line' id='line_1_1' title=\"bbox 10 20 150 41; baseline 0.015 -7; x_size 22;"
+				+ " x_descenders 5; x_ascenders 6\">"
+				+ "<span class='ocrx_word' id='word_1_1' title='bbox 10 20 60 40; x_wconf 91'>bbox 1 2 3 4</span>";
+		assertEquals("<div class='ocr_page' id='page_1' title='image \"\"; bbox 0 0 100 50; ppageno 0'>\n"
+				+ "<span class='ocr_line' id='line_1_1' title=\"bbox 5 10 75 21; baseline 0.015 -3.50; x_size 11;"
+				+ " x_descenders 2.50; x_ascenders 3\">"
+				+ "<span class='ocrx_word' id='word_1_1' title='bbox 5 10 30 20; x_wconf 91'>bbox 1 2 3 4</span>",
+				Tess4JPageFormatter.unscaleHocr(hocr, 2d, 100, 50));
+		assertSame(hocr, Tess4JPageFormatter.unscaleHocr(hocr, 1d, 200, 100));
+	}
+
+	/** Boxes of hOCR are clipped to the original page */
+	@Test
+	public void testUnscaleHocrClipped() {
+		assertEquals("title='bbox 0 0 33 33'", Tess4JPageFormatter.unscaleHocr("title='bbox 0 0 100 100'", 3d, 33, 33));
+	}
+
+	/** Tabs and line breaks in words do not split fields or rows of TSV */
+	@Test
+	public void testTsvEscaped() {
+		assertEquals("plain", Tess4JPageFormatter.appendTsvEscaped(new StringBuilder(), "plain").toString());
+		assertEquals("a\\tb\\nc\\rd\\\\e",
+				Tess4JPageFormatter.appendTsvEscaped(new StringBuilder(), "a\tb\nc\rd\\e").toString());
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.base.node;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the {@link Tess4JResultCache}.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public class Tess4JResultCacheTest {
+
+	/** Directory of the cache, a new one per test since caches are shared per directory */
+	@Rule
+	public TemporaryFolder m_folder = new TemporaryFolder();
+
+	/** A cached result is read back with all its parts */
+	@Test
+	public void testPutGet() throws IOException {
+		final Tess4JResultCache cache = Tess4JResultCache.open(m_folder.newFolder(), 1 << 20);
+		final Tess4JPageResult result = new Tess4JPageResult("Hello\tWorld\n", 87,
+				Arrays.asList(new Tess4JLayoutElement("Hello", new Rectangle(1, 2, 30, 40), 91.5f)),
+				new String[] { "<hocr/>", "tsv" }, 0.5d, 270);
+		final String key = Tess4JResultCache.key(0x1234L, -1L);
+		cache.put(key, result);
+
+		assertResultEquals(result, cache.get(key));
+		assertNull(cache.get(Tess4JResultCache.key(0x1234L, 0L)));
+	}
+
+	/** Rejected and blank results keep what they lack */
+	@Test
+	public void testRejectedAndBlank() throws IOException {
+		final Tess4JResultCache cache = Tess4JResultCache.open(m_folder.newFolder(), 1 << 20);
+		cache.put("rejected", Tess4JPageResult.rejected(12, 2d, 90));
+		cache.put("blank", Tess4JPageResult.blank(true, 2));
+
+		final Tess4JPageResult rejected = cache.get("rejected");
+		assertTrue(rejected.isRejected());
+		assertEquals(12, rejected.getConfidence());
+		assertEquals(90, rejected.getOrientation());
+		assertNull(rejected.getElements());
+
+		final Tess4JPageResult blank = cache.get("blank");
+		assertTrue(blank.isBlank());
+		assertEquals(Tess4JPageResult.UNKNOWN_ORIENTATION, blank.getOrientation());
+		assertEquals(0, blank.getElements().size());
+		assertArrayEquals(new String[] { "", "" }, blank.getFormats());
+	}
+
+	/** Keys combine both fingerprints into 32 hex digits */
+	@Test
+	public void testKey() {
+		assertEquals("00000000000000ff0000000000000001", Tess4JResultCache.key(255L, 1L));
+		assertEquals(32, Tess4JResultCache.key(-1L, Long.MIN_VALUE).length());
+	}
+
+	/** The least recently used results are evicted when the cache exceeds its size */
+	@Test
+	public void testEviction() throws IOException {
+		final File dir = m_folder.newFolder();
+		final Tess4JResultCache cache = Tess4JResultCache.open(dir, 1 << 20);
+		final char[] text = new char[1000];
+		Arrays.fill(text, 'x');
+		for (int i = 0; i < 3; ++i) {
+			cache.put("page" + i, new Tess4JPageResult(new String(text), 90, null, new String[0]));
+		}
+		final long size = new File(dir, "page0.ocr").length();
+		assertTrue(size > 1000);
+
+		// page0 becomes the most recently used
+		assertNotNull(cache.get("page0"));
+		assertSame(cache, Tess4JResultCache.open(dir, 2 * size));
+		assertNotNull(cache.get("page0"));
+		assertNull(cache.get("page1"));
+		assertNotNull(cache.get("page2"));
+		assertFalse(new File(dir, "page1.ocr").exists());
+	}
+
+	/** Results which cannot be read are dropped */
+	@Test
+	public void testCorruptResult() throws IOException {
+		final File dir = m_folder.newFolder();
+		final Tess4JResultCache cache = Tess4JResultCache.open(dir, 1 << 20);
+		cache.put("page", new Tess4JPageResult("text", 90, null, new String[0]));
+		Files.write(new File(dir, "page.ocr").toPath(), new byte[] { 0, 0, 0, 3, 1 });
+
+		assertNull(cache.get("page"));
+		assertFalse(new File(dir, "page.ocr").exists());
+	}
+
+	/** Results written in an earlier session are found after a restart */
+	@Test
+	public void testExistingFiles() throws IOException {
+		final File dir = m_folder.newFolder();
+		Tess4JResultCache.open(dir, 1 << 20).put("page", new Tess4JPageResult("text", 90, null, new String[0]));
+
+		// a cache not opened before in this session, as after a restart
+		final File restarted = m_folder.newFolder();
+		Files.copy(new File(dir, "page.ocr").toPath(), new File(restarted, "page.ocr").toPath());
+		assertEquals("text", Tess4JResultCache.open(restarted, 1 << 20).get("page").getText());
+	}
+
+	/** All executions using a directory share its cache */
+	@Test
+	public void testShared() throws IOException {
+		final File dir = m_folder.newFolder();
+		final File alias = new File(new File(dir, ".."), dir.getName());
+		assertSame(Tess4JResultCache.open(dir, 1 << 20), Tess4JResultCache.open(alias, 1 << 20));
+	}
+
+	static void assertResultEquals(final Tess4JPageResult expected, final Tess4JPageResult actual) {
+		assertEquals(expected.getText(), actual.getText());
+		assertEquals(expected.getConfidence(), actual.getConfidence());
+		assertEquals(expected.getScale(), actual.getScale(), 0);
+		assertEquals(expected.getOrientation(), actual.getOrientation());
+		assertEquals(expected.isBlank(), actual.isBlank());
+		assertArrayEquals(expected.getFormats(), actual.getFormats());
+		if (expected.getElements() == null) {
+			assertNull(actual.getElements());
+			return;
+		}
+		assertEquals(expected.getElements().size(), actual.getElements().size());
+		for (int i = 0; i < expected.getElements().size(); ++i) {
+			final Tess4JLayoutElement element = expected.getElements().get(i);
+			assertEquals(element.getText(), actual.getElements().get(i).getText());
+			assertEquals(element.getBounds(), actual.getElements().get(i).getBounds());
+			assertEquals(element.getConfidence(), actual.getElements().get(i).getConfidence(), 0f);
+		}
+	}
+}
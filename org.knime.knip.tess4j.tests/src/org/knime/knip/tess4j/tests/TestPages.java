@@ -0,0 +1,149 @@
+/*
+ * ------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2003 - 2013
+ *  University of Konstanz, Germany and
+ *  KNIME GmbH, Konstanz, Germany
+ *  Website: http://www.knime.org; Email: contact@knime.org
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License, Version 3, as
+ *  published by the Free Software Foundation.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ *  Additional permission under GNU GPL version 3 section 7:
+ *
+ *  KNIME interoperates with ECLIPSE solely via ECLIPSE's plug-in APIs.
+ *  Hence, KNIME and ECLIPSE are both independent programs and are not
+ *  derived from each other. Should, however, the interpretation of the
+ *  GNU GPL Version 3 ("License") under any applicable laws result in
+ *  KNIME and ECLIPSE being a combined program, KNIME GMBH herewith grants
+ *  you the additional permission to use and propagate KNIME together with
+ *  ECLIPSE with only the license terms in place for ECLIPSE applying to
+ *  ECLIPSE and the GNU GPL Version 3 applying for KNIME, provided the
+ *  license terms of ECLIPSE themselves allow for the respective use and
+ *  propagation of ECLIPSE together with KNIME.
+ *
+ *  Additional permission relating to nodes for KNIME that extend the Node
+ *  Extension (and in particular that are based on subclasses of NodeModel,
+ *  NodeDialog, and NodeView) and that only interoperate with KNIME through
+ *  standard APIs ("Nodes"):
+ *  Nodes are deemed to be separate and independent programs and to not be
+ *  covered works.  Notwithstanding anything to the contrary in the
+ *  License, the License does not apply to Nodes, you are not required to
+ *  license Nodes under the License, and you are granted a license to
+ *  prepare and propagate Nodes, in each case even if such Nodes are
+ *  propagated with or for interoperation with KNIME.  The owner of a Node
+ *  may freely choose the license terms applicable to such Node, including
+ *  when such Node is propagated with or for interoperation with KNIME.
+ * --------------------------------------------------------------------- *
+ *
+ */
+package org.knime.knip.tess4j.tests;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+/**
+ * Synthetic pages of printed text for the tests, so that results do not
+ * depend on image files or fonts outside of the JDK.
+ *
+ * @author KNIME Image Processing contributors
+ */
+public final class TestPages {
+
+	private static final String[] LINES = { "The quick brown fox jumps over the lazy dog. 0123456789",
+			"Pack my box with five dozen liquor jugs, then sphinx of black quartz, judge my vow.",
+			"How vexingly quick daft zebras jump; the five boxing wizards jump quickly!",
+			"Optical character recognition converts images of printed text into machine-encoded text." };
+
+	private TestPages() {
+		// utility class
+	}
+
+	/**
+	 * Render a page of text, black on white.
+	 *
+	 * @param width
+	 *            width of the page in pixels
+	 * @param height
+	 *            height of the page in pixels
+	 * @param fontSize
+	 *            size of the serif font in pixels
+	 * @param angle
+	 *            skew of the text in degrees, counter-clockwise
+	 * @return grey values of the page, row by row without padding
+	 */
+	public static byte[] render(final int width, final int height, final int fontSize, final double angle) {
+		final BufferedImage page = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		final Graphics2D g = page.createGraphics();
+		try {
+			g.setColor(Color.WHITE);
+			g.fillRect(0, 0, width, height);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+			g.rotate(-Math.toRadians(angle), width / 2d, height / 2d);
+			g.setColor(Color.BLACK);
+			g.setFont(new Font(Font.SERIF, Font.PLAIN, fontSize));
+
+			// lines are indented differently so that glyphs of repeated lines do not line up in columns
+			final int margin = 2 * fontSize;
+			final int lineHeight = fontSize * 3 / 2;
+			int line = 0;
+			for (int y = margin + fontSize; y < height - margin; y += lineHeight) {
+				g.drawString(LINES[line % LINES.length], margin + line * 5 % 7 * fontSize / 3, y);
+				++line;
+			}
+		} finally {
+			g.dispose();
+		}
+		return ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Create a plane of a single grey value.
+	 *
+	 * @param width
+	 *            width of the plane
+	 * @param height
+	 *            height of the plane
+	 * @param value
+	 *            the grey value
+	 * @return grey values of the plane
+	 */
+	public static byte[] uniform(final int width, final int height, final int value) {
+		final byte[] plane = new byte[width * height];
+		Arrays.fill(plane, (byte) value);
+		return plane;
+	}
+
+	/**
+	 * Count the pixels of a plane up to a grey value.
+	 *
+	 * @param plane
+	 *            grey values
+	 * @param maxValue
+	 *            largest grey value which is counted
+	 * @return number of pixels with a grey value up to maxValue
+	 */
+	public static int countDark(final byte[] plane, final int maxValue) {
+		int dark = 0;
+		for (final byte value : plane) {
+			if ((value & 0xff) <= maxValue) {
+				++dark;
+			}
+		}
+		return dark;
+	}
+}